@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parameter sweep of {@literal @}async on DeviceTemperatureStream and MonitoredDevicesTempStream of Temp-Alert-App.
+ * Description: Runs a sandbox runtime of the app without {@literal @}async and then one per combination of
+ *              buffer.size, workers and batch.size.max, see TemperatureAlertApp.withAsync. Every run receives the same
+ *              rise-peak-fall cycles of monitored devices, sent as fast as the app accepts them, and measures the
+ *              throughput until the last alert and the latency from sending the fall event of a cycle to its alert.
+ *              A configuration is exact when it raises the same alerts as the synchronous app; more than one worker
+ *              can reorder the events of a device and break the temperature-increase-detector pattern.
+ *              The Pareto front of throughput and p99 latency over the exact configurations is printed, with the
+ *              configuration recommended for production: the highest throughput whose p99 latency is within the
+ *              latency budget, or the lowest p99 latency when none is.
+ * Run: java -Xmx4g -cp siddhi-test-suite-benchmark/target/benchmarks.jar siddhi.test.suite.benchmark.AsyncTuningSweep
+ *      [buffer sizes, default 256,1024,4096] [workers, default 1,2,4] [batch sizes, default 1,10,100]
+ *      [p99 latency budget in ms, default 50]
+ *      A CSV report is written to target/async-tuning.csv
+ */
+public class AsyncTuningSweep {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncTuningSweep.class);
+
+    static final int[] DEFAULT_BUFFER_SIZES = {256, 1024, 4096};
+    static final int[] DEFAULT_WORKERS = {1, 2, 4};
+    static final int[] DEFAULT_BATCH_SIZES = {1, 10, 100};
+    static final long DEFAULT_LATENCY_BUDGET_MILLIS = 50;
+
+    private static final int DEVICES = 1024;
+    private static final int CYCLES = 50;
+    private static final double PEAK_BASE = 80.0;
+    private static final long ALERT_TIMEOUT_MILLIS = 30000;
+
+    public static void main(String[] args) throws Exception {
+        int[] bufferSizes = args.length > 0 ? parse(args[0]) : DEFAULT_BUFFER_SIZES;
+        int[] workers = args.length > 1 ? parse(args[1]) : DEFAULT_WORKERS;
+        int[] batchSizes = args.length > 2 ? parse(args[2]) : DEFAULT_BATCH_SIZES;
+        long latencyBudgetMillis = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_LATENCY_BUDGET_MILLIS;
+
+        String app = TemperatureAlertApp.load();
+        //Warms up the JVM so that the first configuration is not penalised
+        run(null, app);
+        Result sync = run(null, app);
+        sync.exact = true;
+        logger.info(sync.toString());
+        List<Result> results = new ArrayList<>();
+        results.add(sync);
+        for (int bufferSize : bufferSizes) {
+            for (int workerCount : workers) {
+                for (int batchSize : batchSizes) {
+                    String config = bufferSize + "/" + workerCount + "/" + batchSize;
+                    Result result = run(config, TemperatureAlertApp.withAsync(app, bufferSize, workerCount,
+                            batchSize));
+                    result.exact = result.alerts == sync.alerts && result.cycles == sync.cycles;
+                    logger.info(result.toString());
+                    results.add(result);
+                }
+            }
+        }
+        markParetoFront(results);
+        Result recommended = recommend(results, latencyBudgetMillis);
+
+        Path report = Paths.get("target", "async-tuning.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Result.CSV_HEADER);
+            for (Result result : results) {
+                writer.println(result.toCsv(result == recommended));
+            }
+        }
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "%n%-18s %14s %10s %10s %10s %6s %7s%n", "buffer/workers/batch", "events/s", "p50 ms", "p99 ms",
+                "max ms", "exact", "pareto"));
+        for (Result result : results) {
+            table.append(result.toRow()).append(result == recommended ? "  <- recommended" : "")
+                    .append(System.lineSeparator());
+        }
+        logger.info(table.toString());
+        logger.info("Recommended @async configuration for a p99 latency budget of " + latencyBudgetMillis + " ms: " +
+                (recommended == null ? "none, no configuration is exact" : recommended.getConfig()) +
+                ". Report written to " + report.toAbsolutePath());
+    }
+
+    /**
+     * Sends the rise-peak-fall cycles to a sandbox runtime of the given app and waits for their alerts.
+     */
+    static Result run(String config, String siddhiApp) throws IOException, InterruptedException {
+        TemperatureAlertApp.setBlankEnvironment();
+        Object[][] events = new Object[DEVICES * CYCLES * 4][];
+        int next = 0;
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            for (int step = 0; step < 4; step++) {
+                for (int device = 0; device < DEVICES; device++) {
+                    double temp = step == 2 ? PEAK_BASE + cycle : TemperatureAlertAppQueryBenchmark.peakCycle(
+                            device)[step];
+                    events[next++] = new Object[]{"monitored", "M" + device, temp, "ServerRoom" + (device % 8)};
+                }
+            }
+        }
+
+        AtomicLongArray fallSentAt = new AtomicLongArray(DEVICES * CYCLES);
+        Histogram latencies = new ConcurrentHistogram(3);
+        AtomicLong alerts = new AtomicLong();
+        AtomicLong lastAlertAt = new AtomicLong();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSandboxSiddhiAppRuntime(siddhiApp);
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.ALERT_STREAM, new StreamCallback() {
+                @Override
+                public void receive(Event[] alertEvents) {
+                    long receivedAt = System.nanoTime();
+                    for (Event alert : alertEvents) {
+                        int device = Integer.parseInt(((String) alert.getData(0)).substring(1));
+                        int cycle = (int) ((Double) alert.getData(1) - PEAK_BASE);
+                        long sentAt = fallSentAt.getAndSet(device * CYCLES + cycle, 0);
+                        if (sentAt != 0) {
+                            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(receivedAt - sentAt));
+                        }
+                    }
+                    alerts.addAndGet(alertEvents.length);
+                    lastAlertAt.set(receivedAt);
+                }
+            });
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM);
+            siddhiAppRuntime.start();
+
+            long start = System.nanoTime();
+            for (int event = 0; event < events.length; event++) {
+                int step = (event / DEVICES) % 4;
+                if (step == 3) {
+                    int cycle = event / (DEVICES * 4);
+                    fallSentAt.set((event % DEVICES) * CYCLES + cycle, System.nanoTime());
+                }
+                inputHandler.send(events[event]);
+            }
+            long sendEnd = System.nanoTime();
+            long deadline = System.currentTimeMillis() + ALERT_TIMEOUT_MILLIS;
+            while (latencies.getTotalCount() < DEVICES * CYCLES && System.currentTimeMillis() < deadline) {
+                //Stops early when alerts no longer arrive, e.g. when reordering lost some of them
+                if (System.nanoTime() - Math.max(lastAlertAt.get(), sendEnd) > TimeUnit.SECONDS.toNanos(2)) {
+                    break;
+                }
+                Thread.sleep(10);
+            }
+            long elapsedNanos = (alerts.get() > 0 ? lastAlertAt.get() : System.nanoTime()) - start;
+            return new Result(config, events.length, alerts.get(), latencies.getTotalCount(), elapsedNanos,
+                    latencies);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Marks the exact results that no other exact result beats on both throughput and p99 latency.
+     */
+    static void markParetoFront(List<Result> results) {
+        for (Result result : results) {
+            if (!result.exact) {
+                continue;
+            }
+            result.pareto = true;
+            for (Result other : results) {
+                if (other != result && other.exact &&
+                        other.getEventsPerSecond() >= result.getEventsPerSecond() &&
+                        other.getP99Millis() <= result.getP99Millis() &&
+                        (other.getEventsPerSecond() > result.getEventsPerSecond() ||
+                                other.getP99Millis() < result.getP99Millis())) {
+                    result.pareto = false;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Highest throughput on the Pareto front within the latency budget, else the lowest p99 latency on it.
+     */
+    static Result recommend(List<Result> results, long latencyBudgetMillis) {
+        Result withinBudget = null;
+        Result lowestLatency = null;
+        for (Result result : results) {
+            if (!result.pareto) {
+                continue;
+            }
+            if (result.getP99Millis() <= latencyBudgetMillis &&
+                    (withinBudget == null || result.getEventsPerSecond() > withinBudget.getEventsPerSecond())) {
+                withinBudget = result;
+            }
+            if (lowestLatency == null || result.getP99Millis() < lowestLatency.getP99Millis()) {
+                lowestLatency = result;
+            }
+        }
+        return withinBudget != null ? withinBudget : lowestLatency;
+    }
+
+    private static int[] parse(String values) {
+        String[] split = values.split(",");
+        int[] parsed = new int[split.length];
+        for (int i = 0; i < split.length; i++) {
+            parsed[i] = Integer.parseInt(split[i].trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * Measurements of one configuration, a null config is the app without {@literal @}async.
+     */
+    public static class Result {
+        static final String CSV_HEADER = "bufferSize/workers/batchSizeMax,events,alerts,alertedCycles," +
+                "eventsPerSecond,p50Millis,p99Millis,maxMillis,exact,pareto,recommended";
+
+        private final String config;
+        private final long events;
+        private final long alerts;
+        private final long cycles;
+        private final long elapsedNanos;
+        private final Histogram latencies;
+        private boolean exact;
+        private boolean pareto;
+
+        Result(String config, long events, long alerts, long cycles, long elapsedNanos, Histogram latencies) {
+            this.config = config;
+            this.events = events;
+            this.alerts = alerts;
+            this.cycles = cycles;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        public String getConfig() {
+            return config == null ? "sync" : config;
+        }
+
+        public double getEventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+
+        public double getP99Millis() {
+            return latencies.getValueAtPercentile(99) / 1000.0;
+        }
+
+        String toCsv(boolean recommended) {
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%.0f,%.3f,%.3f,%.3f,%b,%b,%b", getConfig(), events,
+                    alerts, cycles, getEventsPerSecond(), latencies.getValueAtPercentile(50) / 1000.0,
+                    getP99Millis(), latencies.getMaxValue() / 1000.0, exact, pareto, recommended);
+        }
+
+        String toRow() {
+            return String.format(Locale.ROOT, "%-18s %14.0f %10.3f %10.3f %10.3f %6s %7s", getConfig(),
+                    getEventsPerSecond(), latencies.getValueAtPercentile(50) / 1000.0, getP99Millis(),
+                    latencies.getMaxValue() / 1000.0, exact ? "yes" : "no", pareto ? "*" : "");
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "config=%s, events=%d, alerts=%d, alerted cycles=%d, " +
+                            "throughput=%.0f events/s, p50=%.3f ms, p99=%.3f ms, max=%.3f ms", getConfig(), events,
+                    alerts, cycles, getEventsPerSecond(), latencies.getValueAtPercentile(50) / 1000.0,
+                    getP99Millis(), latencies.getMaxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Saturation curve of Temp-Alert-App when its source is faster than its sink and store.
+ * Description: Runs the app with its NATS source and sink over LoopbackNatsBroker, with the AlertStream destination
+ *              throttled to a fixed number of alerts per second, and InternalDevicesTempTable written to an embedded H2
+ *              database through siddhi-store-rdbms with {@link SlowInsertTrigger} delaying every row.
+ *              The offered input rate is stepped up, half monitored devices going through rise-peak-fall cycles and
+ *              half internal devices. During each step the publisher backlog (messages due but not yet accepted by
+ *              the source), the input buffer depth (accepted but not yet processed, non zero with @async), the rows
+ *              not yet written and the alerts not yet delivered are sampled, and the publish-to-alert lag of every
+ *              alert is recorded. After each step the input stops until the app drains, and the alerts and rows
+ *              that never arrived are counted as lost.
+ *              So each step shows whether the runtime keeps up, blocks the source (accepted rate below the offered
+ *              rate), buffers (input depth) or drops (lost events), with the sink retries (rejected publishes).
+ * Run: java -Xmx2g -cp siddhi-test-suite-benchmark/target/benchmarks.jar
+ *      siddhi.test.suite.benchmark.BackpressureHarness
+ *      [offered rates, default 1000,2000,4000,8000,16000,32000] [seconds per step, default 10]
+ *      [sink alerts/s, default 500] [store delay per row in microseconds, default 200]
+ *      [sink on.error, LOG or WAIT, default LOG] [@async buffer size, default 0 for synchronous]
+ *      A CSV report is written to target/backpressure.csv
+ */
+public class BackpressureHarness {
+    private static final Logger logger = LoggerFactory.getLogger(BackpressureHarness.class);
+
+    private static final int[] DEFAULT_RATES = {1000, 2000, 4000, 8000, 16000, 32000};
+    private static final int DEVICES = 1024;
+    private static final int CYCLE_KEYS = 100;
+    private static final double PEAK_BASE = 80.0;
+    private static final long SINK_MAX_WAIT_MILLIS = 100;
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+    private static final long DRAIN_TIMEOUT_MILLIS = 60000;
+    private static final long QUIET_MILLIS = 1000;
+    private static final double KEEP_UP_RATIO = 0.95;
+
+    private static final String DEVICE_ID_FIELD = "\"deviceID\":\"";
+    private static final String PEAK_TEMP_FIELD = "\"peakTemp\":";
+
+    public static void main(String[] args) throws Exception {
+        int[] rates = args.length > 0 ? parse(args[0]) : DEFAULT_RATES;
+        long stepSeconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        double sinkRate = args.length > 2 ? Double.parseDouble(args[2]) : 500;
+        long storeDelayMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        String sinkOnError = args.length > 4 ? args[4] : "LOG";
+        int asyncBufferSize = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        List<Step> steps = new BackpressureHarness(sinkRate, storeDelayMicros, sinkOnError, asyncBufferSize)
+                .run(rates, stepSeconds);
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "Saturation curve, sink=%.0f alerts/s (on.error=%s), store delay=%d us/row, async buffer=%d%n",
+                sinkRate, sinkOnError, storeDelayMicros, asyncBufferSize));
+        table.append(Step.TABLE_HEADER).append(System.lineSeparator());
+        Step saturation = null;
+        for (Step step : steps) {
+            table.append(step.toRow()).append(System.lineSeparator());
+            if (saturation == null && !step.keepsUp()) {
+                saturation = step;
+            }
+        }
+        logger.info(table.toString());
+        logger.info(saturation == null ? "The app kept up with every offered rate." :
+                "The app saturates at " + saturation.offeredRate + " events/s, where it " + saturation.behaviour() +
+                        ".");
+
+        Path report = Paths.get("target", "backpressure.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Step.CSV_HEADER);
+            for (Step step : steps) {
+                writer.println(step.toCsv());
+            }
+        }
+        logger.info("Backpressure report written to " + report.toAbsolutePath());
+    }
+
+    private final double sinkRate;
+    private final long storeDelayMicros;
+    private final String sinkOnError;
+    private final int asyncBufferSize;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong processedInternal = new AtomicLong();
+    private final AtomicLong emittedAlerts = new AtomicLong();
+    private final AtomicLong deliveredAlerts = new AtomicLong();
+    private final AtomicLongArray fallPublishedAt = new AtomicLongArray(DEVICES * CYCLE_KEYS);
+    private volatile Histogram lagHistogram = new ConcurrentHistogram(3);
+
+    public BackpressureHarness(double sinkRate, long storeDelayMicros, String sinkOnError, int asyncBufferSize) {
+        this.sinkRate = sinkRate;
+        this.storeDelayMicros = storeDelayMicros;
+        this.sinkOnError = sinkOnError;
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    /**
+     * Runs one step per offered rate on the same runtime, the partitions and table rows carry over between steps.
+     */
+    public List<Step> run(int[] rates, long stepSeconds) throws Exception {
+        String jdbcUrl = InternalDevicesTableWriteBenchmark.embeddedJdbcUrl("backpressure");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        LoopbackNatsBroker.Subscriber alertSubscriber = this::onAlert;
+        List<Step> steps = new ArrayList<>();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createLoopbackEmbeddedStoreRuntime(siddhiManager,
+                    jdbcUrl, sinkOnError, asyncBufferSize);
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM, new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    for (Event event : events) {
+                        if ("internal".equals(event.getData(0))) {
+                            processedInternal.incrementAndGet();
+                        }
+                    }
+                    processed.addAndGet(events.length);
+                }
+            });
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.ALERT_STREAM, new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    emittedAlerts.addAndGet(events.length);
+                }
+            });
+            LoopbackNatsBroker.subscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+            LoopbackNatsBroker.throttle(TemperatureAlertApp.OUTPUT_DESTINATION, sinkRate, SINK_MAX_WAIT_MILLIS);
+            siddhiAppRuntime.start();
+            try (Connection connection = DriverManager.getConnection(jdbcUrl,
+                    TemperatureAlertApp.EMBEDDED_STORE_USERNAME, TemperatureAlertApp.EMBEDDED_STORE_PASSWORD)) {
+                SlowInsertTrigger.install(connection, storeDelayMicros);
+            }
+            long cycle = 0;
+            for (int rate : rates) {
+                Step step = runStep(rate, stepSeconds, cycle, jdbcUrl);
+                cycle = step.nextCycle;
+                logger.info(Step.TABLE_HEADER + System.lineSeparator() + step.toRow());
+                steps.add(step);
+            }
+        } finally {
+            LoopbackNatsBroker.unsubscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+            LoopbackNatsBroker.unthrottle(TemperatureAlertApp.OUTPUT_DESTINATION);
+            siddhiManager.shutdown();
+            InternalDevicesTableWriteBenchmark.dropDatabase(jdbcUrl);
+        }
+        return steps;
+    }
+
+    private Step runStep(int rate, long stepSeconds, long firstCycle, String jdbcUrl)
+            throws InterruptedException, SQLException {
+        lagHistogram = new ConcurrentHistogram(3);
+        long acceptedBefore = accepted.get();
+        long processedBefore = processed.get();
+        long internalBefore = processedInternal.get();
+        long emittedBefore = emittedAlerts.get();
+        long deliveredBefore = deliveredAlerts.get();
+        long rowsBefore = InternalDevicesTableWriteBenchmark.countRows(jdbcUrl);
+        long rejectedBefore = LoopbackNatsBroker.getRejectedPublishes(TemperatureAlertApp.OUTPUT_DESTINATION);
+
+        Publisher publisher = new Publisher(rate, TimeUnit.SECONDS.toNanos(stepSeconds), firstCycle);
+        Thread publisherThread = new Thread(publisher, "backpressure-publisher");
+        publisherThread.start();
+        long maxBacklog = 0;
+        long maxInputDepth = 0;
+        long maxUnwrittenRows = 0;
+        long maxUndeliveredAlerts = 0;
+        while (publisherThread.isAlive()) {
+            publisherThread.join(SAMPLE_INTERVAL_MILLIS);
+            maxBacklog = Math.max(maxBacklog, publisher.backlog());
+            maxInputDepth = Math.max(maxInputDepth, accepted.get() - processed.get());
+            maxUnwrittenRows = Math.max(maxUnwrittenRows, processedInternal.get() - internalBefore -
+                    (InternalDevicesTableWriteBenchmark.countRows(jdbcUrl) - rowsBefore));
+            maxUndeliveredAlerts = Math.max(maxUndeliveredAlerts, emittedAlerts.get() - emittedBefore -
+                    (deliveredAlerts.get() - deliveredBefore));
+        }
+        long acceptedEvents = accepted.get() - acceptedBefore;
+        double acceptedRate = acceptedEvents * 1e9 / publisher.elapsedNanos;
+
+        long drainStart = System.nanoTime();
+        awaitQuiet(jdbcUrl);
+        long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart);
+
+        long lostInput = acceptedEvents - (processed.get() - processedBefore);
+        long lostRows = Math.max(0, processedInternal.get() - internalBefore -
+                (InternalDevicesTableWriteBenchmark.countRows(jdbcUrl) - rowsBefore));
+        long emitted = emittedAlerts.get() - emittedBefore;
+        long delivered = deliveredAlerts.get() - deliveredBefore;
+        long rejected = LoopbackNatsBroker.getRejectedPublishes(TemperatureAlertApp.OUTPUT_DESTINATION) -
+                rejectedBefore;
+        return new Step(rate, acceptedRate, emitted, delivered, lagHistogram, maxBacklog, maxInputDepth,
+                maxUnwrittenRows, maxUndeliveredAlerts, rejected, Math.max(0, lostInput) + lostRows +
+                Math.max(0, emitted - delivered), drainMillis, publisher.cycle);
+    }
+
+    /**
+     * Waits until the processed events, rows and delivered alerts stop changing.
+     */
+    private void awaitQuiet(String jdbcUrl) throws InterruptedException, SQLException {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        long quietSince = System.currentTimeMillis();
+        long last = -1;
+        while (System.currentTimeMillis() < deadline) {
+            long progress = processed.get() + InternalDevicesTableWriteBenchmark.countRows(jdbcUrl) +
+                    deliveredAlerts.get() + emittedAlerts.get();
+            if (progress != last) {
+                last = progress;
+                quietSince = System.currentTimeMillis();
+            } else if (processed.get() == accepted.get() &&
+                    System.currentTimeMillis() - quietSince >= QUIET_MILLIS) {
+                return;
+            }
+            Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+        }
+        logger.warn("The app did not drain within " + DRAIN_TIMEOUT_MILLIS + " ms.");
+    }
+
+    private void onAlert(Object payload) {
+        long receivedAt = System.nanoTime();
+        deliveredAlerts.incrementAndGet();
+        String alert = payload instanceof byte[] ? new String((byte[]) payload, StandardCharsets.UTF_8) :
+                payload.toString();
+        int deviceStart = alert.indexOf(DEVICE_ID_FIELD);
+        int peakStart = alert.indexOf(PEAK_TEMP_FIELD);
+        if (deviceStart < 0 || peakStart < 0) {
+            return;
+        }
+        deviceStart += DEVICE_ID_FIELD.length() + 1;
+        peakStart += PEAK_TEMP_FIELD.length();
+        int peakEnd = peakStart;
+        while (peakEnd < alert.length() &&
+                (Character.isDigit(alert.charAt(peakEnd)) || alert.charAt(peakEnd) == '.')) {
+            peakEnd++;
+        }
+        int device = Integer.parseInt(alert.substring(deviceStart, alert.indexOf('"', deviceStart)));
+        int cycleKey = (int) Math.round(Double.parseDouble(alert.substring(peakStart, peakEnd)) - PEAK_BASE);
+        long publishedAt = fallPublishedAt.getAndSet(device * CYCLE_KEYS + cycleKey, 0);
+        if (publishedAt != 0) {
+            lagHistogram.recordValue(TimeUnit.NANOSECONDS.toMicros(receivedAt - publishedAt));
+        }
+    }
+
+    private static int[] parse(String values) {
+        String[] parts = values.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * Publishes the events of one step at the offered rate on its own thread, alternating internal and monitored
+     * devices. Each monitored cycle of a device peaks at 80 + cycle % 100, so an alert is matched to the fall
+     * event that completed it by its deviceID and peakTemp.
+     */
+    private class Publisher implements Runnable {
+        private final long intervalNanos;
+        private final long durationNanos;
+        private final AtomicLong published = new AtomicLong();
+        private volatile long startNanos;
+        private volatile long elapsedNanos;
+        private long cycle;
+
+        Publisher(int rate, long durationNanos, long firstCycle) {
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.durationNanos = durationNanos;
+            this.cycle = firstCycle;
+        }
+
+        @Override
+        public void run() {
+            startNanos = System.nanoTime();
+            long events = durationNanos / intervalNanos;
+            long monitored = 0;
+            for (long event = 0; event < events; event++) {
+                long delay = startNanos + event * intervalNanos - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                String message;
+                if (event % 2 == 0) {
+                    message = toJson("internal", "I" + (event / 2 % DEVICES), 28.5);
+                } else {
+                    int device = (int) (monitored % DEVICES);
+                    int step = (int) (monitored / DEVICES % 4);
+                    double[] temps = {40.0, 60.0, PEAK_BASE + cycle % CYCLE_KEYS, 30.0};
+                    message = toJson("monitored", "B" + device, temps[step]);
+                    if (step == 3) {
+                        fallPublishedAt.set(device * CYCLE_KEYS + (int) (cycle % CYCLE_KEYS), System.nanoTime());
+                    }
+                    monitored++;
+                    if (monitored % (DEVICES * 4) == 0) {
+                        cycle++;
+                    }
+                }
+                LoopbackNatsBroker.publish(TemperatureAlertApp.INPUT_DESTINATION, message);
+                accepted.incrementAndGet();
+                published.incrementAndGet();
+            }
+            if (monitored % (DEVICES * 4) != 0) {
+                //Start the next step on a new cycle, the devices left mid-cycle fall back to 40 there
+                cycle++;
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        /**
+         * Messages due by now that the source has not accepted yet.
+         */
+        long backlog() {
+            long start = startNanos;
+            if (start == 0) {
+                return 0;
+            }
+            long due = Math.min(durationNanos, System.nanoTime() - start) / intervalNanos;
+            return Math.max(0, due - published.get());
+        }
+
+        private String toJson(String type, String deviceId, double temp) {
+            return "{\"event\":{\"type\":\"" + type + "\",\"deviceID\":\"" + deviceId + "\",\"temp\":" + temp +
+                    ",\"roomID\":\"ServerRoom\"}}";
+        }
+    }
+
+    /**
+     * Readings of one offered rate.
+     */
+    public static class Step {
+        static final String TABLE_HEADER = String.format(Locale.ROOT,
+                "%9s %10s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s %9s  %s", "offered/s", "accepted/s", "alerts",
+                "p50 ms", "p99 ms", "max ms", "backlog", "in-depth", "unwritten", "undeliv.", "retries", "lost",
+                "drain ms", "behaviour");
+        static final String CSV_HEADER = "offeredRate,acceptedRate,emittedAlerts,deliveredAlerts,lagP50Millis," +
+                "lagP99Millis,lagMaxMillis,maxPublisherBacklog,maxInputDepth,maxUnwrittenRows,maxUndeliveredAlerts," +
+                "sinkRetries,lostEvents,drainMillis,behaviour";
+
+        private final int offeredRate;
+        private final double acceptedRate;
+        private final long emittedAlerts;
+        private final long deliveredAlerts;
+        private final double lagP50Millis;
+        private final double lagP99Millis;
+        private final double lagMaxMillis;
+        private final long maxBacklog;
+        private final long maxInputDepth;
+        private final long maxUnwrittenRows;
+        private final long maxUndeliveredAlerts;
+        private final long sinkRetries;
+        private final long lostEvents;
+        private final long drainMillis;
+        private final long nextCycle;
+
+        Step(int offeredRate, double acceptedRate, long emittedAlerts, long deliveredAlerts, Histogram lag,
+             long maxBacklog, long maxInputDepth, long maxUnwrittenRows, long maxUndeliveredAlerts, long sinkRetries,
+             long lostEvents, long drainMillis, long nextCycle) {
+            this.offeredRate = offeredRate;
+            this.acceptedRate = acceptedRate;
+            this.emittedAlerts = emittedAlerts;
+            this.deliveredAlerts = deliveredAlerts;
+            this.lagP50Millis = lag.getValueAtPercentile(50) / 1000.0;
+            this.lagP99Millis = lag.getValueAtPercentile(99) / 1000.0;
+            this.lagMaxMillis = lag.getMaxValue() / 1000.0;
+            this.maxBacklog = maxBacklog;
+            this.maxInputDepth = maxInputDepth;
+            this.maxUnwrittenRows = maxUnwrittenRows;
+            this.maxUndeliveredAlerts = maxUndeliveredAlerts;
+            this.sinkRetries = sinkRetries;
+            this.lostEvents = lostEvents;
+            this.drainMillis = drainMillis;
+            this.nextCycle = nextCycle;
+        }
+
+        /**
+         * Whether the app accepted the offered rate without losing events.
+         */
+        public boolean keepsUp() {
+            return acceptedRate >= offeredRate * KEEP_UP_RATIO && lostEvents == 0;
+        }
+
+        /**
+         * How the app reacts to the offered rate: keeps up, blocks the source, buffers or drops events.
+         */
+        public String behaviour() {
+            if (lostEvents > 0) {
+                return "drops events";
+            }
+            if (acceptedRate < offeredRate * KEEP_UP_RATIO) {
+                return maxInputDepth > 0 ? "buffers then blocks the source" : "blocks the source";
+            }
+            return maxInputDepth > 0 || maxUndeliveredAlerts > 0 ? "keeps up with buffering" : "keeps up";
+        }
+
+        public long getLostEvents() {
+            return lostEvents;
+        }
+
+        public long getSinkRetries() {
+            return sinkRetries;
+        }
+
+        public double getAcceptedRate() {
+            return acceptedRate;
+        }
+
+        String toRow() {
+            return String.format(Locale.ROOT, "%9d %10.0f %9d %9.1f %9.1f %9.1f %9d %9d %9d %9d %9d %9d %9d  %s",
+                    offeredRate, acceptedRate, deliveredAlerts, lagP50Millis, lagP99Millis, lagMaxMillis, maxBacklog,
+                    maxInputDepth, maxUnwrittenRows, maxUndeliveredAlerts, sinkRetries, lostEvents, drainMillis,
+                    behaviour());
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%.0f,%d,%d,%.3f,%.3f,%.3f,%d,%d,%d,%d,%d,%d,%d,%s", offeredRate,
+                    acceptedRate, emittedAlerts, deliveredAlerts, lagP50Millis, lagP99Millis, lagMaxMillis,
+                    maxBacklog, maxInputDepth, maxUnwrittenRows, maxUndeliveredAlerts, sinkRetries, lostEvents,
+                    drainMillis, behaviour());
+        }
+    }
+}
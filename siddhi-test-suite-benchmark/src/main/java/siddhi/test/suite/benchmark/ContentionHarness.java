@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Concurrent ingestion into the partitioned pattern of Temp-Alert-App by many simulated devices at once.
+ * Description: Every device is a task of its own, sending rise-peak-fall cycles in order, and all tasks are released
+ *              together by a start latch. On Java 21 and later each device runs on its own virtual thread, created
+ *              through Executors.newVirtualThreadPerTaskExecutor by reflection so the module keeps compiling for
+ *              Java 8; on older JVMs the devices share a pool of platform threads.
+ *              Two ingestion paths are measured: inputHandler, calling InputHandler.send on DeviceTemperatureStream
+ *              of a sandbox runtime, and nats, publishing JSON messages through the NATS source and mapper of the app
+ *              over LoopbackNatsBroker.
+ *              Each run is a child JVM limited to the given core count with -XX:ActiveProcessorCount, so the speedup
+ *              over the smallest core count shows how ingestion scales. A flight recording of the run captures the
+ *              jdk.JavaMonitorEnter and jdk.ThreadPark events above contention.threshold (default 1 ms), summed
+ *              per run with the most contended classes, and kept for 'jfr print'. Every run checks that each device
+ *              cycle raised exactly one alert.
+ * Run: java -cp siddhi-test-suite-benchmark/target/benchmarks.jar siddhi.test.suite.benchmark.ContentionHarness
+ *      [devices, default 100000] [cycles per device, default 5] [core counts, default 1,2,4,...,all cores]
+ *      [paths, default inputHandler,nats]
+ *      The CSV report and the recordings are written to target/contention
+ */
+public class ContentionHarness {
+    private static final Logger logger = LoggerFactory.getLogger(ContentionHarness.class);
+
+    static final int DEFAULT_DEVICES = 100000;
+    static final int DEFAULT_CYCLES = 5;
+    static final String INPUT_HANDLER = "inputHandler";
+    static final String NATS = "nats";
+
+    private static final String CHILD = "--child";
+    private static final String RESULT_PREFIX = "CONTENTION_RESULT ";
+    private static final String CSV_HEADER = "path,cores,devices,events,elapsedMillis,eventsPerSecond,alerts," +
+            "expectedAlerts,virtualThreads,contentionRecorded,monitorEnterEvents,monitorEnterMillis,parkEvents," +
+            "parkMillis,topContendedClasses,speedup";
+    private static final double[] CYCLE_TEMPS = {40.0, 60.0, 80.0, 30.0};
+    private static final long RUN_TIMEOUT_MINUTES = 30;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && CHILD.equals(args[0])) {
+            Result result = run(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Paths.get(args[4]));
+            System.out.println(RESULT_PREFIX + result.toCsv());
+            return;
+        }
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEVICES;
+        int cycles = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CYCLES;
+        int[] coreCounts = args.length > 2 ? parse(args[2]) : defaultCoreCounts();
+        String[] paths = args.length > 3 ? args[3].split(",") : new String[]{INPUT_HANDLER, NATS};
+
+        Path reportDirectory = Paths.get("target", "contention");
+        Files.createDirectories(reportDirectory);
+        Path report = reportDirectory.resolve("contention.csv");
+        Map<String, Double> baselineThroughput = new HashMap<>();
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(CSV_HEADER);
+            for (String path : paths) {
+                for (int cores : coreCounts) {
+                    String csv = runChild(path, cores, devices, cycles, reportDirectory);
+                    double eventsPerSecond = Double.parseDouble(csv.split(",")[5]);
+                    double speedup = eventsPerSecond / baselineThroughput.computeIfAbsent(path, p -> eventsPerSecond);
+                    writer.println(csv + String.format(Locale.ROOT, ",%.3f", speedup));
+                    writer.flush();
+                    logger.info(String.format(Locale.ROOT, "path=%s, cores=%d, throughput=%.0f events/s, " +
+                            "speedup=%.2fx", path, cores, eventsPerSecond, speedup));
+                }
+            }
+        }
+        logger.info("Contention report written to " + report.toAbsolutePath());
+    }
+
+    /**
+     * Runs the devices through the given ingestion path in this JVM and records the lock contention.
+     * Fails when the devices did not raise exactly one alert per cycle.
+     */
+    public static Result run(String path, int devices, int cycles, Path reportDirectory)
+            throws IOException, InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(reportDirectory);
+        Path settings = reportDirectory.resolve("contention.jfc");
+        LockContention.writeSettings(settings, System.getProperty("contention.threshold", "1 ms"));
+        String recordingName = "contention-" + path + "-" + cores;
+        Path recording = reportDirectory.resolve(recordingName + ".jfr");
+
+        AtomicLong alerts = new AtomicLong();
+        LoopbackNatsBroker.Subscriber alertSubscriber = payload -> alerts.incrementAndGet();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            DeviceSender sender = createSender(siddhiManager, path, alerts, alertSubscriber);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(devices);
+            ExecutorService executor = newDeviceExecutor(cores);
+            boolean virtualThreads = !(executor instanceof ThreadPoolExecutor);
+            try {
+                for (int device = 0; device < devices; device++) {
+                    String deviceId = "C" + device;
+                    executor.execute(() -> {
+                        try {
+                            start.await();
+                            for (int cycle = 0; cycle < cycles; cycle++) {
+                                for (double temp : CYCLE_TEMPS) {
+                                    sender.send(deviceId, temp);
+                                }
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                }
+                boolean recorded = FlightRecorder.start(recordingName, settings);
+                long startNanos = System.nanoTime();
+                start.countDown();
+                if (!done.await(RUN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                    throw new IllegalStateException("Devices did not finish sending within " + RUN_TIMEOUT_MINUTES +
+                            " minutes.");
+                }
+                long elapsedNanos = System.nanoTime() - startNanos;
+                LockContention contention = recorded && FlightRecorder.stop(recordingName, recording) ?
+                        LockContention.read(recording) : LockContention.unavailable();
+                if (failure.get() != null) {
+                    throw new IllegalStateException("A device failed to send its events.", failure.get());
+                }
+                Result result = new Result(path, cores, devices, (long) devices * cycles * CYCLE_TEMPS.length,
+                        elapsedNanos, alerts.get(), (long) devices * cycles, virtualThreads, contention);
+                logger.info(result.toString());
+                if (result.getAlerts() != result.getExpectedAlerts()) {
+                    throw new IllegalStateException("Devices raised " + result.getAlerts() + " alerts instead of " +
+                            result.getExpectedAlerts() + ", the measured numbers are not valid: " + result);
+                }
+                return result;
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            LoopbackNatsBroker.unsubscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Sends one event of a device through the ingestion path.
+     */
+    private interface DeviceSender {
+        void send(String deviceId, double temp) throws InterruptedException;
+    }
+
+    private static DeviceSender createSender(SiddhiManager siddhiManager, String path, AtomicLong alerts,
+                                             LoopbackNatsBroker.Subscriber alertSubscriber) throws IOException {
+        if (INPUT_HANDLER.equals(path)) {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.ALERT_STREAM, new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    alerts.addAndGet(events.length);
+                }
+            });
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM);
+            siddhiAppRuntime.start();
+            return (deviceId, temp) -> inputHandler.send(new Object[]{"monitored", deviceId, temp, "ServerRoom1"});
+        }
+        if (NATS.equals(path)) {
+            TemperatureAlertApp.createLoopbackRuntime(siddhiManager).start();
+            LoopbackNatsBroker.subscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+            return (deviceId, temp) -> LoopbackNatsBroker.publish(TemperatureAlertApp.INPUT_DESTINATION,
+                    "{\"event\":{\"type\":\"monitored\",\"deviceID\":\"" + deviceId + "\",\"temp\":" + temp +
+                            ",\"roomID\":\"ServerRoom1\"}}");
+        }
+        throw new IllegalArgumentException("Unknown ingestion path '" + path + "', expected " + INPUT_HANDLER +
+                " or " + NATS + ".");
+    }
+
+    /**
+     * Returns an executor running each task on a virtual thread of its own, or a pool of platform threads on JVMs
+     * without virtual threads.
+     */
+    static ExecutorService newDeviceExecutor(int cores) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            logger.warn("Virtual threads are not available on this JVM, devices share " + cores * 16 +
+                    " platform threads.");
+            return Executors.newFixedThreadPool(cores * 16);
+        }
+    }
+
+    private static String runChild(String path, int cores, int devices, int cycles, Path reportDirectory)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-XX:ActiveProcessorCount=" + cores,
+                "-Djdk.virtualThreadScheduler.parallelism=" + cores,
+                "-Dcontention.threshold=" + System.getProperty("contention.threshold", "1 ms"),
+                "-Xmx4g",
+                "-cp", System.getProperty("java.class.path"),
+                ContentionHarness.class.getName(), CHILD, path, Integer.toString(devices), Integer.toString(cycles),
+                reportDirectory.toAbsolutePath().toString()));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = line.substring(RESULT_PREFIX.length());
+                } else {
+                    logger.info("[" + path + "/" + cores + " cores] " + line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || result == null) {
+            throw new IllegalStateException("The run of " + path + " on " + cores + " cores failed with exit code " +
+                    exitCode + ".");
+        }
+        return result;
+    }
+
+    private static int[] defaultCoreCounts() {
+        int available = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int cores = 1; cores < available; cores *= 2) {
+            counts.add(cores);
+        }
+        counts.add(available);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] parse(String values) {
+        String[] parts = values.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * Readings of one run.
+     */
+    public static class Result {
+        private final String path;
+        private final int cores;
+        private final int devices;
+        private final long events;
+        private final long elapsedNanos;
+        private final long alerts;
+        private final long expectedAlerts;
+        private final boolean virtualThreads;
+        private final LockContention contention;
+
+        Result(String path, int cores, int devices, long events, long elapsedNanos, long alerts, long expectedAlerts,
+               boolean virtualThreads, LockContention contention) {
+            this.path = path;
+            this.cores = cores;
+            this.devices = devices;
+            this.events = events;
+            this.elapsedNanos = elapsedNanos;
+            this.alerts = alerts;
+            this.expectedAlerts = expectedAlerts;
+            this.virtualThreads = virtualThreads;
+            this.contention = contention;
+        }
+
+        public double getEventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+
+        public long getAlerts() {
+            return alerts;
+        }
+
+        public long getExpectedAlerts() {
+            return expectedAlerts;
+        }
+
+        public LockContention getContention() {
+            return contention;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.0f,%d,%d,%b,%s", path, cores, devices, events,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getEventsPerSecond(), alerts, expectedAlerts,
+                    virtualThreads, contention.toCsv());
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "path=%s, cores=%d, devices=%d%s, throughput=%.0f events/s, " +
+                            "alerts=%d/%d, %s", path, cores, devices, virtualThreads ? " on virtual threads" : "",
+                    getEventsPerSecond(), alerts, expectedAlerts, contention);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Device-cardinality scaling benchmark of the temperature-increase-pattern partition.
+ * Description: For each device count, sends rise-peak-fall cycles of every device to MonitoredDevicesTempStream of
+ *              a sandbox Temp-Alert-App and reports the throughput, the heap retained per partition and the GC time.
+ *              The pattern has no 'within' clause, so the partial matches of each device stay in the heap and the
+ *              retained heap grows with the number of devices.
+ *              Heap is measured with the runtime still running, after full collections, relative to the heap
+ *              before the runtime received any event. The deviceID strings are created before that baseline.
+ *              This is not a JMH benchmark since retained heap is not a per-operation metric.
+ * Run: java -Xmx8g -cp siddhi-test-suite-benchmark/target/benchmarks.jar
+ *      siddhi.test.suite.benchmark.DeviceCardinalityScaling [device counts, default 10,...,1000000] [cycles]
+ *      A CSV report is written to target/device-cardinality-scaling.csv
+ */
+public class DeviceCardinalityScaling {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceCardinalityScaling.class);
+
+    static final int[] DEFAULT_DEVICE_COUNTS = {10, 100, 1000, 10000, 100000, 1000000};
+    static final int DEFAULT_CYCLES = 3;
+
+    public static void main(String[] args) throws Exception {
+        int[] deviceCounts = DEFAULT_DEVICE_COUNTS;
+        if (args.length > 0) {
+            String[] values = args[0].split(",");
+            deviceCounts = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                deviceCounts[i] = Integer.parseInt(values[i].trim());
+            }
+        }
+        int cycles = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CYCLES;
+
+        List<Result> results = new ArrayList<>();
+        for (int devices : deviceCounts) {
+            Result result = measure(devices, cycles);
+            logger.info(result.toString());
+            results.add(result);
+        }
+        Path report = Paths.get("target", "device-cardinality-scaling.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Result.CSV_HEADER);
+            for (Result result : results) {
+                writer.println(result.toCsv());
+            }
+        }
+        logger.info("Device cardinality report written to " + report.toAbsolutePath());
+    }
+
+    /**
+     * Sends the given number of rise-peak-fall cycles for each device and measures the partition cost.
+     */
+    public static Result measure(int devices, int cycles) throws IOException, InterruptedException {
+        String[] deviceIds = new String[devices];
+        double[][] cycleTemps = new double[4][devices];
+        for (int device = 0; device < devices; device++) {
+            deviceIds[device] = "D" + device;
+            double[] cycle = TemperatureAlertAppQueryBenchmark.peakCycle(device);
+            for (int step = 0; step < 4; step++) {
+                cycleTemps[step][device] = cycle[step];
+            }
+        }
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            AtomicLong peakCount = new AtomicLong();
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.PEAK_TEMP_STREAM, new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    peakCount.addAndGet(events.length);
+                }
+            });
+            InputHandler monitoredDevicesTempStream = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM);
+            siddhiAppRuntime.start();
+
+            long heapBefore = JvmMemory.usedHeapAfterGc();
+            long gcTimeBefore = JvmMemory.gcTimeMillis();
+            long gcCountBefore = JvmMemory.gcCount();
+            long start = System.nanoTime();
+            long events = 0;
+            for (int cycle = 0; cycle < cycles; cycle++) {
+                for (int step = 0; step < 4; step++) {
+                    for (int device = 0; device < devices; device++) {
+                        double temp = cycleTemps[step][device] + cycle;
+                        monitoredDevicesTempStream.send(new Object[]{deviceIds[device], temp, "ServerRoom"});
+                        events++;
+                    }
+                }
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            long gcTime = JvmMemory.gcTimeMillis() - gcTimeBefore;
+            long gcCount = JvmMemory.gcCount() - gcCountBefore;
+            long retainedHeap = JvmMemory.usedHeapAfterGc() - heapBefore;
+            return new Result(devices, events, peakCount.get(), elapsedNanos, retainedHeap, gcTime, gcCount);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Measurements at one device count.
+     */
+    public static class Result {
+        static final String CSV_HEADER = "devices,events,peaks,eventsPerSecond,retainedHeapBytes," +
+                "bytesPerDevice,gcTimeMillis,gcCount";
+
+        private final int devices;
+        private final long events;
+        private final long peaks;
+        private final long elapsedNanos;
+        private final long retainedHeap;
+        private final long gcTimeMillis;
+        private final long gcCount;
+
+        Result(int devices, long events, long peaks, long elapsedNanos, long retainedHeap, long gcTimeMillis,
+               long gcCount) {
+            this.devices = devices;
+            this.events = events;
+            this.peaks = peaks;
+            this.elapsedNanos = elapsedNanos;
+            this.retainedHeap = retainedHeap;
+            this.gcTimeMillis = gcTimeMillis;
+            this.gcCount = gcCount;
+        }
+
+        public int getDevices() {
+            return devices;
+        }
+
+        public long getPeaks() {
+            return peaks;
+        }
+
+        public double getEventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+
+        public long getBytesPerDevice() {
+            return Math.max(0, retainedHeap) / devices;
+        }
+
+        public long getGcTimeMillis() {
+            return gcTimeMillis;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%d,%.0f,%d,%d,%d,%d", devices, events, peaks,
+                    getEventsPerSecond(), retainedHeap, getBytesPerDevice(), gcTimeMillis, gcCount);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "devices=%d, events=%d, peaks=%d, throughput=%.0f events/s, " +
+                            "retained heap=%d bytes (%d bytes/device), gc time=%d ms (%d collections)",
+                    devices, events, peaks, getEventsPerSecond(), retainedHeap, getBytesPerDevice(), gcTimeMillis,
+                    gcCount);
+        }
+    }
+}
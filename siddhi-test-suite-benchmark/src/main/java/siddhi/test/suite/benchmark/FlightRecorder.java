@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Starts and stops Java Flight Recorder recordings of the running JVM.
+ * Description: Goes through the JFR diagnostic commands of the DiagnosticCommand MBean, the same as jcmd JFR.start
+ *              and JFR.stop, so no jdk.jfr classes are needed and the module keeps compiling for Java 8.
+ *              When the JVM has no flight recorder, recordings are skipped with a warning.
+ */
+public final class FlightRecorder {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorder.class);
+
+    private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+    private static final String[] SIGNATURE = {String[].class.getName()};
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * Starts a recording with the 'profile' settings, which samples CPU stacks and allocations.
+     * Returns false when the recording could not be started.
+     */
+    public static boolean start(String name) {
+        return execute("jfrStart", "name=" + name, "settings=profile");
+    }
+
+    /**
+     * Starts a recording with the given .jfc settings file, such as one recording only lock contention events.
+     * Returns false when the recording could not be started.
+     */
+    public static boolean start(String name, Path settings) {
+        return execute("jfrStart", "name=" + name, "settings=" + settings.toAbsolutePath());
+    }
+
+    /**
+     * Stops the recording and writes it to the given file.
+     */
+    public static boolean stop(String name, Path recording) {
+        return execute("jfrStop", "name=" + name, "filename=" + recording.toAbsolutePath());
+    }
+
+    private static boolean execute(String command, String... arguments) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            mBeanServer.invoke(new ObjectName(DIAGNOSTIC_COMMAND), command, new Object[]{arguments}, SIGNATURE);
+            return true;
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Flight recorder command " + command + " failed, continuing without a recording. " +
+                    e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Records the duration of each garbage collection from the collector notifications of the JVM.
+ * Collections requested with System.gc(), such as those of {@link JvmMemory#usedHeapAfterGc()}, are left out so that
+ * the readings are those of the load alone. Durations of collectors running concurrently with the application, such
+ * as CMS, include their concurrent phases.
+ */
+public final class GcPauseMonitor implements NotificationListener, AutoCloseable {
+
+    private static final String SYSTEM_GC_CAUSE = "System.gc()";
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private long pauseCount;
+    private long totalPauseMillis;
+    private long maxPauseMillis;
+
+    public GcPauseMonitor() {
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gcBean;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (SYSTEM_GC_CAUSE.equals(info.getGcCause())) {
+            return;
+        }
+        long duration = info.getGcInfo().getDuration();
+        synchronized (this) {
+            pauseCount++;
+            totalPauseMillis += duration;
+            maxPauseMillis = Math.max(maxPauseMillis, duration);
+        }
+    }
+
+    /**
+     * Returns the collections recorded since the previous call and starts a new interval.
+     */
+    public synchronized Pauses drain() {
+        Pauses pauses = new Pauses(pauseCount, totalPauseMillis, maxPauseMillis);
+        pauseCount = 0;
+        totalPauseMillis = 0;
+        maxPauseMillis = 0;
+        return pauses;
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                //Already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    /**
+     * Collections of one interval.
+     */
+    public static class Pauses {
+        private final long count;
+        private final long totalMillis;
+        private final long maxMillis;
+
+        Pauses(long count, long totalMillis, long maxMillis) {
+            this.count = count;
+            this.totalMillis = totalMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
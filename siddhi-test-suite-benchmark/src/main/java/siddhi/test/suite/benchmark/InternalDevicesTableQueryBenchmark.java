@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of lookups by deviceID on the RDBMS backed InternalDevicesTempTable.
+ * Description: Loads the given number of rows, one per deviceID, into an embedded H2 database in place of the
+ *              TemperatureDB MySQL datasource, and looks up the rows the dashboards query: a point lookup of one
+ *              random deviceID, and a range query over RANGE_ROWS consecutive deviceIDs. SiddhiAppRuntime.query
+ *              compiles every new query text, which would dominate the latency, so the lookups are stream joins on
+ *              the table, compiled once with the app and sent only the deviceIDs to look up. The table is compared as
+ *              deployed, with @Index('deviceID') and with @PrimaryKey('deviceID'), each with and without an in-memory
+ *              @Cache of cacheSize rows in front of the store.
+ *              The table is created by a first runtime of the app, so the store creates its keys and indexes, the
+ *              rows are then written through JDBC batches, and the measured runtime is started on the loaded table
+ *              so its cache is preloaded as on a restart.
+ * Run: java -jar siddhi-test-suite-benchmark/target/benchmarks.jar InternalDevicesTableQueryBenchmark
+ *      -p rows=10000,100000 -p layout=index -p cachePolicy=none,FIFO,LRU,LFU
+ *      10M rows need about 6 GB of heap, add -p rows=10000000 -jvmArgsAppend -Xmx8g
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class InternalDevicesTableQueryBenchmark {
+
+    static final int RANGE_ROWS = 100;
+    static final String NO_CACHE = "none";
+    static final String DEVICE_LOOKUP_STREAM = "DeviceLookupStream";
+    static final String DEVICE_RANGE_STREAM = "DeviceRangeStream";
+    static final String DEVICE_LOOKUP_RESULT_STREAM = "DeviceLookupResultStream";
+    static final String DEVICE_RANGE_RESULT_STREAM = "DeviceRangeResultStream";
+
+    private static final String LOOKUP_QUERIES = "\n" +
+            "define stream DeviceLookupStream (deviceID string);\n" +
+            "define stream DeviceRangeStream (fromDeviceID string, toDeviceID string);\n" +
+            "from DeviceLookupStream as l join InternalDevicesTempTable as t on t.deviceID == l.deviceID\n" +
+            "select t.deviceID, t.temp\n" +
+            "insert into DeviceLookupResultStream;\n" +
+            "from DeviceRangeStream as r join InternalDevicesTempTable as t\n" +
+            "    on t.deviceID >= r.fromDeviceID and t.deviceID < r.toDeviceID\n" +
+            "select t.deviceID, t.temp\n" +
+            "insert into DeviceRangeResultStream;\n";
+
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"none", "index", "primaryKey"})
+    public String layout;
+
+    @Param({"none", "LRU"})
+    public String cachePolicy;
+
+    @Param({"100000"})
+    public int cacheSize;
+
+    private SiddhiManager siddhiManager;
+    private SiddhiAppRuntime siddhiAppRuntime;
+    private String jdbcUrl;
+    private InputHandler lookupInputHandler;
+    private InputHandler rangeInputHandler;
+    private Event[] result;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        jdbcUrl = InternalDevicesTableWriteBenchmark.embeddedJdbcUrl("query");
+        createTable(jdbcUrl, layout);
+        loadRows(jdbcUrl, rows);
+        siddhiManager = new SiddhiManager();
+        siddhiAppRuntime = createQueryRuntime(siddhiManager, jdbcUrl, layout,
+                NO_CACHE.equals(cachePolicy) ? 0 : cacheSize, cachePolicy);
+        StreamCallback resultCallback = new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                result = events;
+            }
+        };
+        siddhiAppRuntime.addCallback(DEVICE_LOOKUP_RESULT_STREAM, resultCallback);
+        siddhiAppRuntime.addCallback(DEVICE_RANGE_RESULT_STREAM, resultCallback);
+        lookupInputHandler = siddhiAppRuntime.getInputHandler(DEVICE_LOOKUP_STREAM);
+        rangeInputHandler = siddhiAppRuntime.getInputHandler(DEVICE_RANGE_STREAM);
+        siddhiAppRuntime.start();
+        int device = rows / 2;
+        Event[] lookup = pointLookup(device);
+        Event[] range = rangeQuery(Math.min(device, rows - RANGE_ROWS));
+        if (lookup == null || lookup.length != 1 || !deviceId(device).equals(lookup[0].getData(0)) ||
+                range == null || range.length != Math.min(RANGE_ROWS, rows)) {
+            throw new IllegalStateException("On-demand queries returned wrong rows, the measured numbers are not " +
+                    "valid.");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        siddhiManager.shutdown();
+        InternalDevicesTableWriteBenchmark.dropDatabase(jdbcUrl);
+    }
+
+    @Benchmark
+    public Event[] pointLookup() throws InterruptedException {
+        return pointLookup(random.nextInt(rows));
+    }
+
+    @Benchmark
+    public Event[] rangeQuery() throws InterruptedException {
+        return rangeQuery(random.nextInt(Math.max(1, rows - RANGE_ROWS)));
+    }
+
+    /**
+     * Looks up the row of a deviceID through the join, which runs on the sending thread.
+     */
+    private Event[] pointLookup(int row) throws InterruptedException {
+        result = null;
+        lookupInputHandler.send(new Object[]{deviceId(row)});
+        return result;
+    }
+
+    private Event[] rangeQuery(int firstRow) throws InterruptedException {
+        result = null;
+        rangeInputHandler.send(new Object[]{deviceId(firstRow), deviceId(firstRow + RANGE_ROWS)});
+        return result;
+    }
+
+    /**
+     * Table annotation of a layout: none, index or primaryKey.
+     */
+    static String layoutAnnotation(String layout) {
+        switch (layout) {
+            case "none":
+                return "";
+            case "index":
+                return "@Index('deviceID')";
+            case "primaryKey":
+                return "@PrimaryKey('deviceID')";
+            default:
+                throw new IllegalArgumentException("Unknown table layout '" + layout + "'.");
+        }
+    }
+
+    /**
+     * Creates a runtime of the app without its NATS source and sink, with InternalDevicesTempTable in the embedded
+     * database at the given JDBC url, in the given layout and behind a cache of cacheSize rows, none if 0.
+     * The lookups of the benchmark are added as joins of {@link #DEVICE_LOOKUP_STREAM} and
+     * {@link #DEVICE_RANGE_STREAM} with the table.
+     */
+    static SiddhiAppRuntime createQueryRuntime(SiddhiManager siddhiManager, String jdbcUrl, String layout,
+                                               int cacheSize, String cachePolicy) throws IOException {
+        TemperatureAlertApp.setBlankEnvironment();
+        String siddhiApp = TemperatureAlertApp.withoutTransports(TemperatureAlertApp.withoutLogSinks(
+                TemperatureAlertApp.load()));
+        siddhiApp = TemperatureAlertApp.withEmbeddedStore(siddhiApp, jdbcUrl, cacheSize, cachePolicy);
+        return siddhiManager.createSiddhiAppRuntime(TemperatureAlertApp.withInternalTableAnnotation(siddhiApp,
+                layoutAnnotation(layout)) + LOOKUP_QUERIES);
+    }
+
+    /**
+     * Creates InternalDevicesTempTable in the given layout, by starting and stopping a runtime of the app.
+     */
+    static void createTable(String jdbcUrl, String layout) throws IOException {
+        SiddhiManager tableManager = new SiddhiManager();
+        try {
+            createQueryRuntime(tableManager, jdbcUrl, layout, 0, null).start();
+        } finally {
+            tableManager.shutdown();
+        }
+    }
+
+    /**
+     * Writes one row per deviceID, from {@link #deviceId}(0) up, in JDBC batches.
+     */
+    static void loadRows(String jdbcUrl, int rows) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl,
+                TemperatureAlertApp.EMBEDDED_STORE_USERNAME, TemperatureAlertApp.EMBEDDED_STORE_PASSWORD);
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO " +
+                     TemperatureAlertApp.INTERNAL_DEVICES_TEMP_TABLE + " (currentTime, deviceID, temp) " +
+                     "VALUES (?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int row = 0; row < rows; row++) {
+                statement.setString(1, "t" + row);
+                statement.setString(2, deviceId(row));
+                statement.setDouble(3, 20.0 + row % 60);
+                statement.addBatch();
+                if ((row + 1) % LOAD_BATCH_SIZE == 0 || row == rows - 1) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * DeviceID of a row, zero padded so that the ids sort in row order.
+     */
+    static String deviceId(int row) {
+        return String.format(Locale.ROOT, "D%08d", row);
+    }
+
+    static Event[] lookupDevice(SiddhiAppRuntime siddhiAppRuntime, int row) {
+        return siddhiAppRuntime.query("from " + TemperatureAlertApp.INTERNAL_DEVICES_TEMP_TABLE + " on deviceID == '" +
+                deviceId(row) + "' select deviceID, temp");
+    }
+
+    static Event[] queryDeviceRange(SiddhiAppRuntime siddhiAppRuntime, int firstRow) {
+        return siddhiAppRuntime.query("from " + TemperatureAlertApp.INTERNAL_DEVICES_TEMP_TABLE + " on deviceID >= '" +
+                deviceId(firstRow) + "' and deviceID < '" + deviceId(firstRow + RANGE_ROWS) + "' " +
+                "select deviceID, temp");
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.stream.input.InputHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write throughput of the internal-filter query into the RDBMS backed InternalDevicesTempTable.
+ * Description: Runs Temp-Alert-App against an embedded H2 database in place of the TemperatureDB MySQL datasource,
+ *              sending internal device events with and without batch:chunk in front of the table insert.
+ *              A batchSize of 0 is the app as deployed, one JDBC insert and commit per event.
+ *              Every iteration starts on an empty database and verifies all sent events were written as rows.
+ * Run: java -jar siddhi-test-suite-benchmark/target/benchmarks.jar InternalDevicesTableWriteBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class InternalDevicesTableWriteBenchmark {
+
+    private static final int DEVICES = 1024;
+    private static final long ROW_WAIT_MILLIS = 30000;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @Param({"0", "10", "100", "1000"})
+    public int batchSize;
+
+    @Param({"100"})
+    public long flushIntervalMillis;
+
+    private SiddhiManager siddhiManager;
+    private InputHandler deviceTemperatureStream;
+    private String jdbcUrl;
+    private long sent;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        jdbcUrl = embeddedJdbcUrl("bench");
+        siddhiManager = new SiddhiManager();
+        SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createEmbeddedStoreRuntime(siddhiManager, jdbcUrl,
+                batchSize, flushIntervalMillis);
+        deviceTemperatureStream = siddhiAppRuntime.getInputHandler(TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM);
+        siddhiAppRuntime.start();
+        sent = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws SQLException, InterruptedException {
+        try {
+            long rows = awaitRows(jdbcUrl, sent, ROW_WAIT_MILLIS);
+            if (rows != sent) {
+                throw new IllegalStateException("Only " + rows + " of " + sent + " events were written to " +
+                        TemperatureAlertApp.INTERNAL_DEVICES_TEMP_TABLE + ", the measured numbers are not valid.");
+            }
+        } finally {
+            siddhiManager.shutdown();
+            dropDatabase(jdbcUrl);
+        }
+    }
+
+    @Benchmark
+    public void sendInternalEvent() throws InterruptedException {
+        int device = (int) (sent % DEVICES);
+        deviceTemperatureStream.send(new Object[]{"internal", "Generator" + device, 20.0 + device % 50,
+                "Basement"});
+        sent++;
+    }
+
+    /**
+     * Returns the url of a new in-memory H2 database, kept open until {@link #dropDatabase} is called.
+     */
+    static String embeddedJdbcUrl(String prefix) {
+        return "jdbc:h2:mem:" + prefix + "-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Waits until the table holds the expected number of rows, and returns the last count.
+     */
+    static long awaitRows(String jdbcUrl, long expected, long timeoutMillis)
+            throws SQLException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long rows = countRows(jdbcUrl);
+        while (rows < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            rows = countRows(jdbcUrl);
+        }
+        return rows;
+    }
+
+    static long countRows(String jdbcUrl) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl,
+                TemperatureAlertApp.EMBEDDED_STORE_USERNAME, TemperatureAlertApp.EMBEDDED_STORE_PASSWORD);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " +
+                     TemperatureAlertApp.INTERNAL_DEVICES_TEMP_TABLE)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    static void dropDatabase(String jdbcUrl) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl,
+                TemperatureAlertApp.EMBEDDED_STORE_USERNAME, TemperatureAlertApp.EMBEDDED_STORE_PASSWORD);
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import siddhi.test.suite.extension.map.DeviceTemperatureJsonSourceMapper;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+import siddhi.test.suite.extension.nats.LoopbackNatsSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the DeviceTemperatureStream source mappers: siddhi-map-json against deviceTemperatureJson.
+ * Description: Publishes pre-built messages over LoopbackNatsBroker to an app holding only the NATS source of
+ *              DeviceTemperatureStream, so the numbers are those of the mapper and the stream junction.
+ *              Messages carry one event, or a JSON array of eventsPerMessage events. The deviceTemperatureJson-bytes
+ *              variant publishes the UTF-8 bytes of the messages, as the NATS source receives them, instead of
+ *              Strings. Every variant maps the messages of a batch publish one at a time, with json.batch off, so
+ *              only eventsPerMessage decides how many events a mapper call sees. Run with -prof gc to compare the
+ *              allocation per event.
+ * Run: java -jar siddhi-test-suite-benchmark/target/benchmarks.jar JsonSourceMapperBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class JsonSourceMapperBenchmark {
+
+    private static final int EVENTS_PER_INVOCATION = 256;
+    private static final String DEVICE_TEMPERATURE_JSON_BYTES = "deviceTemperatureJson-bytes";
+
+    @Param({"json", "deviceTemperatureJson", DEVICE_TEMPERATURE_JSON_BYTES})
+    public String mapper;
+
+    @Param({"1", "16"})
+    public int eventsPerMessage;
+
+    private SiddhiManager siddhiManager;
+    private Object[] messages;
+    private int next;
+    private long eventCount;
+
+    @Setup(Level.Trial)
+    public void createMessages() {
+        int devices = TemperatureAlertAppQueryBenchmark.DEVICES;
+        int events = devices * 4;
+        messages = new Object[events / eventsPerMessage];
+        for (int message = 0; message < messages.length; message++) {
+            StringBuilder builder = new StringBuilder(eventsPerMessage > 1 ? "[" : "");
+            for (int i = 0; i < eventsPerMessage; i++) {
+                int event = message * eventsPerMessage + i;
+                int device = event % devices;
+                builder.append(i > 0 ? "," : "").append("{\"event\":{\"type\":\"monitored\",\"deviceID\":\"M")
+                        .append(device).append("\",\"temp\":")
+                        .append(TemperatureAlertAppQueryBenchmark.peakCycle(device)[event / devices])
+                        .append(",\"roomID\":\"ServerRoom").append(device % 8).append("\"}}");
+            }
+            String json = builder.append(eventsPerMessage > 1 ? "]" : "").toString();
+            messages[message] = DEVICE_TEMPERATURE_JSON_BYTES.equals(mapper) ?
+                    json.getBytes(StandardCharsets.UTF_8) : json;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+        siddhiManager.setExtension("sourceMapper:deviceTemperatureJson", DeviceTemperatureJsonSourceMapper.class);
+        String mapperType = DEVICE_TEMPERATURE_JSON_BYTES.equals(mapper) ? "deviceTemperatureJson" : mapper;
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime("" +
+                "@source(type='nats', destination='" + TemperatureAlertApp.INPUT_DESTINATION + "', " +
+                "json.batch='false', @map(type='" + mapperType + "'))\n" +
+                "define stream DeviceTemperatureStream (type string, deviceID string, temp double, roomID string);");
+        siddhiAppRuntime.addCallback(TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM, new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                eventCount += events.length;
+            }
+        });
+        siddhiAppRuntime.start();
+        next = 0;
+        eventCount = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        siddhiManager.shutdown();
+        if (eventCount == 0) {
+            throw new IllegalStateException("No events were mapped, the measured numbers are not valid.");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public void publishBatch() {
+        int batch = EVENTS_PER_INVOCATION / eventsPerMessage;
+        LoopbackNatsBroker.publish(TemperatureAlertApp.INPUT_DESTINATION, messages, next, batch);
+        next += batch;
+        if (next == messages.length) {
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Heap, garbage collection and thread allocation readings of the running JVM.
+ */
+public final class JvmMemory {
+
+    private static final int MAX_GC_ATTEMPTS = 10;
+
+    private JvmMemory() {
+    }
+
+    /**
+     * Returns the used heap once repeated full collections no longer free memory.
+     */
+    public static long usedHeapAfterGc() throws InterruptedException {
+        long previous = Long.MAX_VALUE;
+        long used = usedHeap();
+        for (int attempt = 0; attempt < MAX_GC_ATTEMPTS && used < previous - (previous >> 7); attempt++) {
+            previous = used;
+            System.gc();
+            Thread.sleep(50);
+            used = usedHeap();
+        }
+        return used;
+    }
+
+    public static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Accumulated collection time of all collectors in milliseconds.
+     */
+    public static long gcTimeMillis() {
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcTime += Math.max(0, gcBean.getCollectionTime());
+        }
+        return gcTime;
+    }
+
+    /**
+     * Accumulated collection count of all collectors.
+     */
+    public static long gcCount() {
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gcBean.getCollectionCount());
+        }
+        return gcCount;
+    }
+
+    /**
+     * Bytes allocated by the current thread since it started.
+     */
+    public static long threadAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * CPU time used by the current thread since it started, in nanoseconds.
+     */
+    public static long threadCpuTimeNanos() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+}
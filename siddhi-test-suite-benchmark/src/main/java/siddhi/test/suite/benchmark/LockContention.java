@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lock contention read from a flight recording of monitor enter and thread park events.
+ * Description: {@link #writeSettings} writes .jfc settings recording only jdk.JavaMonitorEnter, threads blocked
+ *              entering a synchronized monitor, and jdk.ThreadPark, threads parked on java.util.concurrent locks,
+ *              longer than the threshold. {@link #read} sums their count and duration and ranks the contended
+ *              classes. The recording is read through jdk.jfr.consumer by reflection, so the module keeps compiling
+ *              for Java 8; on a JVM without it the contention is reported as unavailable.
+ */
+public class LockContention {
+    private static final Logger logger = LoggerFactory.getLogger(LockContention.class);
+
+    static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    static final String THREAD_PARK = "jdk.ThreadPark";
+
+    private static final int TOP_CLASSES = 3;
+
+    private final boolean available;
+    private final long monitorEnterEvents;
+    private final Duration monitorEnterTime;
+    private final long parkEvents;
+    private final Duration parkTime;
+    private final String topContendedClasses;
+
+    LockContention(boolean available, long monitorEnterEvents, Duration monitorEnterTime, long parkEvents,
+                   Duration parkTime, String topContendedClasses) {
+        this.available = available;
+        this.monitorEnterEvents = monitorEnterEvents;
+        this.monitorEnterTime = monitorEnterTime;
+        this.parkEvents = parkEvents;
+        this.parkTime = parkTime;
+        this.topContendedClasses = topContendedClasses;
+    }
+
+    static LockContention unavailable() {
+        return new LockContention(false, 0, Duration.ZERO, 0, Duration.ZERO, "");
+    }
+
+    /**
+     * Writes flight recorder settings enabling only the contention events, with stack traces, above the threshold,
+     * such as "1 ms".
+     */
+    static void writeSettings(Path settings, String threshold) throws IOException {
+        StringBuilder jfc = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<configuration version=\"2.0\" label=\"Lock contention\">\n");
+        for (String event : new String[]{MONITOR_ENTER, THREAD_PARK}) {
+            jfc.append("  <event name=\"").append(event).append("\">\n")
+                    .append("    <setting name=\"enabled\">true</setting>\n")
+                    .append("    <setting name=\"stackTrace\">true</setting>\n")
+                    .append("    <setting name=\"threshold\">").append(threshold).append("</setting>\n")
+                    .append("  </event>\n");
+        }
+        jfc.append("</configuration>\n");
+        Files.write(settings, jfc.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sums the contention events of the recording.
+     */
+    static LockContention read(Path recording) {
+        try {
+            Class<?> recordingFile = Class.forName("jdk.jfr.consumer.RecordingFile");
+            Class<?> recordedEvent = Class.forName("jdk.jfr.consumer.RecordedEvent");
+            Class<?> recordedObject = Class.forName("jdk.jfr.consumer.RecordedObject");
+            Class<?> recordedClass = Class.forName("jdk.jfr.consumer.RecordedClass");
+            Method getEventType = recordedEvent.getMethod("getEventType");
+            Method getDuration = recordedEvent.getMethod("getDuration");
+            Method getValue = recordedObject.getMethod("getValue", String.class);
+            Method getClassName = recordedClass.getMethod("getName");
+            Method getTypeName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+
+            long monitorEnterEvents = 0;
+            long parkEvents = 0;
+            Duration monitorEnterTime = Duration.ZERO;
+            Duration parkTime = Duration.ZERO;
+            Map<String, Duration> timeByClass = new HashMap<>();
+            for (Object event : (List<?>) recordingFile.getMethod("readAllEvents", Path.class)
+                    .invoke(null, recording)) {
+                String type = (String) getTypeName.invoke(getEventType.invoke(event));
+                Duration duration = (Duration) getDuration.invoke(event);
+                Object contendedClass;
+                if (MONITOR_ENTER.equals(type)) {
+                    monitorEnterEvents++;
+                    monitorEnterTime = monitorEnterTime.plus(duration);
+                    contendedClass = getValue.invoke(event, "monitorClass");
+                } else if (THREAD_PARK.equals(type)) {
+                    parkEvents++;
+                    parkTime = parkTime.plus(duration);
+                    contendedClass = getValue.invoke(event, "parkedClass");
+                } else {
+                    continue;
+                }
+                String className = contendedClass == null ? "unknown" :
+                        (String) getClassName.invoke(contendedClass);
+                timeByClass.merge(className, duration, Duration::plus);
+            }
+            return new LockContention(true, monitorEnterEvents, monitorEnterTime, parkEvents, parkTime,
+                    topClasses(timeByClass));
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            logger.warn("Flight recordings cannot be read on this JVM, lock contention is not reported.");
+        } catch (InvocationTargetException e) {
+            logger.warn("Failed to read the flight recording " + recording.toAbsolutePath() + ", lock contention " +
+                    "is not reported. " + e.getCause());
+        }
+        return unavailable();
+    }
+
+    private static String topClasses(Map<String, Duration> timeByClass) {
+        List<Map.Entry<String, Duration>> entries = new ArrayList<>(timeByClass.entrySet());
+        entries.sort((first, second) -> second.getValue().compareTo(first.getValue()));
+        StringBuilder top = new StringBuilder();
+        for (int i = 0; i < Math.min(TOP_CLASSES, entries.size()); i++) {
+            top.append(i == 0 ? "" : ";").append(entries.get(i).getKey()).append(' ')
+                    .append(entries.get(i).getValue().toMillis()).append("ms");
+        }
+        return top.toString();
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getMonitorEnterEvents() {
+        return monitorEnterEvents;
+    }
+
+    public long getParkEvents() {
+        return parkEvents;
+    }
+
+    public String getTopContendedClasses() {
+        return topContendedClasses;
+    }
+
+    String toCsv() {
+        return String.format(Locale.ROOT, "%b,%d,%d,%d,%d,%s", available, monitorEnterEvents,
+                monitorEnterTime.toMillis(), parkEvents, parkTime.toMillis(), topContendedClasses);
+    }
+
+    @Override
+    public String toString() {
+        if (!available) {
+            return "lock contention not available";
+        }
+        return String.format(Locale.ROOT, "monitor enter=%d events/%d ms, park=%d events/%d ms, top=[%s]",
+                monitorEnterEvents, monitorEnterTime.toMillis(), parkEvents, parkTime.toMillis(),
+                topContendedClasses);
+    }
+}
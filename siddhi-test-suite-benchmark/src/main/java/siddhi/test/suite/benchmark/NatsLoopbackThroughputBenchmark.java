@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of Temp-Alert-App through its NATS source, JSON mappers and NATS sink, over LoopbackNatsBroker.
+ * Description: Publishes pre-built JSON messages of monitored devices going through rise-peak-fall cycles in
+ *              batches to the input destination, and counts the JSON alerts delivered to the output destination.
+ *              The source maps the messages of a batch one at a time, as a NATS subscription delivers them.
+ *              No NATS server or Docker is involved, so the numbers are those of the Siddhi runtime and mappers.
+ * Run: java -jar siddhi-test-suite-benchmark/target/benchmarks.jar NatsLoopbackThroughputBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class NatsLoopbackThroughputBenchmark {
+
+    private static final int BATCH_SIZE = 256;
+
+    private SiddhiManager siddhiManager;
+    private Object[] messages;
+    private int next;
+    private long alertCount;
+    private final LoopbackNatsBroker.Subscriber alertSubscriber = payload -> alertCount++;
+
+    @Setup(Level.Trial)
+    public void createMessages() {
+        int devices = TemperatureAlertAppQueryBenchmark.DEVICES;
+        messages = new Object[devices * 4];
+        for (int step = 0; step < 4; step++) {
+            for (int device = 0; device < devices; device++) {
+                messages[step * devices + device] = "{\"event\":{\"type\":\"monitored\",\"deviceID\":\"M" + device +
+                        "\",\"temp\":" + TemperatureAlertAppQueryBenchmark.peakCycle(device)[step] +
+                        ",\"roomID\":\"ServerRoom" + (device % 8) + "\"}}";
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        siddhiManager = new SiddhiManager();
+        TemperatureAlertApp.createLoopbackRuntime(siddhiManager).start();
+        LoopbackNatsBroker.subscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+        next = 0;
+        alertCount = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        LoopbackNatsBroker.unsubscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+        siddhiManager.shutdown();
+        if (alertCount == 0) {
+            throw new IllegalStateException("No alerts were published, the measured numbers are not valid.");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void publishBatch() {
+        LoopbackNatsBroker.publish(TemperatureAlertApp.INPUT_DESTINATION, messages, next, BATCH_SIZE);
+        next += BATCH_SIZE;
+        if (next == messages.length) {
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.event.state.StateEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the live partitions of the app and the partial pattern matches held by each of them.
+ * Description: Siddhi does not expose its pattern states, so they are read from a full snapshot of the runtime, which
+ *              holds the state of every element by partition id and then by partition key. The partition with the most
+ *              keys is taken as the deviceID partition, and the StateEvents found in the maps, collections and arrays
+ *              under each key, such as the pending and new-and-every lists of the pattern pre-state processors, are
+ *              counted as its live states.
+ */
+public final class PatternStateCensus {
+
+    private final long partitions;
+    private final long liveStates;
+    private final long maxStatesPerPartition;
+    private final int snapshotBytes;
+
+    private PatternStateCensus(long partitions, long liveStates, long maxStatesPerPartition, int snapshotBytes) {
+        this.partitions = partitions;
+        this.liveStates = liveStates;
+        this.maxStatesPerPartition = maxStatesPerPartition;
+        this.snapshotBytes = snapshotBytes;
+    }
+
+    /**
+     * Takes a snapshot of the runtime and counts its states. Events sent to the runtime wait while the snapshot is
+     * taken.
+     */
+    public static PatternStateCensus take(SiddhiAppRuntime siddhiAppRuntime) throws IOException {
+        byte[] snapshot = siddhiAppRuntime.snapshot();
+        Object state;
+        try (ObjectInputStream in = new SnapshotInputStream(new ByteArrayInputStream(snapshot))) {
+            state = in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Snapshot of '" + siddhiAppRuntime.getName() + "' could not be read.", e);
+        }
+        Map<?, ?> partition = null;
+        if (state instanceof Map) {
+            for (Object partitionState : ((Map<?, ?>) state).values()) {
+                if (partitionState instanceof Map &&
+                        (partition == null || ((Map<?, ?>) partitionState).size() > partition.size())) {
+                    partition = (Map<?, ?>) partitionState;
+                }
+            }
+        }
+        if (partition == null) {
+            return new PatternStateCensus(0, count(state), 0, snapshot.length);
+        }
+        long liveStates = 0;
+        long maxStatesPerPartition = 0;
+        for (Object keyState : partition.values()) {
+            long states = count(keyState);
+            liveStates += states;
+            maxStatesPerPartition = Math.max(maxStatesPerPartition, states);
+        }
+        return new PatternStateCensus(partition.size(), liveStates, maxStatesPerPartition, snapshot.length);
+    }
+
+    private static long count(Object state) {
+        return count(state, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static long count(Object state, Set<Object> visited) {
+        if (state instanceof StateEvent) {
+            return 1;
+        }
+        if (state == null || !visited.add(state)) {
+            return 0;
+        }
+        long states = 0;
+        if (state instanceof Map) {
+            for (Object value : ((Map<?, ?>) state).values()) {
+                states += count(value, visited);
+            }
+        } else if (state instanceof Collection) {
+            for (Object value : (Collection<?>) state) {
+                states += count(value, visited);
+            }
+        } else if (state instanceof Object[]) {
+            for (Object value : (Object[]) state) {
+                states += count(value, visited);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Partition keys held by the runtime.
+     */
+    public long getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Partial matches held by all partitions.
+     */
+    public long getLiveStates() {
+        return liveStates;
+    }
+
+    public long getMaxStatesPerPartition() {
+        return maxStatesPerPartition;
+    }
+
+    public double getStatesPerPartition() {
+        return partitions == 0 ? 0 : (double) liveStates / partitions;
+    }
+
+    public int getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    /**
+     * Resolves the classes of the snapshot with the class loader of Siddhi, as the benchmarks jar holds them all.
+     */
+    private static class SnapshotInputStream extends ObjectInputStream {
+
+        SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, StateEvent.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import siddhi.test.suite.extension.temperature.PeakDetectorStreamProcessor;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the partitioned temperature-increase-detector pattern of Temp-Alert-App with temperature:peakDetector.
+ * Description: Sends random temperature walks of the given number of devices to MonitoredDevicesTempStream of
+ *              Temp-Alert-App (pattern) and Temp-Alert-App-PeakDetector (peakDetector).
+ * Run: java -jar siddhi-test-suite-benchmark/target/benchmarks.jar PeakDetectorBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class PeakDetectorBenchmark {
+
+    private static final int MIN_EVENTS = 1 << 16;
+
+    @Param({"pattern", "peakDetector"})
+    public String detector;
+
+    @Param({"1000", "100000"})
+    public int devices;
+
+    private SiddhiManager siddhiManager;
+    private InputHandler monitoredDevicesTempStream;
+    private Object[][] events;
+    private int next;
+    private long peakCount;
+
+    @Setup(Level.Trial)
+    public void createEvents() {
+        Random random = new Random(42);
+        double[] temps = new double[devices];
+        for (int device = 0; device < devices; device++) {
+            temps[device] = 40 + random.nextInt(30);
+        }
+        events = new Object[Math.max(MIN_EVENTS, devices * 8)][];
+        for (int i = 0; i < events.length; i++) {
+            int device = random.nextInt(devices);
+            temps[device] = Math.max(0, Math.min(100, temps[device] + random.nextInt(11) - 5));
+            events[i] = new Object[]{"M" + device, temps[device], "ServerRoom" + (device % 8)};
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        siddhiManager = new SiddhiManager();
+        SiddhiAppRuntime siddhiAppRuntime;
+        if ("pattern".equals(detector)) {
+            siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+        } else {
+            siddhiManager.setExtension("temperature:peakDetector", PeakDetectorStreamProcessor.class);
+            siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager,
+                    TemperatureAlertApp.PEAK_DETECTOR_APP_RESOURCE);
+        }
+        siddhiAppRuntime.addCallback(TemperatureAlertApp.PEAK_TEMP_STREAM, new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                peakCount += events.length;
+            }
+        });
+        monitoredDevicesTempStream = siddhiAppRuntime.getInputHandler(
+                TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM);
+        next = 0;
+        peakCount = 0;
+        siddhiAppRuntime.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        siddhiManager.shutdown();
+        if (peakCount == 0) {
+            throw new IllegalStateException("No peaks were detected, the measured numbers are not valid.");
+        }
+    }
+
+    @Benchmark
+    public void detectPeaks() throws InterruptedException {
+        monitoredDevicesTempStream.send(events[next]);
+        if (++next == events.length) {
+            next = 0;
+        }
+    }
+}
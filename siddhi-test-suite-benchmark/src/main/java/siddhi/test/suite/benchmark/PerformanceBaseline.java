@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.stream.input.InputHandler;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regression gate of the throughput, p99 latency and allocation per event of each @info query of Temp-Alert-App
+ * against a versioned baseline file.
+ * Description: Each query is deployed alone in a sandbox runtime, as QueryProfiler does, and the whole app once, and
+ *              fed the events of its TemperatureAlertAppQueryBenchmark state. Every stage is run for a warm-up round
+ *              and then for several measured rounds; the median of each reading over the rounds is compared with the
+ *              baseline. The run fails when the throughput drops, or the p99 latency or allocation per event grows,
+ *              by more than its tolerance. Stages missing from the baseline, as with a baseline that was never
+ *              recorded, are reported and not compared.
+ *              With -Dperf.baseline.record=true the readings are written to the baseline file instead, which is how
+ *              the baseline is refreshed after an accepted change, on the machine the gate runs on.
+ * Run: java -Xmx2g -cp siddhi-test-suite-benchmark/target/benchmarks.jar
+ *      siddhi.test.suite.benchmark.PerformanceBaseline [baseline file] [report directory] [events per round]
+ *      or mvn verify -pl siddhi-test-suite -am, see the perf.baseline.* properties of siddhi-test-suite/pom.xml
+ *      The comparison is written to performance-baseline.csv and the readings to performance.json.
+ */
+public class PerformanceBaseline {
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceBaseline.class);
+
+    static final int DEFAULT_EVENTS = 200000;
+    static final int ROUNDS = 5;
+    static final double DEFAULT_THROUGHPUT_TOLERANCE = 0.15;
+    static final double DEFAULT_P99_LATENCY_TOLERANCE = 0.30;
+    static final double DEFAULT_ALLOCATION_TOLERANCE = 0.10;
+
+    static final String APP_STAGE = "Temp-Alert-App";
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public static void main(String[] args) throws Exception {
+        Path baselineFile = Paths.get(args.length > 0 ? args[0] : "performance-baseline.json");
+        Path reportDirectory = Paths.get(args.length > 1 ? args[1] : "target/performance");
+        int events = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_EVENTS;
+        Tolerances tolerances = Tolerances.fromSystemProperties();
+        String siddhiVersion = System.getProperty("siddhi.version", "unknown");
+        Files.createDirectories(reportDirectory);
+
+        Baseline current = new Baseline(siddhiVersion, measure(events));
+        current.write(reportDirectory.resolve("performance.json"));
+        if (Boolean.getBoolean("perf.baseline.record")) {
+            current.write(baselineFile);
+            logger.info("Performance baseline of Siddhi " + siddhiVersion + " recorded to " +
+                    baselineFile.toAbsolutePath());
+            return;
+        }
+
+        Baseline baseline = Baseline.read(baselineFile);
+        if (!baseline.getSiddhiVersion().equals(siddhiVersion)) {
+            logger.info("Comparing Siddhi " + siddhiVersion + " with the baseline of Siddhi " +
+                    baseline.getSiddhiVersion() + ".");
+        }
+        List<Comparison> comparisons = compare(baseline, current, tolerances);
+        Path report = reportDirectory.resolve("performance-baseline.csv");
+        boolean regressed = false;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Comparison.CSV_HEADER);
+            for (Comparison comparison : comparisons) {
+                writer.println(comparison.toCsv());
+                if (comparison.isRegression()) {
+                    logger.error(comparison.toString());
+                    regressed = true;
+                } else if (comparison.isMissingBaseline()) {
+                    logger.warn(comparison.toString());
+                } else {
+                    logger.info(comparison.toString());
+                }
+            }
+        }
+        logger.info("Performance baseline comparison written to " + report.toAbsolutePath());
+        if (regressed) {
+            logger.error("Performance regressed against " + baselineFile.toAbsolutePath() + ". If the change is " +
+                    "accepted, record a new baseline with -Dperf.baseline.record=true.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Measures every @info query alone and the whole app.
+     */
+    static Map<String, Measurement> measure(int events) throws IOException, InterruptedException {
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        measurements.put(TemperatureAlertApp.MONITERED_FILTER, measureQuery(TemperatureAlertApp.MONITERED_FILTER,
+                new TemperatureAlertAppQueryBenchmark.MoniteredFilterState(), events));
+        measurements.put(TemperatureAlertApp.INTERNAL_FILTER, measureQuery(TemperatureAlertApp.INTERNAL_FILTER,
+                new TemperatureAlertAppQueryBenchmark.InternalFilterState(), events));
+        measurements.put(TemperatureAlertApp.TEMPERATURE_INCREASE_DETECTOR,
+                measureQuery(TemperatureAlertApp.TEMPERATURE_INCREASE_DETECTOR,
+                        new TemperatureAlertAppQueryBenchmark.TemperatureIncreaseDetectorState(), events));
+        measurements.put(TemperatureAlertApp.TEMPERATURE_RANGE_FILTER,
+                measureQuery(TemperatureAlertApp.TEMPERATURE_RANGE_FILTER,
+                        new TemperatureAlertAppQueryBenchmark.TemperatureRangeFilterState(), events));
+        measurements.put(APP_STAGE, measureApp(events));
+        return measurements;
+    }
+
+    /**
+     * Compares the readings of every stage of the baseline and of the current run.
+     */
+    static List<Comparison> compare(Baseline baseline, Baseline current, Tolerances tolerances) {
+        List<Comparison> comparisons = new ArrayList<>();
+        for (Map.Entry<String, Measurement> entry : current.getStages().entrySet()) {
+            String stage = entry.getKey();
+            Measurement now = entry.getValue();
+            Measurement before = baseline.getStages().get(stage);
+            if (before == null) {
+                comparisons.add(Comparison.missing(stage));
+                continue;
+            }
+            comparisons.add(new Comparison(stage, Measurement.EVENTS_PER_SECOND, before.eventsPerSecond,
+                    now.eventsPerSecond, tolerances.throughput, false));
+            comparisons.add(new Comparison(stage, Measurement.P99_LATENCY_NANOS, before.p99LatencyNanos,
+                    now.p99LatencyNanos, tolerances.p99Latency, true));
+            comparisons.add(new Comparison(stage, Measurement.ALLOCATED_BYTES_PER_EVENT,
+                    before.allocatedBytesPerEvent, now.allocatedBytesPerEvent, tolerances.allocation, true));
+        }
+        return comparisons;
+    }
+
+    private static Measurement measureQuery(String queryName, TemperatureAlertAppQueryBenchmark.QueryState queryState,
+                                            int events) throws IOException, InterruptedException {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSandboxSiddhiAppRuntime(
+                    QueryProfiler.isolateQuery(siddhiManager, queryName));
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(queryState.inputStream());
+            siddhiAppRuntime.start();
+            return measure(inputHandler, queryState.createEvents(), events);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    private static Measurement measureApp(int events) throws IOException, InterruptedException {
+        TemperatureAlertAppQueryBenchmark.MoniteredFilterState queryState =
+                new TemperatureAlertAppQueryBenchmark.MoniteredFilterState();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(queryState.inputStream());
+            siddhiAppRuntime.start();
+            return measure(inputHandler, queryState.createEvents(), events);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Runs a warm-up round and the measured rounds, and returns the median of each reading.
+     * Queries run synchronously on the sending thread, so the time of a send is the latency of its event.
+     */
+    private static Measurement measure(InputHandler inputHandler, Object[][] data, int events)
+            throws InterruptedException {
+        for (int event = 0; event < events; event++) {
+            inputHandler.send(data[event % data.length]);
+        }
+        double[] eventsPerSecond = new double[ROUNDS];
+        double[] p99LatencyNanos = new double[ROUNDS];
+        double[] allocatedBytesPerEvent = new double[ROUNDS];
+        Histogram latency = new Histogram(MAX_LATENCY_NANOS, 3);
+        for (int round = 0; round < ROUNDS; round++) {
+            latency.reset();
+            long allocatedBefore = JvmMemory.threadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int event = 0; event < events; event++) {
+                long sentAt = System.nanoTime();
+                inputHandler.send(data[event % data.length]);
+                latency.recordValue(Math.min(System.nanoTime() - sentAt, MAX_LATENCY_NANOS));
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            //The histogram has a fixed range and never resizes, so the allocated bytes are those of the runtime
+            allocatedBytesPerEvent[round] = (double) (JvmMemory.threadAllocatedBytes() - allocatedBefore) / events;
+            eventsPerSecond[round] = events * 1e9 / elapsedNanos;
+            p99LatencyNanos[round] = latency.getValueAtPercentile(99);
+        }
+        return new Measurement(median(eventsPerSecond), median(p99LatencyNanos), median(allocatedBytesPerEvent));
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Allowed relative change of each reading before it counts as a regression.
+     */
+    public static class Tolerances {
+        private final double throughput;
+        private final double p99Latency;
+        private final double allocation;
+
+        Tolerances(double throughput, double p99Latency, double allocation) {
+            this.throughput = throughput;
+            this.p99Latency = p99Latency;
+            this.allocation = allocation;
+        }
+
+        static Tolerances fromSystemProperties() {
+            return new Tolerances(
+                    Double.parseDouble(System.getProperty("perf.baseline.throughputTolerance",
+                            Double.toString(DEFAULT_THROUGHPUT_TOLERANCE))),
+                    Double.parseDouble(System.getProperty("perf.baseline.p99LatencyTolerance",
+                            Double.toString(DEFAULT_P99_LATENCY_TOLERANCE))),
+                    Double.parseDouble(System.getProperty("perf.baseline.allocationTolerance",
+                            Double.toString(DEFAULT_ALLOCATION_TOLERANCE))));
+        }
+    }
+
+    /**
+     * Readings of one stage.
+     */
+    public static class Measurement {
+        static final String EVENTS_PER_SECOND = "eventsPerSecond";
+        static final String P99_LATENCY_NANOS = "p99LatencyNanos";
+        static final String ALLOCATED_BYTES_PER_EVENT = "allocatedBytesPerEvent";
+
+        private final double eventsPerSecond;
+        private final double p99LatencyNanos;
+        private final double allocatedBytesPerEvent;
+
+        Measurement(double eventsPerSecond, double p99LatencyNanos, double allocatedBytesPerEvent) {
+            this.eventsPerSecond = eventsPerSecond;
+            this.p99LatencyNanos = p99LatencyNanos;
+            this.allocatedBytesPerEvent = allocatedBytesPerEvent;
+        }
+
+        public double getEventsPerSecond() {
+            return eventsPerSecond;
+        }
+
+        public double getP99LatencyNanos() {
+            return p99LatencyNanos;
+        }
+
+        public double getAllocatedBytesPerEvent() {
+            return allocatedBytesPerEvent;
+        }
+    }
+
+    /**
+     * Readings of every stage on one Siddhi version, as kept in the baseline file:
+     * {"siddhiVersion": "...", "stages": {"&lt;stage&gt;": {"eventsPerSecond": n, "p99LatencyNanos": n,
+     * "allocatedBytesPerEvent": n}, ...}}
+     */
+    public static class Baseline {
+        private final String siddhiVersion;
+        private final Map<String, Measurement> stages;
+
+        Baseline(String siddhiVersion, Map<String, Measurement> stages) {
+            this.siddhiVersion = siddhiVersion;
+            this.stages = stages;
+        }
+
+        public String getSiddhiVersion() {
+            return siddhiVersion;
+        }
+
+        public Map<String, Measurement> getStages() {
+            return stages;
+        }
+
+        static Baseline read(Path file) throws IOException {
+            String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            Map<String, Object> root = new JsonReader(json).readObject();
+            Map<String, Measurement> stages = new LinkedHashMap<>();
+            Object stagesObject = root.get("stages");
+            if (stagesObject instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) stagesObject).entrySet()) {
+                    Map<?, ?> readings = (Map<?, ?>) entry.getValue();
+                    stages.put((String) entry.getKey(), new Measurement(
+                            number(readings, Measurement.EVENTS_PER_SECOND, file),
+                            number(readings, Measurement.P99_LATENCY_NANOS, file),
+                            number(readings, Measurement.ALLOCATED_BYTES_PER_EVENT, file)));
+                }
+            }
+            Object version = root.get("siddhiVersion");
+            return new Baseline(version == null ? "unknown" : version.toString(), stages);
+        }
+
+        void write(Path file) throws IOException {
+            StringBuilder json = new StringBuilder();
+            json.append("{\n  \"siddhiVersion\": \"").append(siddhiVersion).append("\",\n  \"stages\": {");
+            String separator = "\n";
+            for (Map.Entry<String, Measurement> entry : stages.entrySet()) {
+                Measurement measurement = entry.getValue();
+                json.append(separator).append(String.format(Locale.ROOT, "    \"%s\": {\"%s\": %.0f, \"%s\": %.0f, " +
+                                "\"%s\": %.1f}", entry.getKey(),
+                        Measurement.EVENTS_PER_SECOND, measurement.eventsPerSecond,
+                        Measurement.P99_LATENCY_NANOS, measurement.p99LatencyNanos,
+                        Measurement.ALLOCATED_BYTES_PER_EVENT, measurement.allocatedBytesPerEvent));
+                separator = ",\n";
+            }
+            json.append(stages.isEmpty() ? "}\n}\n" : "\n  }\n}\n");
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static double number(Map<?, ?> readings, String name, Path file) {
+            Object value = readings.get(name);
+            if (!(value instanceof Double)) {
+                throw new IllegalArgumentException("Performance baseline " + file + " has no number for '" + name +
+                        "'.");
+            }
+            return (Double) value;
+        }
+    }
+
+    /**
+     * One reading of a stage against the baseline.
+     */
+    public static class Comparison {
+        static final String CSV_HEADER = "stage,metric,baseline,current,change,tolerance,regression";
+        static final String MISSING_BASELINE = "missingBaseline";
+
+        private final String stage;
+        private final String metric;
+        private final double baseline;
+        private final double current;
+        private final double tolerance;
+        private final boolean lowerIsBetter;
+
+        Comparison(String stage, String metric, double baseline, double current, double tolerance,
+                   boolean lowerIsBetter) {
+            this.stage = stage;
+            this.metric = metric;
+            this.baseline = baseline;
+            this.current = current;
+            this.tolerance = tolerance;
+            this.lowerIsBetter = lowerIsBetter;
+        }
+
+        /**
+         * Comparison of a stage without readings in the baseline, which is reported but never a regression.
+         */
+        static Comparison missing(String stage) {
+            return new Comparison(stage, MISSING_BASELINE, Double.NaN, Double.NaN, 0, false);
+        }
+
+        public boolean isMissingBaseline() {
+            return MISSING_BASELINE.equals(metric);
+        }
+
+        /**
+         * Relative change of the reading, positive when it is worse than the baseline.
+         */
+        public double getChange() {
+            if (isMissingBaseline()) {
+                return Double.NaN;
+            }
+            if (baseline == 0) {
+                return current == 0 ? 0 : (lowerIsBetter ? 1 : -1);
+            }
+            double change = (current - baseline) / baseline;
+            return lowerIsBetter ? change : -change;
+        }
+
+        public boolean isRegression() {
+            return !isMissingBaseline() && getChange() > tolerance;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%.1f,%.1f,%.3f,%.3f,%b", stage, metric, baseline, current,
+                    getChange(), tolerance, isRegression());
+        }
+
+        @Override
+        public String toString() {
+            if (isMissingBaseline()) {
+                return stage + ": not in the performance baseline, not compared until a baseline is recorded";
+            }
+            return String.format(Locale.ROOT, "%s %s: baseline=%.1f, current=%.1f, %.1f%% %s (tolerance %.0f%%)%s",
+                    stage, metric, baseline, current, Math.abs(getChange()) * 100,
+                    getChange() > 0 ? "worse" : "better", tolerance * 100, isRegression() ? ", REGRESSION" : "");
+        }
+    }
+
+    /**
+     * Reader of the objects, strings and numbers of the baseline file. Arrays, booleans and null are not used by the
+     * file and not supported.
+     */
+    private static class JsonReader {
+        private final String json;
+        private int position;
+
+        JsonReader(String json) {
+            this.json = json;
+        }
+
+        Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                String name = readString();
+                expect(':');
+                object.put(name, readValue());
+                char next = peek();
+                position++;
+                if (next == '}') {
+                    return object;
+                }
+                if (next != ',') {
+                    throw error("',' or '}'");
+                }
+            }
+        }
+
+        private Object readValue() {
+            char next = peek();
+            if (next == '{') {
+                return readObject();
+            }
+            if (next == '"') {
+                return readString();
+            }
+            int start = position;
+            while (position < json.length() && "+-.0123456789eE".indexOf(json.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("a value");
+            }
+            return Double.parseDouble(json.substring(start, position));
+        }
+
+        private String readString() {
+            expect('"');
+            int end = json.indexOf('"', position);
+            if (end < 0) {
+                throw error("'\"'");
+            }
+            String value = json.substring(position, end);
+            position = end + 1;
+            return value;
+        }
+
+        private void expect(char expected) {
+            if (peek() != expected) {
+                throw error("'" + expected + "'");
+            }
+            position++;
+        }
+
+        private char peek() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+            if (position == json.length()) {
+                throw error("more input");
+            }
+            return json.charAt(position);
+        }
+
+        private IllegalArgumentException error(String expected) {
+            return new IllegalArgumentException("Invalid performance baseline, expected " + expected +
+                    " at offset " + position + ".");
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.query.api.SiddhiApp;
+import io.siddhi.query.api.annotation.Annotation;
+import io.siddhi.query.api.annotation.Element;
+import io.siddhi.query.api.definition.StreamDefinition;
+import io.siddhi.query.api.definition.TableDefinition;
+import io.siddhi.query.api.execution.ExecutionElement;
+import io.siddhi.query.api.execution.partition.Partition;
+import io.siddhi.query.api.execution.query.Query;
+import io.siddhi.query.api.util.AnnotationHelper;
+import io.siddhi.query.compiler.SiddhiCompiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Allocation and CPU profile of each @info query of Temp-Alert-App.
+ * Description: Each query is deployed alone in a sandbox runtime, with every stream and table of the app defined, and
+ *              fed the events of its TemperatureAlertAppQueryBenchmark state. After a warm-up, the allocated bytes and
+ *              CPU time of the sending thread are read per event while a flight recording of the query runs, so the
+ *              CPU samples and allocation samples of each recording belong to one query only.
+ *              The whole app is then run once with Object[] events and once with JSON messages through its NATS
+ *              source and sink over LoopbackNatsBroker; the difference is reported as the cost of the JSON mappers.
+ *              Queries run synchronously on the sending thread, so thread readings cover the whole query.
+ * Run: java -Xmx2g -cp siddhi-test-suite-benchmark/target/benchmarks.jar
+ *      siddhi.test.suite.benchmark.QueryProfiler [report directory, default target/query-profile] [events per stage]
+ *      or mvn verify -Pquery-profile -pl siddhi-test-suite-benchmark
+ *      The report is written to query-profile.csv with one <stage>.jfr recording per stage, open them in JDK
+ *      Mission Control or with 'jfr print --events jdk.ExecutionSample'.
+ */
+public class QueryProfiler {
+    private static final Logger logger = LoggerFactory.getLogger(QueryProfiler.class);
+
+    static final int DEFAULT_EVENTS = 200000;
+
+    private static final String APP_STAGE = "Temp-Alert-App";
+    private static final String NATS_JSON_APP_STAGE = "Temp-Alert-App-nats-json";
+    private static final String JSON_MAPPERS_STAGE = "json-mappers";
+
+    public static void main(String[] args) throws Exception {
+        Path reportDirectory = Paths.get(args.length > 0 ? args[0] : "target/query-profile");
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_EVENTS;
+        Files.createDirectories(reportDirectory);
+
+        List<Result> results = new ArrayList<>();
+        results.add(profileQuery(TemperatureAlertApp.MONITERED_FILTER,
+                new TemperatureAlertAppQueryBenchmark.MoniteredFilterState(), events, reportDirectory));
+        results.add(profileQuery(TemperatureAlertApp.INTERNAL_FILTER,
+                new TemperatureAlertAppQueryBenchmark.InternalFilterState(), events, reportDirectory));
+        results.add(profileQuery(TemperatureAlertApp.TEMPERATURE_INCREASE_DETECTOR,
+                new TemperatureAlertAppQueryBenchmark.TemperatureIncreaseDetectorState(), events, reportDirectory));
+        results.add(profileQuery(TemperatureAlertApp.TEMPERATURE_RANGE_FILTER,
+                new TemperatureAlertAppQueryBenchmark.TemperatureRangeFilterState(), events, reportDirectory));
+        Result app = profileApp(events, reportDirectory);
+        Result natsJsonApp = profileNatsJsonApp(events, reportDirectory);
+        results.add(app);
+        results.add(natsJsonApp);
+        results.add(natsJsonApp.minus(JSON_MAPPERS_STAGE, app));
+
+        Path report = reportDirectory.resolve("query-profile.csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Result.CSV_HEADER);
+            for (Result result : results) {
+                logger.info(result.toString());
+                writer.println(result.toCsv());
+            }
+        }
+        logger.info("Query profile report written to " + report.toAbsolutePath());
+    }
+
+    /**
+     * Profiles one @info query, deployed without the other queries of the app.
+     */
+    static Result profileQuery(String queryName, TemperatureAlertAppQueryBenchmark.QueryState queryState,
+                               int events, Path reportDirectory) throws IOException, InterruptedException {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSandboxSiddhiAppRuntime(
+                    isolateQuery(siddhiManager, queryName));
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(queryState.inputStream());
+            Object[][] data = queryState.createEvents();
+            siddhiAppRuntime.start();
+            return profile(queryName, event -> inputHandler.send(data[event % data.length]), events,
+                    reportDirectory);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Returns Temp-Alert-App with only the query of the given @info name, or the partition holding it.
+     * Streams that the app defines implicitly through insert into are defined explicitly, so the query can be fed
+     * without the queries in front of it.
+     */
+    static SiddhiApp isolateQuery(SiddhiManager siddhiManager, String queryName) throws IOException {
+        SiddhiApp app;
+        Collection<StreamDefinition> streamDefinitions;
+        Collection<TableDefinition> tableDefinitions;
+        SiddhiAppRuntime fullRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+        try {
+            app = SiddhiCompiler.parse(SiddhiCompiler.updateVariables(TemperatureAlertApp.load()));
+            streamDefinitions = fullRuntime.getStreamDefinitionMap().values();
+            tableDefinitions = fullRuntime.getTableDefinitionMap().values();
+        } finally {
+            fullRuntime.shutdown();
+        }
+
+        SiddhiApp isolatedApp = SiddhiApp.siddhiApp(queryName);
+        for (StreamDefinition streamDefinition : streamDefinitions) {
+            if (!streamDefinition.getId().startsWith("#")) {
+                isolatedApp.defineStream(streamDefinition);
+            }
+        }
+        for (TableDefinition tableDefinition : tableDefinitions) {
+            isolatedApp.defineTable(tableDefinition);
+        }
+        for (ExecutionElement executionElement : app.getExecutionElementList()) {
+            if (executionElement instanceof Query && queryName.equals(infoName(executionElement.getAnnotations()))) {
+                isolatedApp.addQuery((Query) executionElement);
+                return isolatedApp;
+            }
+            if (executionElement instanceof Partition) {
+                for (Query query : ((Partition) executionElement).getQueryList()) {
+                    if (queryName.equals(infoName(query.getAnnotations()))) {
+                        isolatedApp.addPartition((Partition) executionElement);
+                        return isolatedApp;
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("Temp-Alert-App has no query named '" + queryName + "'.");
+    }
+
+    private static Result profileApp(int events, Path reportDirectory) throws IOException, InterruptedException {
+        TemperatureAlertAppQueryBenchmark.MoniteredFilterState queryState =
+                new TemperatureAlertAppQueryBenchmark.MoniteredFilterState();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(queryState.inputStream());
+            Object[][] data = queryState.createEvents();
+            siddhiAppRuntime.start();
+            return profile(APP_STAGE, event -> inputHandler.send(data[event % data.length]), events,
+                    reportDirectory);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    private static Result profileNatsJsonApp(int events, Path reportDirectory)
+            throws IOException, InterruptedException {
+        Object[][] data = new TemperatureAlertAppQueryBenchmark.MoniteredFilterState().createEvents();
+        String[] messages = new String[data.length];
+        for (int i = 0; i < data.length; i++) {
+            messages[i] = "{\"event\":{\"type\":\"" + data[i][0] + "\",\"deviceID\":\"" + data[i][1] +
+                    "\",\"temp\":" + data[i][2] + ",\"roomID\":\"" + data[i][3] + "\"}}";
+        }
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            TemperatureAlertApp.createLoopbackRuntime(siddhiManager).start();
+            return profile(NATS_JSON_APP_STAGE, event -> LoopbackNatsBroker.publish(
+                    TemperatureAlertApp.INPUT_DESTINATION, messages[event % messages.length]), events,
+                    reportDirectory);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    private static Result profile(String stage, EventSender eventSender, int events, Path reportDirectory)
+            throws InterruptedException {
+        for (int event = 0; event < events; event++) {
+            eventSender.send(event);
+        }
+        Path recording = reportDirectory.resolve(stage + ".jfr");
+        boolean recorded = FlightRecorder.start(stage);
+        long gcCountBefore = JvmMemory.gcCount();
+        long allocatedBefore = JvmMemory.threadAllocatedBytes();
+        long cpuTimeBefore = JvmMemory.threadCpuTimeNanos();
+        long start = System.nanoTime();
+        for (int event = 0; event < events; event++) {
+            eventSender.send(event);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long cpuTime = JvmMemory.threadCpuTimeNanos() - cpuTimeBefore;
+        long allocated = JvmMemory.threadAllocatedBytes() - allocatedBefore;
+        long gcCount = JvmMemory.gcCount() - gcCountBefore;
+        if (recorded) {
+            recorded = FlightRecorder.stop(stage, recording);
+        }
+        return new Result(stage, events, allocated, cpuTime, elapsedNanos, gcCount,
+                recorded ? recording.getFileName().toString() : "");
+    }
+
+    private static String infoName(List<Annotation> annotations) {
+        Element name = AnnotationHelper.getAnnotationElement("info", "name", annotations);
+        return name == null ? null : name.getValue();
+    }
+
+    /**
+     * Sends the event with the given sequence number.
+     */
+    private interface EventSender {
+        void send(int event) throws InterruptedException;
+    }
+
+    /**
+     * Readings of one stage.
+     */
+    public static class Result {
+        static final String CSV_HEADER = "stage,events,allocatedBytesPerEvent,cpuNanosPerEvent,eventsPerSecond," +
+                "gcCount,recording";
+
+        private final String stage;
+        private final long events;
+        private final long allocatedBytes;
+        private final long cpuTimeNanos;
+        private final long elapsedNanos;
+        private final long gcCount;
+        private final String recording;
+
+        Result(String stage, long events, long allocatedBytes, long cpuTimeNanos, long elapsedNanos, long gcCount,
+               String recording) {
+            this.stage = stage;
+            this.events = events;
+            this.allocatedBytes = allocatedBytes;
+            this.cpuTimeNanos = cpuTimeNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.gcCount = gcCount;
+            this.recording = recording;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public double getAllocatedBytesPerEvent() {
+            return (double) allocatedBytes / events;
+        }
+
+        public double getCpuNanosPerEvent() {
+            return (double) cpuTimeNanos / events;
+        }
+
+        public double getEventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Difference to another stage run with the same number of events, such as the cost of the mappers on top of
+         * the queries. Has no recording of its own.
+         */
+        Result minus(String differenceStage, Result other) {
+            return new Result(differenceStage, events, allocatedBytes - other.allocatedBytes,
+                    cpuTimeNanos - other.cpuTimeNanos, Math.max(1, elapsedNanos - other.elapsedNanos),
+                    gcCount - other.gcCount, "");
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%.0f,%d,%s", stage, events,
+                    getAllocatedBytesPerEvent(), getCpuNanosPerEvent(), getEventsPerSecond(), gcCount, recording);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "stage=%s, events=%d, allocated=%.1f bytes/event, " +
+                            "cpu=%.1f ns/event, throughput=%.0f events/s, gc=%d collections%s", stage, events,
+                    getAllocatedBytesPerEvent(), getCpuNanosPerEvent(), getEventsPerSecond(), gcCount,
+                    recording.isEmpty() ? "" : ", recording=" + recording);
+        }
+    }
+}
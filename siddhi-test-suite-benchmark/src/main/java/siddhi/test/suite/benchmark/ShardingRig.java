@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiManager;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Horizontal scaling of Temp-Alert-App sharded by deviceID hash.
+ * Description: Runs N runtimes of the app in-process, each with its own SiddhiManager and its NATS source on the
+ *              subject of its shard, derived from INPUT_DESTINATION, over LoopbackNatsBroker. All shards publish to
+ *              the same AlertStream destination, where the alerts are merged. The JSON messages of monitored devices
+ *              going through rise-peak-fall cycles are routed to the shard of their deviceID, and one publisher
+ *              thread per shard publishes them as fast as the shard takes them, as a NATS server delivers to each
+ *              node in parallel. The aggregate throughput, the speedup over one shard and the latency from each fall
+ *              event to its alert are reported per shard count, and the merged alerts are compared with those of a
+ *              single runtime.
+ *              Each cycle of a device peaks at 80 + cycle, so an alert is matched to its fall by deviceID and
+ *              peakTemp.
+ * Run: java -Xmx4g -cp siddhi-test-suite-benchmark/target/benchmarks.jar siddhi.test.suite.benchmark.ShardingRig
+ *      [shard counts, default 1,2,4,8] [devices, default 4096] [cycles, default 25]
+ *      A CSV report is written to target/sharding.csv
+ */
+public class ShardingRig {
+    private static final Logger logger = LoggerFactory.getLogger(ShardingRig.class);
+
+    static final int[] DEFAULT_SHARD_COUNTS = {1, 2, 4, 8};
+    static final int DEFAULT_DEVICES = 4096;
+    static final int DEFAULT_CYCLES = 25;
+
+    private static final double PEAK_BASE = 80.0;
+    private static final String DEVICE_PREFIX = "H";
+    private static final String DEVICE_ID_FIELD = "\"deviceID\":\"";
+    private static final String PEAK_TEMP_FIELD = "\"peakTemp\":";
+
+    public static void main(String[] args) throws Exception {
+        int[] shardCounts = args.length > 0 ? parse(args[0]) : DEFAULT_SHARD_COUNTS;
+        int devices = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEVICES;
+        int cycles = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CYCLES;
+
+        //Warm-up so that the first measured shard count is not the one paying for class loading and JIT
+        run(1, devices, Math.max(1, cycles / 5));
+        Result reference = run(1, devices, cycles);
+        List<Result> results = new ArrayList<>();
+        for (int shards : shardCounts) {
+            Result result = shards == 1 ? reference : run(shards, devices, cycles);
+            result.compareWith(reference);
+            logger.info(result.toString());
+            results.add(result);
+        }
+        Path report = Paths.get("target", "sharding.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Result.CSV_HEADER);
+            for (Result result : results) {
+                writer.println(result.toCsv());
+            }
+        }
+        logger.info("Sharding report written to " + report.toAbsolutePath());
+        for (Result result : results) {
+            if (!result.isMatchingReference()) {
+                throw new IllegalStateException("The merged alerts of " + result.shards + " shards differ from " +
+                        "those of a single runtime.");
+            }
+        }
+    }
+
+    /**
+     * Runs the workload on the given number of shards and collects the merged alerts.
+     */
+    public static Result run(int shards, int devices, int cycles) throws IOException, InterruptedException {
+        Object[][] messages = new Object[shards][];
+        int[][] fallKeys = new int[shards][];
+        route(shards, devices, cycles, messages, fallKeys);
+
+        AtomicLongArray fallPublishedAt = new AtomicLongArray(devices * cycles);
+        Histogram latency = new ConcurrentHistogram(3);
+        ConcurrentLinkedQueue<String> alerts = new ConcurrentLinkedQueue<>();
+        LoopbackNatsBroker.Subscriber alertSubscriber = payload -> {
+            long receivedAt = System.nanoTime();
+            String alert = payload.toString();
+            String deviceId = field(alert, DEVICE_ID_FIELD, '"');
+            String peakTemp = field(alert, PEAK_TEMP_FIELD, ',');
+            alerts.add(deviceId + "|" + peakTemp);
+            int cycle = (int) Math.round(Double.parseDouble(peakTemp) - PEAK_BASE);
+            int device = Integer.parseInt(deviceId.substring(DEVICE_PREFIX.length()));
+            if (cycle >= 0 && cycle < cycles) {
+                long publishedAt = fallPublishedAt.get(device * cycles + cycle);
+                if (publishedAt != 0) {
+                    latency.recordValue(TimeUnit.NANOSECONDS.toMicros(receivedAt - publishedAt));
+                }
+            }
+        };
+
+        List<SiddhiManager> siddhiManagers = new ArrayList<>();
+        LoopbackNatsBroker.subscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                SiddhiManager siddhiManager = new SiddhiManager();
+                siddhiManagers.add(siddhiManager);
+                TemperatureAlertApp.createLoopbackShardRuntime(siddhiManager, shard).start();
+            }
+            Thread[] publishers = new Thread[shards];
+            for (int shard = 0; shard < shards; shard++) {
+                String destination = TemperatureAlertApp.shardDestination(TemperatureAlertApp.INPUT_DESTINATION,
+                        shard);
+                Object[] shardMessages = messages[shard];
+                int[] shardFallKeys = fallKeys[shard];
+                publishers[shard] = new Thread(() -> {
+                    for (int i = 0; i < shardMessages.length; i++) {
+                        if (shardFallKeys[i] >= 0) {
+                            fallPublishedAt.set(shardFallKeys[i], System.nanoTime());
+                        }
+                        LoopbackNatsBroker.publish(destination, shardMessages[i]);
+                    }
+                }, "shard-publisher-" + shard);
+            }
+            long start = System.nanoTime();
+            for (Thread publisher : publishers) {
+                publisher.start();
+            }
+            for (Thread publisher : publishers) {
+                publisher.join();
+            }
+            //Shards process on their publisher threads, all alerts are out once the publishers return
+            long elapsedNanos = System.nanoTime() - start;
+            List<String> sortedAlerts = new ArrayList<>(alerts);
+            Collections.sort(sortedAlerts);
+            return new Result(shards, (long) devices * cycles * 4, elapsedNanos, latency, sortedAlerts);
+        } finally {
+            LoopbackNatsBroker.unsubscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+            for (SiddhiManager siddhiManager : siddhiManagers) {
+                siddhiManager.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Builds the messages of every device cycle in publishing order and splits them by the shard of their deviceID,
+     * keeping the order of each device. Fall messages carry the key of their alert, other messages -1.
+     */
+    private static void route(int shards, int devices, int cycles, Object[][] messages, int[][] fallKeys) {
+        String[] deviceIds = new String[devices];
+        int[] shardSizes = new int[shards];
+        for (int device = 0; device < devices; device++) {
+            deviceIds[device] = DEVICE_PREFIX + device;
+            shardSizes[TemperatureAlertApp.shardOf(deviceIds[device], shards)] += cycles * 4;
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            messages[shard] = new Object[shardSizes[shard]];
+            fallKeys[shard] = new int[shardSizes[shard]];
+        }
+        int[] next = new int[shards];
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            double[] temps = {40.0, 60.0, PEAK_BASE + cycle, 30.0};
+            for (int step = 0; step < temps.length; step++) {
+                for (int device = 0; device < devices; device++) {
+                    int shard = TemperatureAlertApp.shardOf(deviceIds[device], shards);
+                    messages[shard][next[shard]] = "{\"event\":{\"type\":\"monitored\",\"deviceID\":\"" +
+                            deviceIds[device] + "\",\"temp\":" + temps[step] + ",\"roomID\":\"ServerRoom" +
+                            (device % 8) + "\"}}";
+                    fallKeys[shard][next[shard]] = step == temps.length - 1 ? device * cycles + cycle : -1;
+                    next[shard]++;
+                }
+            }
+        }
+    }
+
+    private static String field(String json, String field, char end) {
+        int start = json.indexOf(field) + field.length();
+        int stop = start;
+        while (stop < json.length() && json.charAt(stop) != end && json.charAt(stop) != '}') {
+            stop++;
+        }
+        return json.substring(start, stop);
+    }
+
+    private static int[] parse(String values) {
+        String[] parts = values.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * Measurements at one shard count.
+     */
+    public static class Result {
+        static final String CSV_HEADER = "shards,events,eventsPerSecond,speedup,efficiency,alerts,latencyP50Millis," +
+                "latencyP99Millis,latencyMaxMillis,matchesSingleRuntime";
+
+        private final int shards;
+        private final long events;
+        private final long elapsedNanos;
+        private final Histogram latency;
+        private final List<String> alerts;
+        private double speedup = 1;
+        private boolean matchingReference = true;
+
+        Result(int shards, long events, long elapsedNanos, Histogram latency, List<String> alerts) {
+            this.shards = shards;
+            this.events = events;
+            this.elapsedNanos = elapsedNanos;
+            this.latency = latency;
+            this.alerts = alerts;
+        }
+
+        void compareWith(Result reference) {
+            speedup = getEventsPerSecond() / reference.getEventsPerSecond();
+            matchingReference = alerts.equals(reference.alerts);
+        }
+
+        public double getEventsPerSecond() {
+            return events * 1e9 / elapsedNanos;
+        }
+
+        public List<String> getAlerts() {
+            return alerts;
+        }
+
+        public boolean isMatchingReference() {
+            return matchingReference;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%.0f,%.3f,%.3f,%d,%.3f,%.3f,%.3f,%b", shards, events,
+                    getEventsPerSecond(), speedup, speedup / shards, alerts.size(),
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getMaxValue() / 1000.0, matchingReference);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "shards=%d, throughput=%.0f events/s, speedup=%.2fx " +
+                            "(efficiency %.0f%%), alerts=%d, latency p50=%.2f ms, p99=%.2f ms, max=%.2f ms, " +
+                            "matches single runtime=%b", shards, getEventsPerSecond(), speedup,
+                    speedup / shards * 100, alerts.size(), latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0, latency.getMaxValue() / 1000.0, matchingReference);
+        }
+    }
+}
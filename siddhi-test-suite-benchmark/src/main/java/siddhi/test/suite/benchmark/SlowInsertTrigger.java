@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * H2 row trigger delaying every insert into InternalDevicesTempTable, standing in for a TemperatureDB slower than the
+ * app. The delay applies to all embedded databases of the JVM that the trigger is installed in.
+ */
+public class SlowInsertTrigger implements Trigger {
+
+    private static final String TRIGGER_NAME = "SLOW_INSERT";
+
+    private static volatile long delayNanos;
+
+    /**
+     * Installs the trigger on the table of the embedded database, the table has to exist, that is the runtime has
+     * to be started.
+     */
+    public static void install(Connection connection, long delayMicros) throws SQLException {
+        delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_NAME + " BEFORE INSERT ON " +
+                    TemperatureAlertApp.INTERNAL_DEVICES_TEMP_TABLE + " FOR EACH ROW CALL \"" +
+                    SlowInsertTrigger.class.getName() + "\"");
+        }
+    }
+
+    @Override
+    public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) {
+        //Nothing to initialize, the delay is set by install
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) {
+        long end = System.nanoTime() + delayNanos;
+        long remaining;
+        while ((remaining = end - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    @Override
+    public void close() {
+        //Nothing to close
+    }
+
+    @Override
+    public void remove() {
+        //Nothing to remove
+    }
+}
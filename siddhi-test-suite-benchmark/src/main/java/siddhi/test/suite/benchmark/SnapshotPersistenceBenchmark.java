@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.exception.CannotRestoreSiddhiAppStateException;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.core.util.persistence.IncrementalFileSystemPersistenceStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siddhi.test.suite.extension.persistence.MappedFilePersistenceStore;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistence cost of the per-deviceID partition state of temperature-increase-detector as partitions grow.
+ * Description: For each device count and store, every device of a sandbox Temp-Alert-App is left with a partial
+ *              match (a rise), and the runtime is persisted; then 1% of the devices rise again and it is persisted a
+ *              second time. The full store writes the whole state again, the incremental store only what changed
+ *              where Siddhi supports it. The persist pause is the time persist() holds the app, the durable time
+ *              lasts until the revision is the last one of the store. The runtime is then dropped without a
+ *              shutdown snapshot, as after a crash, and a new runtime restores the last revision. Every device then
+ *              falls, and the peaks detected are compared with those of a runtime that never stopped.
+ *              Stores: full-mapped, {@link MappedFilePersistenceStore}, and incremental-file, Siddhi's
+ *              IncrementalFileSystemPersistenceStore, both on the local file system.
+ * Run: java -Xmx4g -cp siddhi-test-suite-benchmark/target/benchmarks.jar
+ *      siddhi.test.suite.benchmark.SnapshotPersistenceBenchmark [device counts, default 1000,10000,100000]
+ *      [store directory, default target/snapshot-persistence]
+ *      A CSV report is written to target/snapshot-persistence.csv
+ */
+public class SnapshotPersistenceBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotPersistenceBenchmark.class);
+
+    static final int[] DEFAULT_DEVICE_COUNTS = {1000, 10000, 100000};
+
+    private static final double CHANGED_DEVICES_RATIO = 0.01;
+    private static final long SAVE_WAIT_MILLIS = 120000;
+    private static final int SETTLE_POLLS = 3;
+    private static final long SETTLE_POLL_MILLIS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int[] deviceCounts = DEFAULT_DEVICE_COUNTS;
+        if (args.length > 0) {
+            String[] values = args[0].split(",");
+            deviceCounts = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                deviceCounts[i] = Integer.parseInt(values[i].trim());
+            }
+        }
+        Path storeDirectory = Paths.get(args.length > 1 ? args[1] : "target/snapshot-persistence");
+
+        List<Result> results = new ArrayList<>();
+        for (int devices : deviceCounts) {
+            long expectedPeaks = countPeaksWithoutRestart(devices);
+            for (Store store : Store.values()) {
+                Result result = measure(store, devices, storeDirectory.resolve(store.getName() + "-" + devices),
+                        expectedPeaks);
+                logger.info(result.toString());
+                results.add(result);
+            }
+        }
+        Path report = Paths.get("target", "snapshot-persistence.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Result.CSV_HEADER);
+            for (Result result : results) {
+                writer.println(result.toCsv());
+            }
+        }
+        logger.info("Snapshot persistence report written to " + report.toAbsolutePath());
+    }
+
+    /**
+     * Persists, crashes and restores a runtime holding one partition per device, with the store under the given
+     * directory. The directory is emptied first.
+     */
+    public static Result measure(Store store, int devices, Path directory, long expectedPeaks)
+            throws IOException, InterruptedException, CannotRestoreSiddhiAppStateException {
+        deleteRecursively(directory);
+        Files.createDirectories(directory);
+        String[] deviceIds = deviceIds(devices);
+        int changedDevices = Math.max(1, (int) (devices * CHANGED_DEVICES_RATIO));
+
+        Persist base;
+        Persist increment;
+        SiddhiManager siddhiManager = store.createManager(directory);
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM);
+            siddhiAppRuntime.start();
+            send(inputHandler, deviceIds, devices, 40.0);
+            send(inputHandler, deviceIds, devices, 60.0);
+            base = persist(store, siddhiAppRuntime, directory);
+            send(inputHandler, deviceIds, changedDevices, 70.0);
+            increment = persist(store, siddhiAppRuntime, directory);
+        } finally {
+            //Dropped without persisting again, the last revision is all that survives
+            siddhiManager.shutdown();
+        }
+
+        siddhiManager = store.createManager(directory);
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            AtomicLong peaks = countPeaks(siddhiAppRuntime);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM);
+            siddhiAppRuntime.start();
+            long restoreStart = System.nanoTime();
+            siddhiAppRuntime.restoreLastRevision();
+            long restoreNanos = System.nanoTime() - restoreStart;
+            send(inputHandler, deviceIds, devices, 30.0);
+            return new Result(store, devices, changedDevices, base, increment, restoreNanos, peaks.get(),
+                    expectedPeaks);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Peaks detected when the runtime of {@link #measure} keeps running instead of being restored.
+     */
+    public static long countPeaksWithoutRestart(int devices) throws IOException, InterruptedException {
+        String[] deviceIds = deviceIds(devices);
+        int changedDevices = Math.max(1, (int) (devices * CHANGED_DEVICES_RATIO));
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            AtomicLong peaks = countPeaks(siddhiAppRuntime);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM);
+            siddhiAppRuntime.start();
+            send(inputHandler, deviceIds, devices, 40.0);
+            send(inputHandler, deviceIds, devices, 60.0);
+            send(inputHandler, deviceIds, changedDevices, 70.0);
+            send(inputHandler, deviceIds, devices, 30.0);
+            return peaks.get();
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    /**
+     * Persists the runtime, returning once the revision is the last one of the store and its files are written.
+     */
+    private static Persist persist(Store store, SiddhiAppRuntime siddhiAppRuntime, Path directory)
+            throws IOException, InterruptedException {
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String revision = siddhiAppRuntime.persist().getRevision();
+        long pauseNanos = System.nanoTime() - start;
+        long deadline = System.currentTimeMillis() + SAVE_WAIT_MILLIS;
+        while (!revision.equals(store.getLastRevision(directory, siddhiAppRuntime.getName()))) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Revision " + revision + " was not saved within " +
+                        SAVE_WAIT_MILLIS + " ms.");
+            }
+            Thread.sleep(1);
+        }
+        //An incremental revision is saved as several files, wait until no more are written
+        long bytes = bytesWrittenSince(directory, startMillis);
+        long settledAt = System.nanoTime();
+        for (int stablePolls = 0; stablePolls < SETTLE_POLLS; ) {
+            Thread.sleep(SETTLE_POLL_MILLIS);
+            long written = bytesWrittenSince(directory, startMillis);
+            if (written == bytes) {
+                stablePolls++;
+            } else {
+                bytes = written;
+                settledAt = System.nanoTime();
+                stablePolls = 0;
+            }
+        }
+        return new Persist(pauseNanos, settledAt - start, bytes);
+    }
+
+    private static AtomicLong countPeaks(SiddhiAppRuntime siddhiAppRuntime) {
+        AtomicLong peaks = new AtomicLong();
+        siddhiAppRuntime.addCallback(TemperatureAlertApp.PEAK_TEMP_STREAM, new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                peaks.addAndGet(events.length);
+            }
+        });
+        return peaks;
+    }
+
+    private static void send(InputHandler inputHandler, String[] deviceIds, int devices, double temp)
+            throws InterruptedException {
+        for (int device = 0; device < devices; device++) {
+            inputHandler.send(new Object[]{deviceIds[device], temp, "ServerRoom"});
+        }
+    }
+
+    private static String[] deviceIds(int devices) {
+        String[] deviceIds = new String[devices];
+        for (int device = 0; device < devices; device++) {
+            deviceIds[device] = "P" + device;
+        }
+        return deviceIds;
+    }
+
+    /**
+     * Size of the files modified since the given time, the revision files written by one persist.
+     */
+    private static long bytesWrittenSince(Path directory, long sinceMillis) throws IOException {
+        long bytes = 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() >= sinceMillis) {
+                    bytes += Files.size(file);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted((a, b) -> b.compareTo(a))::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Persistence stores under test, both keep their revisions in a directory of the local file system.
+     */
+    public enum Store {
+        FULL_MAPPED("full-mapped") {
+            @Override
+            SiddhiManager createManager(Path directory) {
+                SiddhiManager siddhiManager = new SiddhiManager();
+                siddhiManager.setPersistenceStore(new MappedFilePersistenceStore(directory.toString()));
+                return siddhiManager;
+            }
+
+            @Override
+            String getLastRevision(Path directory, String siddhiAppName) {
+                return new MappedFilePersistenceStore(directory.toString()).getLastRevision(siddhiAppName);
+            }
+        },
+        INCREMENTAL_FILE("incremental-file") {
+            @Override
+            SiddhiManager createManager(Path directory) {
+                SiddhiManager siddhiManager = new SiddhiManager();
+                siddhiManager.setIncrementalPersistenceStore(
+                        new IncrementalFileSystemPersistenceStore(directory.toString()));
+                return siddhiManager;
+            }
+
+            @Override
+            String getLastRevision(Path directory, String siddhiAppName) {
+                return new IncrementalFileSystemPersistenceStore(directory.toString())
+                        .getLastRevision(siddhiAppName);
+            }
+        };
+
+        private final String name;
+
+        Store(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        abstract SiddhiManager createManager(Path directory);
+
+        abstract String getLastRevision(Path directory, String siddhiAppName);
+    }
+
+    /**
+     * Readings of one persist.
+     */
+    static class Persist {
+        private final long pauseNanos;
+        private final long durableNanos;
+        private final long bytes;
+
+        Persist(long pauseNanos, long durableNanos, long bytes) {
+            this.pauseNanos = pauseNanos;
+            this.durableNanos = durableNanos;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Measurements of one store at one device count.
+     */
+    public static class Result {
+        static final String CSV_HEADER = "store,devices,changedDevices,baseBytes,baseBytesPerDevice," +
+                "basePauseMillis,baseDurableMillis,secondBytes,secondPauseMillis,secondDurableMillis," +
+                "restoreMillis,restoredPeaks,expectedPeaks";
+
+        private final Store store;
+        private final int devices;
+        private final int changedDevices;
+        private final Persist base;
+        private final Persist second;
+        private final long restoreNanos;
+        private final long restoredPeaks;
+        private final long expectedPeaks;
+
+        Result(Store store, int devices, int changedDevices, Persist base, Persist second, long restoreNanos,
+               long restoredPeaks, long expectedPeaks) {
+            this.store = store;
+            this.devices = devices;
+            this.changedDevices = changedDevices;
+            this.base = base;
+            this.second = second;
+            this.restoreNanos = restoreNanos;
+            this.restoredPeaks = restoredPeaks;
+            this.expectedPeaks = expectedPeaks;
+        }
+
+        public long getBaseBytes() {
+            return base.bytes;
+        }
+
+        public long getSecondBytes() {
+            return second.bytes;
+        }
+
+        public double getRestoreMillis() {
+            return restoreNanos / 1e6;
+        }
+
+        public long getRestoredPeaks() {
+            return restoredPeaks;
+        }
+
+        public long getExpectedPeaks() {
+            return expectedPeaks;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.3f,%.3f,%d,%.3f,%.3f,%.3f,%d,%d", store.getName(),
+                    devices, changedDevices, base.bytes, base.bytes / devices, base.pauseNanos / 1e6,
+                    base.durableNanos / 1e6, second.bytes, second.pauseNanos / 1e6, second.durableNanos / 1e6,
+                    getRestoreMillis(), restoredPeaks, expectedPeaks);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "store=%s, devices=%d, base snapshot=%d bytes (%d bytes/device), " +
+                            "pause=%.1f ms, durable=%.1f ms; after %d changed devices: %d bytes, pause=%.1f ms, " +
+                            "durable=%.1f ms; restore=%.1f ms, peaks after restore=%d (expected %d)",
+                    store.getName(), devices, base.bytes, base.bytes / devices, base.pauseNanos / 1e6,
+                    base.durableNanos / 1e6, changedDevices, second.bytes, second.pauseNanos / 1e6,
+                    second.durableNanos / 1e6, getRestoreMillis(), restoredPeaks, expectedPeaks);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Soak test of Temp-Alert-App under steady synthetic load, failing when the heap or the pattern states keep growing.
+ * Description: Sends monitored DeviceTemperatureStream events of a fixed device population, at a fixed rate, to a
+ *              sandbox runtime of the app for hours. Each device walks its temperature randomly, so partial matches of
+ *              the temperature-increase-detector pattern are started, completed and discarded all the time.
+ *              Every sample interval the heap after GC, the GC pauses of the load and the live partitions and pattern
+ *              states of the runtime ({@link PatternStateCensus}) are recorded. Once the warm-up has passed, the
+ *              growth per hour of the heap and of the states per partition is fitted by least squares over the
+ *              samples, and the run fails when either exceeds its limit. With a bounded population these are flat
+ *              unless state leaks; soak.newDevicesPerMinute replaces devices with new deviceIDs, as an unbounded
+ *              partition key does in production, where growth is expected and can be measured.
+ *              Internal devices are not sent, the sandbox table would keep every row in memory.
+ * Run: java -Xmx2g -Dsoak.durationMinutes=240 -cp siddhi-test-suite-benchmark/target/benchmarks.jar
+ *      siddhi.test.suite.benchmark.SoakRunner [report directory, default target/soak]
+ *      or mvn verify -Psoak -pl siddhi-test-suite-benchmark -Dsoak.durationMinutes=240
+ *      System properties: soak.durationMinutes, soak.warmupMinutes, soak.sampleSeconds, soak.eventsPerSecond,
+ *      soak.devices, soak.newDevicesPerMinute, soak.maxHeapGrowthMbPerHour, soak.maxStateGrowthPerHour.
+ *      The samples are written to soak.csv in the report directory.
+ */
+public class SoakRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SoakRunner.class);
+
+    static final long DEFAULT_DURATION_MINUTES = 240;
+    static final long DEFAULT_WARMUP_MINUTES = 15;
+    static final long DEFAULT_SAMPLE_SECONDS = 60;
+    static final long DEFAULT_EVENTS_PER_SECOND = 5000;
+    static final int DEFAULT_DEVICES = 10000;
+    static final double DEFAULT_MAX_HEAP_GROWTH_MB_PER_HOUR = 8;
+    static final double DEFAULT_MAX_STATE_GROWTH_PER_HOUR = 0.05;
+
+    private static final double MIN_TEMP = 20.0;
+    private static final double MAX_TEMP = 100.0;
+
+    public static void main(String[] args) throws Exception {
+        Path reportDirectory = Paths.get(args.length > 0 ? args[0] : "target/soak");
+        Settings settings = Settings.fromSystemProperties();
+        logger.info("Soak test: " + settings);
+        Result result = run(settings, reportDirectory);
+        logger.info(result.toString());
+        if (!result.isPassed()) {
+            logger.error("Soak test failed: " + result.getFailure());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the soak test, writing each sample to soak.csv in the report directory as it is taken.
+     */
+    public static Result run(Settings settings, Path reportDirectory) throws IOException, InterruptedException {
+        Files.createDirectories(reportDirectory);
+        Path report = reportDirectory.resolve("soak.csv");
+        List<Sample> samples = new ArrayList<>();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try (GcPauseMonitor gcPauseMonitor = new GcPauseMonitor();
+             PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            AtomicLong alertCount = new AtomicLong();
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.ALERT_STREAM, new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    alertCount.addAndGet(events.length);
+                }
+            });
+            InputHandler deviceTemperatureStream = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM);
+            siddhiAppRuntime.start();
+
+            Load load = new Load(settings, deviceTemperatureStream);
+            Thread loadThread = new Thread(load, "soak-load");
+            loadThread.start();
+            writer.println(Sample.CSV_HEADER);
+            long start = System.nanoTime();
+            long end = start + TimeUnit.MINUTES.toNanos(settings.durationMinutes);
+            long sampleIntervalNanos = TimeUnit.SECONDS.toNanos(settings.sampleSeconds);
+            long previousEvents = 0;
+            long previousAt = start;
+            gcPauseMonitor.drain();
+            try {
+                for (long next = start + sampleIntervalNanos; next <= end && load.failure == null;
+                     next += sampleIntervalNanos) {
+                    long delay = next - System.nanoTime();
+                    if (delay > 0) {
+                        TimeUnit.NANOSECONDS.sleep(delay);
+                    }
+                    long now = System.nanoTime();
+                    long events = load.sent.get();
+                    GcPauseMonitor.Pauses pauses = gcPauseMonitor.drain();
+                    PatternStateCensus census = PatternStateCensus.take(siddhiAppRuntime);
+                    long heapAfterGc = JvmMemory.usedHeapAfterGc();
+                    Sample sample = new Sample(TimeUnit.NANOSECONDS.toSeconds(now - start), events,
+                            (events - previousEvents) * 1e9 / (now - previousAt), alertCount.get(), heapAfterGc,
+                            pauses, census);
+                    samples.add(sample);
+                    writer.println(sample.toCsv());
+                    writer.flush();
+                    logger.info(sample.toString());
+                    previousEvents = events;
+                    previousAt = now;
+                }
+            } finally {
+                load.stop();
+                loadThread.join();
+            }
+            if (load.failure != null) {
+                throw new IllegalStateException("The soak load stopped.", load.failure);
+            }
+        } finally {
+            siddhiManager.shutdown();
+        }
+        logger.info("Soak samples written to " + report.toAbsolutePath());
+        return Result.evaluate(settings, samples);
+    }
+
+    /**
+     * Least-squares slope of the values over the elapsed seconds, per hour.
+     */
+    static double slopePerHour(List<Sample> samples, ToDoubleFunction<Sample> value) {
+        int n = samples.size();
+        if (n < 2) {
+            return 0;
+        }
+        double meanX = 0;
+        double meanY = 0;
+        for (Sample sample : samples) {
+            meanX += sample.elapsedSeconds;
+            meanY += value.applyAsDouble(sample);
+        }
+        meanX /= n;
+        meanY /= n;
+        double covariance = 0;
+        double variance = 0;
+        for (Sample sample : samples) {
+            double dx = sample.elapsedSeconds - meanX;
+            covariance += dx * (value.applyAsDouble(sample) - meanY);
+            variance += dx * dx;
+        }
+        return variance == 0 ? 0 : covariance / variance * TimeUnit.HOURS.toSeconds(1);
+    }
+
+    /**
+     * Sends the events of the device population at the configured rate, on its own thread.
+     */
+    private static class Load implements Runnable {
+        private final Settings settings;
+        private final InputHandler inputHandler;
+        private final String[] deviceIds;
+        private final String[] roomIds;
+        private final double[] temps;
+        private final Random random = new Random(1234);
+        private final AtomicLong sent = new AtomicLong();
+        private volatile boolean running = true;
+        private volatile Throwable failure;
+        private long nextDeviceId;
+
+        Load(Settings settings, InputHandler inputHandler) {
+            this.settings = settings;
+            this.inputHandler = inputHandler;
+            this.deviceIds = new String[settings.devices];
+            this.roomIds = new String[settings.devices];
+            this.temps = new double[settings.devices];
+            for (int device = 0; device < settings.devices; device++) {
+                deviceIds[device] = "S" + nextDeviceId++;
+                roomIds[device] = "ServerRoom" + (device % 8);
+                temps[device] = MIN_TEMP + random.nextInt(60);
+            }
+        }
+
+        @Override
+        public void run() {
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.eventsPerSecond;
+            long newDeviceIntervalNanos = settings.newDevicesPerMinute > 0 ?
+                    TimeUnit.MINUTES.toNanos(1) / settings.newDevicesPerMinute : Long.MAX_VALUE;
+            long start = System.nanoTime();
+            long nextNewDeviceAt = start + newDeviceIntervalNanos;
+            try {
+                for (long event = 0; running; event++) {
+                    long sendAt = start + event * intervalNanos;
+                    long delay = sendAt - System.nanoTime();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+                    int device = (int) (event % deviceIds.length);
+                    if (sendAt >= nextNewDeviceAt) {
+                        deviceIds[random.nextInt(deviceIds.length)] = "S" + nextDeviceId++;
+                        nextNewDeviceAt += newDeviceIntervalNanos;
+                    }
+                    temps[device] = Math.min(MAX_TEMP, Math.max(MIN_TEMP,
+                            temps[device] + (random.nextInt(5) - 2) * 5.0));
+                    inputHandler.send(new Object[]{"monitored", deviceIds[device], temps[device], roomIds[device]});
+                    sent.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        void stop() {
+            running = false;
+        }
+    }
+
+    /**
+     * Load, duration and limits of a soak test.
+     */
+    public static class Settings {
+        private final long durationMinutes;
+        private final long warmupMinutes;
+        private final long sampleSeconds;
+        private final long eventsPerSecond;
+        private final int devices;
+        private final long newDevicesPerMinute;
+        private final double maxHeapGrowthMbPerHour;
+        private final double maxStateGrowthPerHour;
+
+        public Settings(long durationMinutes, long warmupMinutes, long sampleSeconds, long eventsPerSecond,
+                        int devices, long newDevicesPerMinute, double maxHeapGrowthMbPerHour,
+                        double maxStateGrowthPerHour) {
+            this.durationMinutes = durationMinutes;
+            this.warmupMinutes = warmupMinutes;
+            this.sampleSeconds = sampleSeconds;
+            this.eventsPerSecond = eventsPerSecond;
+            this.devices = devices;
+            this.newDevicesPerMinute = newDevicesPerMinute;
+            this.maxHeapGrowthMbPerHour = maxHeapGrowthMbPerHour;
+            this.maxStateGrowthPerHour = maxStateGrowthPerHour;
+        }
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Long.getLong("soak.durationMinutes", DEFAULT_DURATION_MINUTES),
+                    Long.getLong("soak.warmupMinutes", DEFAULT_WARMUP_MINUTES),
+                    Long.getLong("soak.sampleSeconds", DEFAULT_SAMPLE_SECONDS),
+                    Long.getLong("soak.eventsPerSecond", DEFAULT_EVENTS_PER_SECOND),
+                    Integer.getInteger("soak.devices", DEFAULT_DEVICES),
+                    Long.getLong("soak.newDevicesPerMinute", 0),
+                    Double.parseDouble(System.getProperty("soak.maxHeapGrowthMbPerHour",
+                            Double.toString(DEFAULT_MAX_HEAP_GROWTH_MB_PER_HOUR))),
+                    Double.parseDouble(System.getProperty("soak.maxStateGrowthPerHour",
+                            Double.toString(DEFAULT_MAX_STATE_GROWTH_PER_HOUR))));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "duration=%d min, warm-up=%d min, sample interval=%d s, " +
+                            "rate=%d events/s, devices=%d, new devices=%d/min, max heap growth=%.1f MB/h, " +
+                            "max state growth=%.3f states/partition/h", durationMinutes, warmupMinutes, sampleSeconds,
+                    eventsPerSecond, devices, newDevicesPerMinute, maxHeapGrowthMbPerHour, maxStateGrowthPerHour);
+        }
+    }
+
+    /**
+     * Readings of one sample interval.
+     */
+    public static class Sample {
+        static final String CSV_HEADER = "elapsedSeconds,events,eventsPerSecond,alerts,heapAfterGcBytes," +
+                "gcCount,gcPauseTotalMillis,gcPauseMaxMillis,partitions,liveStates,statesPerPartition," +
+                "maxStatesPerPartition,snapshotBytes";
+
+        private final long elapsedSeconds;
+        private final long events;
+        private final double eventsPerSecond;
+        private final long alerts;
+        private final long heapAfterGc;
+        private final GcPauseMonitor.Pauses pauses;
+        private final PatternStateCensus census;
+
+        Sample(long elapsedSeconds, long events, double eventsPerSecond, long alerts, long heapAfterGc,
+               GcPauseMonitor.Pauses pauses, PatternStateCensus census) {
+            this.elapsedSeconds = elapsedSeconds;
+            this.events = events;
+            this.eventsPerSecond = eventsPerSecond;
+            this.alerts = alerts;
+            this.heapAfterGc = heapAfterGc;
+            this.pauses = pauses;
+            this.census = census;
+        }
+
+        public long getHeapAfterGc() {
+            return heapAfterGc;
+        }
+
+        public PatternStateCensus getCensus() {
+            return census;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%.0f,%d,%d,%d,%d,%d,%d,%d,%.4f,%d,%d", elapsedSeconds, events,
+                    eventsPerSecond, alerts, heapAfterGc, pauses.getCount(), pauses.getTotalMillis(),
+                    pauses.getMaxMillis(), census.getPartitions(), census.getLiveStates(),
+                    census.getStatesPerPartition(), census.getMaxStatesPerPartition(), census.getSnapshotBytes());
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "t=%ds, events=%d (%.0f events/s), alerts=%d, heap after gc=%.1f MB, " +
+                            "gc pauses=%d (total %d ms, max %d ms), partitions=%d, live states=%d " +
+                            "(%.3f/partition, max %d)", elapsedSeconds, events, eventsPerSecond, alerts,
+                    heapAfterGc / 1048576.0, pauses.getCount(), pauses.getTotalMillis(), pauses.getMaxMillis(),
+                    census.getPartitions(), census.getLiveStates(), census.getStatesPerPartition(),
+                    census.getMaxStatesPerPartition());
+        }
+    }
+
+    /**
+     * Growth fitted over the samples taken after the warm-up, and the verdict against the limits.
+     */
+    public static class Result {
+        private final int samples;
+        private final double heapGrowthMbPerHour;
+        private final double stateGrowthPerHour;
+        private final long maxGcPauseMillis;
+        private final String failure;
+
+        private Result(int samples, double heapGrowthMbPerHour, double stateGrowthPerHour, long maxGcPauseMillis,
+                       String failure) {
+            this.samples = samples;
+            this.heapGrowthMbPerHour = heapGrowthMbPerHour;
+            this.stateGrowthPerHour = stateGrowthPerHour;
+            this.maxGcPauseMillis = maxGcPauseMillis;
+            this.failure = failure;
+        }
+
+        static Result evaluate(Settings settings, List<Sample> samples) {
+            List<Sample> steady = new ArrayList<>();
+            long maxGcPauseMillis = 0;
+            for (Sample sample : samples) {
+                if (sample.elapsedSeconds >= TimeUnit.MINUTES.toSeconds(settings.warmupMinutes)) {
+                    steady.add(sample);
+                }
+                maxGcPauseMillis = Math.max(maxGcPauseMillis, sample.pauses.getMaxMillis());
+            }
+            double heapGrowth = slopePerHour(steady, sample -> sample.heapAfterGc) / 1048576.0;
+            double stateGrowth = slopePerHour(steady, sample -> sample.census.getStatesPerPartition());
+            String failure = null;
+            if (steady.size() < 3) {
+                failure = "only " + steady.size() + " samples were taken after the warm-up, at least 3 are needed";
+            } else if (heapGrowth > settings.maxHeapGrowthMbPerHour) {
+                failure = String.format(Locale.ROOT, "heap after GC grows by %.2f MB/h, the limit is %.2f MB/h",
+                        heapGrowth, settings.maxHeapGrowthMbPerHour);
+            } else if (stateGrowth > settings.maxStateGrowthPerHour) {
+                failure = String.format(Locale.ROOT, "live pattern states grow by %.4f states/partition/h, " +
+                        "the limit is %.4f", stateGrowth, settings.maxStateGrowthPerHour);
+            }
+            return new Result(steady.size(), heapGrowth, stateGrowth, maxGcPauseMillis, failure);
+        }
+
+        public boolean isPassed() {
+            return failure == null;
+        }
+
+        public String getFailure() {
+            return failure;
+        }
+
+        public double getHeapGrowthMbPerHour() {
+            return heapGrowthMbPerHour;
+        }
+
+        public double getStateGrowthPerHour() {
+            return stateGrowthPerHour;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Soak result: %s, samples after warm-up=%d, heap growth=%.2f MB/h, " +
+                            "state growth=%.4f states/partition/h, max gc pause=%d ms",
+                    isPassed() ? "passed" : "failed", samples, heapGrowthMbPerHour, stateGrowthPerHour,
+                    maxGcPauseMillis);
+        }
+    }
+}
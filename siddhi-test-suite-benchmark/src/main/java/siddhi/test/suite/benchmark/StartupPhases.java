@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.query.api.SiddhiApp;
+import io.siddhi.query.compiler.SiddhiCompiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import siddhi.test.suite.extension.app.SiddhiAppCache;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+import siddhi.test.suite.extension.nats.LoopbackNatsSink;
+import siddhi.test.suite.extension.nats.LoopbackNatsSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first alert of Temp-Alert-App, broken into startup phases, with and without the parsed app cache.
+ * Description: Each iteration starts the app over LoopbackNatsBroker from scratch and times its phases:
+ *              extensions, creating the SiddhiManager, which scans the classpath for extensions, and registering the
+ *              loopback NATS source and sink; parse, reading the app and compiling it to a SiddhiApp; runtime,
+ *              building the SiddhiAppRuntime; start, starting it without sources; sources, connecting the NATS
+ *              source; and first event, publishing a rise, a peak and a fall of one device until its alert is
+ *              received.
+ *              Each app cache mode runs in a JVM of its own, so its first iteration is the cold start of a new pod:
+ *              none parses the app on every iteration; memory takes it from the in-memory {@link SiddhiAppCache},
+ *              which leaves the parse to the first iteration; and disk sets the cache directory of SiddhiAppCache,
+ *              written before the JVM starts, so even the first iteration reads the parsed app instead of parsing.
+ * Run: java -cp siddhi-test-suite-benchmark/target/benchmarks.jar siddhi.test.suite.benchmark.StartupPhases
+ *      [iterations, default 20]
+ *      A CSV report of every iteration is written to target/startup.csv
+ */
+public class StartupPhases {
+    private static final Logger logger = LoggerFactory.getLogger(StartupPhases.class);
+
+    static final int DEFAULT_ITERATIONS = 20;
+    static final String NO_CACHE = "none";
+    static final String MEMORY_CACHE = "memory";
+    static final String DISK_CACHE = "disk";
+
+    private static final String CHILD = "--child";
+    private static final String RESULT_PREFIX = "STARTUP_RESULT ";
+    private static final long FIRST_ALERT_TIMEOUT_SECONDS = 30;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && CHILD.equals(args[0])) {
+            String mode = args[1];
+            int iterations = Integer.parseInt(args[2]);
+            List<Phases> results = new ArrayList<>();
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                Phases result = measure(mode, iteration);
+                results.add(result);
+                System.out.println(RESULT_PREFIX + result.toCsv());
+            }
+            logger.info("First iteration: " + results.get(0));
+            if (iterations > 1) {
+                logger.info("Median of later iterations: " + Phases.median(results.subList(1, iterations)));
+            }
+            return;
+        }
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        Path cacheDirectory = Paths.get("target", "startup-app-cache").toAbsolutePath();
+        writeCacheDirectory(cacheDirectory);
+        Path report = Paths.get("target", "startup.csv");
+        Files.createDirectories(report.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(Phases.CSV_HEADER);
+            for (String mode : new String[]{NO_CACHE, MEMORY_CACHE, DISK_CACHE}) {
+                for (String result : runChild(mode, iterations, cacheDirectory)) {
+                    writer.println(result);
+                }
+            }
+        }
+        logger.info("Startup report written to " + report.toAbsolutePath());
+    }
+
+    /**
+     * Starts the app and times each phase until the first alert, with the parsed app taken from SiddhiAppCache
+     * unless the app cache mode is none. The disk mode needs the cache directory property of SiddhiAppCache set.
+     */
+    public static Phases measure(String mode, int iteration) throws IOException, InterruptedException {
+        long[] nanos = new long[Phases.NAMES.length];
+        SiddhiManager siddhiManager = null;
+        CountDownLatch alertReceived = new CountDownLatch(1);
+        LoopbackNatsBroker.Subscriber alertSubscriber = payload -> alertReceived.countDown();
+        LoopbackNatsBroker.subscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+        try {
+            long start = System.nanoTime();
+            siddhiManager = new SiddhiManager();
+            siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+            siddhiManager.setExtension("sink:nats", LoopbackNatsSink.class);
+            long phaseEnd = System.nanoTime();
+            nanos[0] = phaseEnd - start;
+
+            TemperatureAlertApp.setLoopbackEnvironment();
+            String appText = TemperatureAlertApp.loadLoopbackApp();
+            SiddhiApp siddhiApp = NO_CACHE.equals(mode) ?
+                    SiddhiCompiler.parse(SiddhiCompiler.updateVariables(appText)) : SiddhiAppCache.get(appText);
+            nanos[1] = System.nanoTime() - phaseEnd;
+            phaseEnd += nanos[1];
+
+            SiddhiAppRuntime siddhiAppRuntime;
+            synchronized (siddhiApp) {
+                siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(siddhiApp);
+            }
+            nanos[2] = System.nanoTime() - phaseEnd;
+            phaseEnd += nanos[2];
+
+            siddhiAppRuntime.startWithoutSources();
+            nanos[3] = System.nanoTime() - phaseEnd;
+            phaseEnd += nanos[3];
+
+            siddhiAppRuntime.startSources();
+            nanos[4] = System.nanoTime() - phaseEnd;
+            phaseEnd += nanos[4];
+
+            String deviceId = "startup-probe-" + iteration;
+            for (double temp : new double[]{40.0, 80.0, 30.0}) {
+                LoopbackNatsBroker.publish(TemperatureAlertApp.INPUT_DESTINATION, "{\"event\":{\"type\":" +
+                        "\"monitored\",\"deviceID\":\"" + deviceId + "\",\"temp\":" + temp + ",\"roomID\":" +
+                        "\"ServerRoom1\"}}");
+            }
+            if (!alertReceived.await(FIRST_ALERT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("No alert was received within " + FIRST_ALERT_TIMEOUT_SECONDS +
+                        " seconds of starting the app.");
+            }
+            nanos[5] = System.nanoTime() - phaseEnd;
+            return new Phases(mode, iteration, nanos);
+        } finally {
+            LoopbackNatsBroker.unsubscribe(TemperatureAlertApp.OUTPUT_DESTINATION, alertSubscriber);
+            if (siddhiManager != null) {
+                siddhiManager.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Parses the app into the cache directory, as the build of a pod image would, for the JVM of the disk mode.
+     */
+    private static void writeCacheDirectory(Path cacheDirectory) throws IOException {
+        String previousDirectory = System.setProperty(SiddhiAppCache.DIRECTORY_PROPERTY, cacheDirectory.toString());
+        try {
+            TemperatureAlertApp.setLoopbackEnvironment();
+            SiddhiAppCache.get(TemperatureAlertApp.loadLoopbackApp());
+        } finally {
+            if (previousDirectory == null) {
+                System.clearProperty(SiddhiAppCache.DIRECTORY_PROPERTY);
+            } else {
+                System.setProperty(SiddhiAppCache.DIRECTORY_PROPERTY, previousDirectory);
+            }
+        }
+    }
+
+    private static List<String> runChild(String mode, int iterations, Path cacheDirectory)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path")));
+        if (DISK_CACHE.equals(mode)) {
+            command.add("-D" + SiddhiAppCache.DIRECTORY_PROPERTY + "=" + cacheDirectory);
+        }
+        command.addAll(Arrays.asList(StartupPhases.class.getName(), CHILD, mode, Integer.toString(iterations)));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> results = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    results.add(line.substring(RESULT_PREFIX.length()));
+                } else {
+                    logger.info("[" + mode + "] " + line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || results.size() != iterations) {
+            throw new IllegalStateException("The run of app cache mode " + mode + " failed with exit code " +
+                    exitCode + ".");
+        }
+        return results;
+    }
+
+    /**
+     * Time taken by each startup phase of one iteration.
+     */
+    public static class Phases {
+        static final String[] NAMES = {"extensions", "parse", "runtime", "start", "sources", "firstEvent"};
+        static final String CSV_HEADER = "appCache,iteration,extensionsMillis,parseMillis,runtimeMillis," +
+                "startMillis,sourcesMillis,firstEventMillis,totalMillis";
+
+        private final String mode;
+        private final int iteration;
+        private final long[] nanos;
+
+        Phases(String mode, int iteration, long[] nanos) {
+            this.mode = mode;
+            this.iteration = iteration;
+            this.nanos = nanos;
+        }
+
+        public double getMillis(String phase) {
+            int index = Arrays.asList(NAMES).indexOf(phase);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown startup phase '" + phase + "'.");
+            }
+            return nanos[index] / 1e6;
+        }
+
+        public double getTotalMillis() {
+            long total = 0;
+            for (long phaseNanos : nanos) {
+                total += phaseNanos;
+            }
+            return total / 1e6;
+        }
+
+        /**
+         * Median of each phase over the given iterations, as an iteration of its own numbered -1.
+         */
+        static Phases median(List<Phases> results) {
+            long[] medians = new long[NAMES.length];
+            long[] values = new long[results.size()];
+            for (int phase = 0; phase < NAMES.length; phase++) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = results.get(i).nanos[phase];
+                }
+                Arrays.sort(values);
+                medians[phase] = values[values.length / 2];
+            }
+            return new Phases(results.get(0).mode, -1, medians);
+        }
+
+        String toCsv() {
+            StringBuilder csv = new StringBuilder().append(mode).append(',').append(iteration);
+            for (long phaseNanos : nanos) {
+                csv.append(String.format(Locale.ROOT, ",%.3f", phaseNanos / 1e6));
+            }
+            return csv.append(String.format(Locale.ROOT, ",%.3f", getTotalMillis())).toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("appCache=").append(mode);
+            for (int phase = 0; phase < NAMES.length; phase++) {
+                text.append(String.format(Locale.ROOT, ", %s=%.2f ms", NAMES[phase], nanos[phase] / 1e6));
+            }
+            return text.append(String.format(Locale.ROOT, ", total=%.2f ms", getTotalMillis())).toString();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import siddhi.test.suite.extension.app.SiddhiAppCache;
+import siddhi.test.suite.extension.batch.ChunkStreamProcessor;
+import siddhi.test.suite.extension.nats.LoopbackNatsSink;
+import siddhi.test.suite.extension.nats.LoopbackNatsSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Access point to Temp-Alert-App for benchmarks.
+ * Holds the stream, table and query names of the app and loads it from the classpath.
+ * Siddhi App: siddhi-test-suite/src/main/resources/TemperatureAlertApp/apps/Temp-Alert-App.siddhi
+ */
+public final class TemperatureAlertApp {
+
+    public static final String APP_RESOURCE = "TemperatureAlertApp/apps/Temp-Alert-App.siddhi";
+    public static final String PEAK_DETECTOR_APP_RESOURCE =
+            "TemperatureAlertApp/apps/Temp-Alert-App-PeakDetector.siddhi";
+
+    public static final String DEVICE_TEMPERATURE_STREAM = "DeviceTemperatureStream";
+    public static final String MONITORED_DEVICES_TEMP_STREAM = "MonitoredDevicesTempStream";
+    public static final String PEAK_TEMP_STREAM = "PeakTempStream";
+    public static final String ALERT_STREAM = "AlertStream";
+    public static final String INTERNAL_DEVICES_TEMP_TABLE = "InternalDevicesTempTable";
+
+    public static final String INPUT_DESTINATION = "Temp-Alert-App_DeviceTempStream";
+    public static final String OUTPUT_DESTINATION = "Temp-Alert-App_AlertStream";
+
+    public static final String MONITERED_FILTER = "monitered-filter";
+    public static final String INTERNAL_FILTER = "internal-filter";
+    public static final String TEMPERATURE_INCREASE_DETECTOR = "temperature-increase-detector";
+    public static final String TEMPERATURE_RANGE_FILTER = "temperature-range-filter";
+
+    public static final String EMBEDDED_STORE_DRIVER = "org.h2.Driver";
+    public static final String EMBEDDED_STORE_USERNAME = "sa";
+    public static final String EMBEDDED_STORE_PASSWORD = "";
+
+    private static final String INTERNAL_FILTER_INPUT = "from DeviceTemperatureStream[type == 'internal']";
+    private static final String DEVICE_TEMPERATURE_STREAM_DEFINITION = "define stream DeviceTemperatureStream";
+    private static final String INTERNAL_DEVICES_TEMP_TABLE_DEFINITION = "define table InternalDevicesTempTable";
+    private static final String MONITERED_FILTER_INFO = "@info(name = 'monitered-filter')";
+    private static final String MONITORED_DEVICES_TEMP_STREAM_DEFINITION =
+            "define stream MonitoredDevicesTempStream (deviceID string, temp double, roomID string);";
+
+    private TemperatureAlertApp() {
+    }
+
+    /**
+     * Reads the app definition from the classpath.
+     */
+    public static String load() throws IOException {
+        return loadResource(APP_RESOURCE);
+    }
+
+    /**
+     * Creates a sandbox runtime of the app, sources, sinks and stores are replaced with in-memory ones.
+     */
+    public static SiddhiAppRuntime createSandboxRuntime(SiddhiManager siddhiManager) throws IOException {
+        return createSandboxRuntime(siddhiManager, APP_RESOURCE);
+    }
+
+    /**
+     * Creates a sandbox runtime of the given variant of the app, such as {@link #PEAK_DETECTOR_APP_RESOURCE}.
+     * The app is parsed once per JVM, see {@link SiddhiAppCache}.
+     */
+    public static SiddhiAppRuntime createSandboxRuntime(SiddhiManager siddhiManager, String appResource)
+            throws IOException {
+        setBlankEnvironment();
+        return SiddhiAppCache.createSandboxRuntime(siddhiManager, loadResource(appResource));
+    }
+
+    /**
+     * Creates a runtime of the app with its NATS source and sink and JSON mappers, running over LoopbackNatsBroker.
+     * Log sinks are removed and the RDBMS store is replaced with an in-memory table. The app is parsed once per JVM.
+     */
+    public static SiddhiAppRuntime createLoopbackRuntime(SiddhiManager siddhiManager) throws IOException {
+        setLoopbackEnvironment();
+        siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+        siddhiManager.setExtension("sink:nats", LoopbackNatsSink.class);
+        return SiddhiAppCache.createRuntime(siddhiManager, loadLoopbackApp());
+    }
+
+    /**
+     * Creates a runtime of the app without its NATS source and sink, writing InternalDevicesTempTable to the embedded
+     * database at the given JDBC url through siddhi-store-rdbms.
+     * When batchSize is positive, internal-filter writes are grouped with {@link #withInternalWriteBatching}.
+     */
+    public static SiddhiAppRuntime createEmbeddedStoreRuntime(SiddhiManager siddhiManager, String jdbcUrl,
+                                                              int batchSize, long flushIntervalMillis)
+            throws IOException {
+        setBlankEnvironment();
+        siddhiManager.setExtension("batch:chunk", ChunkStreamProcessor.class);
+        String siddhiApp = withEmbeddedStore(withoutTransports(withoutLogSinks(load())), jdbcUrl);
+        return siddhiManager.createSiddhiAppRuntime(
+                withInternalWriteBatching(siddhiApp, batchSize, flushIntervalMillis));
+    }
+
+    /**
+     * Reads the app as run by {@link #createLoopbackRuntime}, without log sinks and with an in-memory table.
+     */
+    public static String loadLoopbackApp() throws IOException {
+        return withoutStore(withoutLogSinks(load()));
+    }
+
+    /**
+     * Creates a loopback runtime, as {@link #createLoopbackRuntime}, of one shard of the app. The shard consumes the
+     * subject {@link #shardDestination} of the input destination and publishes to the shared output destination.
+     */
+    public static SiddhiAppRuntime createLoopbackShardRuntime(SiddhiManager siddhiManager, int shard)
+            throws IOException {
+        setLoopbackEnvironment();
+        System.setProperty("INPUT_DESTINATION", shardDestination(INPUT_DESTINATION, shard));
+        siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+        siddhiManager.setExtension("sink:nats", LoopbackNatsSink.class);
+        return siddhiManager.createSiddhiAppRuntime(withoutStore(withoutLogSinks(load())));
+    }
+
+    /**
+     * Subject of the given shard, derived from the destination.
+     */
+    public static String shardDestination(String destination, int shard) {
+        return destination + "_shard" + shard;
+    }
+
+    /**
+     * Shard of a device, by the hash of its deviceID, so all events of a deviceID partition reach the same shard.
+     */
+    public static int shardOf(String deviceId, int shards) {
+        return Math.floorMod(deviceId.hashCode(), shards);
+    }
+
+    /**
+     * Creates a runtime of the app with its NATS source and sink and JSON mappers running over LoopbackNatsBroker,
+     * and InternalDevicesTempTable written to the embedded database at the given JDBC url through
+     * siddhi-store-rdbms, so that both the sink and the store side can be slowed down locally.
+     * The sink handles publish failures with the given on.error action, LOG drops the events and WAIT retries them.
+     * When asyncBufferSize is positive, the streams are processed asynchronously with {@link #withAsync}.
+     */
+    public static SiddhiAppRuntime createLoopbackEmbeddedStoreRuntime(SiddhiManager siddhiManager, String jdbcUrl,
+                                                                      String sinkOnError, int asyncBufferSize)
+            throws IOException {
+        setLoopbackEnvironment();
+        siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+        siddhiManager.setExtension("sink:nats", LoopbackNatsSink.class);
+        String siddhiApp = withSinkOnError(withEmbeddedStore(withoutLogSinks(load()), jdbcUrl), sinkOnError);
+        return siddhiManager.createSiddhiAppRuntime(asyncBufferSize > 0 ?
+                withAsync(siddhiApp, asyncBufferSize, 1, asyncBufferSize) : siddhiApp);
+    }
+
+    /**
+     * Removes the {@literal @}sink(type = 'log') annotations, which would log every event.
+     */
+    public static String withoutLogSinks(String siddhiApp) {
+        return siddhiApp.replaceAll("@sink\\(type = 'log'\\)\\s*\\n", "");
+    }
+
+    /**
+     * Removes the {@literal @}Store annotation so that InternalDevicesTempTable becomes an in-memory table.
+     */
+    public static String withoutStore(String siddhiApp) {
+        return siddhiApp.replaceAll("@Store\\(.*\\)\\s*\\n", "");
+    }
+
+    /**
+     * Removes the NATS {@literal @}source and {@literal @}sink annotations, events are sent and received in-process.
+     */
+    public static String withoutTransports(String siddhiApp) {
+        return siddhiApp.replaceAll("@(source|sink)\\(type\\s*=\\s*'nats'.*\\)\\s*\\n", "");
+    }
+
+    /**
+     * Sets the on.error action of the NATS {@literal @}sink, such as LOG or WAIT.
+     */
+    public static String withSinkOnError(String siddhiApp, String onError) {
+        return siddhiApp.replaceAll("@sink\\(type\\s*=\\s*'nats',", Matcher.quoteReplacement(
+                "@sink(type='nats', on.error='" + onError + "',"));
+    }
+
+    /**
+     * Points the {@literal @}Store annotation of InternalDevicesTempTable to an embedded H2 database instead of the
+     * TemperatureDB datasource.
+     */
+    public static String withEmbeddedStore(String siddhiApp, String jdbcUrl) {
+        return withEmbeddedStore(siddhiApp, jdbcUrl, 0, null);
+    }
+
+    /**
+     * Points InternalDevicesTempTable to an embedded H2 database, as {@link #withEmbeddedStore(String, String)}, with
+     * an in-memory {@literal @}Cache of the given size and cache.policy, such as FIFO, LRU or LFU, in front of it.
+     * A cacheSize of 0 adds no cache.
+     */
+    public static String withEmbeddedStore(String siddhiApp, String jdbcUrl, int cacheSize, String cachePolicy) {
+        String cache = cacheSize <= 0 ? "" : ", @Cache(size=\"" + cacheSize + "\", cache.policy=\"" + cachePolicy +
+                "\")";
+        String store = "@Store(type=\"rdbms\", jdbc.url=\"" + jdbcUrl + "\", username=\"" + EMBEDDED_STORE_USERNAME +
+                "\", password=\"" + EMBEDDED_STORE_PASSWORD + "\", jdbc.driver.name=\"" + EMBEDDED_STORE_DRIVER + "\"" +
+                cache + ")";
+        return siddhiApp.replaceAll("@Store\\(.*\\)", Matcher.quoteReplacement(store));
+    }
+
+    /**
+     * Adds an annotation, such as {@literal @}PrimaryKey('deviceID') or {@literal @}Index('deviceID'), to the
+     * definition of InternalDevicesTempTable. An empty annotation keeps the app as is.
+     */
+    public static String withInternalTableAnnotation(String siddhiApp, String annotation) {
+        if (annotation.isEmpty()) {
+            return siddhiApp;
+        }
+        return siddhiApp.replace(INTERNAL_DEVICES_TEMP_TABLE_DEFINITION, annotation + "\n" +
+                INTERNAL_DEVICES_TEMP_TABLE_DEFINITION);
+    }
+
+    /**
+     * Groups the internal-filter writes to InternalDevicesTempTable into chunks of up to batchSize events, held for at
+     * most flushIntervalMillis, so that each chunk is written as one JDBC batch. A batchSize of 0 keeps the app as is.
+     */
+    public static String withInternalWriteBatching(String siddhiApp, int batchSize, long flushIntervalMillis) {
+        if (batchSize <= 0) {
+            return siddhiApp;
+        }
+        return siddhiApp.replace(INTERNAL_FILTER_INPUT, INTERNAL_FILTER_INPUT + "#batch:chunk(" + batchSize + ", " +
+                flushIntervalMillis + " millisec)");
+    }
+
+    /**
+     * Processes DeviceTemperatureStream and MonitoredDevicesTempStream asynchronously, with the given
+     * {@literal @}async buffer.size, workers and batch.size.max. MonitoredDevicesTempStream, which the app defines
+     * implicitly through monitered-filter, is defined explicitly to carry the annotation.
+     */
+    public static String withAsync(String siddhiApp, int bufferSize, int workers, int batchSizeMax) {
+        String async = "@async(buffer.size='" + bufferSize + "', workers='" + workers + "', batch.size.max='" +
+                batchSizeMax + "')\n";
+        return siddhiApp
+                .replace(DEVICE_TEMPERATURE_STREAM_DEFINITION, async + DEVICE_TEMPERATURE_STREAM_DEFINITION)
+                .replace(MONITERED_FILTER_INFO, async + MONITORED_DEVICES_TEMP_STREAM_DEFINITION + "\n\n" +
+                        MONITERED_FILTER_INFO);
+    }
+
+    /**
+     * Resolves the transport variables of the app to the destinations used on LoopbackNatsBroker.
+     */
+    public static void setLoopbackEnvironment() {
+        Map<String, String> envMap = new HashMap<>();
+        envMap.put("CLUSTER_ID", "TemperatureCluster");
+        envMap.put("INPUT_DESTINATION", INPUT_DESTINATION);
+        envMap.put("OUTPUT_DESTINATION", OUTPUT_DESTINATION);
+        envMap.put("NATS_URL", "nats://localhost:4222");
+        System.getProperties().putAll(envMap);
+    }
+
+    /**
+     * Resolves the ${...} variables of the app when transports are not used, same as the unit tests.
+     */
+    public static void setBlankEnvironment() {
+        Map<String, String> envMap = new HashMap<>();
+        envMap.put("CLUSTER_ID", "");
+        envMap.put("INPUT_DESTINATION", "");
+        envMap.put("OUTPUT_DESTINATION", "");
+        envMap.put("NATS_URL", "");
+        envMap.put("DATABASE_URL", "");
+        envMap.put("USERNAME", "");
+        envMap.put("PASSWORD", "");
+        envMap.put("JDBC_DRIVER_NAME", "");
+        System.getProperties().putAll(envMap);
+    }
+
+    static String loadResource(String resource) throws IOException {
+        InputStream inputStream = TemperatureAlertApp.class.getClassLoader().getResourceAsStream(resource);
+        if (inputStream == null) {
+            throw new IOException("Resource '" + resource + "' is not available in the classpath.");
+        }
+        try (InputStream in = inputStream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
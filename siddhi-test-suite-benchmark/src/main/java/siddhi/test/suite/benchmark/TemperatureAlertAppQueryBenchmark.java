@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.query.output.callback.QueryCallback;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-query throughput benchmarks for Temp-Alert-App.
+ * Description: Isolates one @info query of Temp-Alert-App per benchmark, as QueryProfiler.isolateQuery does, loads
+ *              it through SiddhiManager.createSandboxSiddhiAppRuntime and sends events straight into its input
+ *              stream, so the queries that consume its output are not part of the numbers:
+ *              monitered-filter              -> DeviceTemperatureStream
+ *              internal-filter               -> DeviceTemperatureStream (+ in-memory InternalDevicesTempTable insert)
+ *              temperature-increase-detector -> MonitoredDevicesTempStream
+ *              temperature-range-filter      -> PeakTempStream
+ * The runtime is recreated for every iteration so that table rows and pattern states do not pile up.
+ * Run: java -jar siddhi-test-suite-benchmark/target/benchmarks.jar TemperatureAlertAppQueryBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class TemperatureAlertAppQueryBenchmark {
+
+    static final int DEVICES = 1024;
+
+    @Benchmark
+    public void moniteredFilter(MoniteredFilterState state) throws InterruptedException {
+        state.sendNext();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    public void internalFilter(InternalFilterState state) throws InterruptedException {
+        state.sendNext();
+    }
+
+    @Benchmark
+    public void temperatureIncreaseDetector(TemperatureIncreaseDetectorState state) throws InterruptedException {
+        state.sendNext();
+    }
+
+    @Benchmark
+    public void temperatureRangeFilter(TemperatureRangeFilterState state) throws InterruptedException {
+        state.sendNext();
+    }
+
+    /**
+     * Temperatures of a device for one rise-peak-fall cycle, peaking at 70 + device % 10, so the 40% of the devices
+     * with device % 10 of 6 or more peak above the alert threshold of 75.
+     */
+    static double[] peakCycle(int device) {
+        return new double[]{40.0, 60.0, 70.0 + (device % 10), 30.0};
+    }
+
+    /**
+     * Sandbox runtime of one isolated query of the app, feeding one pre-built, cyclic set of events to its stream.
+     */
+    public abstract static class QueryState {
+        private SiddhiManager siddhiManager;
+        private InputHandler inputHandler;
+        private Object[][] events;
+        private int next;
+        long outputCount;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            siddhiManager = new SiddhiManager();
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSandboxSiddhiAppRuntime(
+                    QueryProfiler.isolateQuery(siddhiManager, queryName()));
+            addOutputCallback(siddhiAppRuntime);
+            inputHandler = siddhiAppRuntime.getInputHandler(inputStream());
+            events = createEvents();
+            next = 0;
+            outputCount = 0;
+            siddhiAppRuntime.start();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            siddhiManager.shutdown();
+            if (outputCount == 0) {
+                throw new IllegalStateException("No output was received from the benchmarked query, " +
+                        "the measured numbers are not valid.");
+            }
+        }
+
+        void sendNext() throws InterruptedException {
+            inputHandler.send(events[next]);
+            if (++next == events.length) {
+                next = 0;
+            }
+        }
+
+        abstract String queryName();
+
+        abstract String inputStream();
+
+        abstract Object[][] createEvents();
+
+        abstract void addOutputCallback(SiddhiAppRuntime siddhiAppRuntime);
+
+        StreamCallback countingStreamCallback() {
+            return new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    outputCount += events.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * Monitored devices going through rise-peak-fall cycles.
+     */
+    @State(Scope.Thread)
+    public static class MoniteredFilterState extends QueryState {
+
+        @Override
+        String queryName() {
+            return TemperatureAlertApp.MONITERED_FILTER;
+        }
+
+        @Override
+        String inputStream() {
+            return TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM;
+        }
+
+        @Override
+        Object[][] createEvents() {
+            Object[][] events = new Object[DEVICES * 4][];
+            for (int step = 0; step < 4; step++) {
+                for (int device = 0; device < DEVICES; device++) {
+                    events[step * DEVICES + device] = new Object[]{"monitored", "M" + device,
+                            peakCycle(device)[step], "ServerRoom" + (device % 8)};
+                }
+            }
+            return events;
+        }
+
+        @Override
+        void addOutputCallback(SiddhiAppRuntime siddhiAppRuntime) {
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM, countingStreamCallback());
+        }
+    }
+
+    /**
+     * Internal devices reporting steady temperatures.
+     */
+    @State(Scope.Thread)
+    public static class InternalFilterState extends QueryState {
+
+        @Override
+        String queryName() {
+            return TemperatureAlertApp.INTERNAL_FILTER;
+        }
+
+        @Override
+        String inputStream() {
+            return TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM;
+        }
+
+        @Override
+        Object[][] createEvents() {
+            Object[][] events = new Object[DEVICES][];
+            for (int device = 0; device < DEVICES; device++) {
+                events[device] = new Object[]{"internal", "I" + device, 20.0 + (device % 15), "Basement"};
+            }
+            return events;
+        }
+
+        @Override
+        void addOutputCallback(SiddhiAppRuntime siddhiAppRuntime) {
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.INTERNAL_FILTER, new QueryCallback() {
+                @Override
+                public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                    outputCount += inEvents.length;
+                }
+            });
+        }
+    }
+
+    /**
+     * Monitored devices going through rise-peak-fall cycles, fed after the monitered-filter.
+     */
+    @State(Scope.Thread)
+    public static class TemperatureIncreaseDetectorState extends QueryState {
+
+        @Override
+        String queryName() {
+            return TemperatureAlertApp.TEMPERATURE_INCREASE_DETECTOR;
+        }
+
+        @Override
+        String inputStream() {
+            return TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM;
+        }
+
+        @Override
+        Object[][] createEvents() {
+            Object[][] events = new Object[DEVICES * 4][];
+            for (int step = 0; step < 4; step++) {
+                for (int device = 0; device < DEVICES; device++) {
+                    events[step * DEVICES + device] = new Object[]{"M" + device, peakCycle(device)[step],
+                            "ServerRoom" + (device % 8)};
+                }
+            }
+            return events;
+        }
+
+        @Override
+        void addOutputCallback(SiddhiAppRuntime siddhiAppRuntime) {
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.PEAK_TEMP_STREAM, countingStreamCallback());
+        }
+    }
+
+    /**
+     * Detected peaks, 40% of them above the alert threshold.
+     */
+    @State(Scope.Thread)
+    public static class TemperatureRangeFilterState extends QueryState {
+
+        @Override
+        String queryName() {
+            return TemperatureAlertApp.TEMPERATURE_RANGE_FILTER;
+        }
+
+        @Override
+        String inputStream() {
+            return TemperatureAlertApp.PEAK_TEMP_STREAM;
+        }
+
+        @Override
+        Object[][] createEvents() {
+            Object[][] events = new Object[DEVICES][];
+            for (int device = 0; device < DEVICES; device++) {
+                double[] cycle = peakCycle(device);
+                events[device] = new Object[]{"M" + device, cycle[1], cycle[2]};
+            }
+            return events;
+        }
+
+        @Override
+        void addOutputCallback(SiddhiAppRuntime siddhiAppRuntime) {
+            siddhiAppRuntime.addCallback(TemperatureAlertApp.ALERT_STREAM, countingStreamCallback());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Paths;
+
+/**
+ * Tests that Temp-Alert-App raises one alert per device cycle when many devices send concurrently with
+ * ContentionHarness.
+ */
+public class ContentionHarnessTests {
+    private static final Logger logger = LoggerFactory.getLogger(ContentionHarnessTests.class);
+
+    private static final int DEVICES = 2000;
+    private static final int CYCLES = 3;
+
+    @Test
+    public void testConcurrentDevicesThroughInputHandler() throws Exception {
+        logger.info("Tests the alerts of " + DEVICES + " devices sending concurrently through the input handler");
+        assertAlerts(ContentionHarness.run(ContentionHarness.INPUT_HANDLER, DEVICES, CYCLES,
+                Paths.get("target", "contention-tests")));
+    }
+
+    @Test
+    public void testConcurrentDevicesThroughNats() throws Exception {
+        logger.info("Tests the alerts of " + DEVICES + " devices sending concurrently through the " +
+                "loopback NATS source");
+        assertAlerts(ContentionHarness.run(ContentionHarness.NATS, DEVICES, CYCLES,
+                Paths.get("target", "contention-tests")));
+    }
+
+    private static void assertAlerts(ContentionHarness.Result result) {
+        Assert.assertEquals(result.getExpectedAlerts(), DEVICES * CYCLES);
+        Assert.assertEquals(result.getAlerts(), result.getExpectedAlerts(),
+                "Every device cycle should raise exactly one alert.");
+    }
+}
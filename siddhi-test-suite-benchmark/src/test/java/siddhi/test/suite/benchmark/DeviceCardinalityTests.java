@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+/**
+ * Regression tests for the heap retained per deviceID partition of Temp-Alert-App.
+ * The ceiling is set with -Dcardinality.maxBytesPerDevice (siddhi-test-suite-benchmark/pom.xml).
+ */
+public class DeviceCardinalityTests {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceCardinalityTests.class);
+
+    private static final int DEVICES = 10000;
+    private static final long DEFAULT_MAX_BYTES_PER_DEVICE = 8192;
+
+    @Test
+    public void testBytesPerDevice() throws IOException, InterruptedException {
+        logger.info("Tests the heap retained per partition with " + DEVICES + " devices");
+        long maxBytesPerDevice = Long.getLong("cardinality.maxBytesPerDevice", DEFAULT_MAX_BYTES_PER_DEVICE);
+
+        DeviceCardinalityScaling.Result result = DeviceCardinalityScaling.measure(DEVICES,
+                DeviceCardinalityScaling.DEFAULT_CYCLES);
+        logger.info(result.toString());
+        Assert.assertTrue(result.getPeaks() > 0, "No peaks were detected, the pattern did not run.");
+        Assert.assertTrue(result.getBytesPerDevice() <= maxBytesPerDevice, "Heap retained per device " +
+                result.getBytesPerDevice() + " bytes exceeds the limit of " + maxBytesPerDevice + " bytes.");
+    }
+}
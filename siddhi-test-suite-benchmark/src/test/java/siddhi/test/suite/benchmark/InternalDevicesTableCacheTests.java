@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.TreeSet;
+
+/**
+ * Correctness of on-demand queries on InternalDevicesTempTable behind a @Cache smaller than the table.
+ * Verifies lookups of evicted rows, range queries and rows written through the app are answered from the store
+ * as if there were no cache, with each cache policy.
+ */
+public class InternalDevicesTableCacheTests {
+    private static final Logger logger = LoggerFactory.getLogger(InternalDevicesTableCacheTests.class);
+
+    private static final int ROWS = 250;
+    private static final int CACHE_SIZE = 10;
+    private static final long ROW_WAIT_MILLIS = 10000;
+
+    @Test
+    public void testFifoEviction() throws Exception {
+        logger.info("Tests on-demand queries through a FIFO cache smaller than the table");
+        assertQueriesThroughCache("FIFO");
+    }
+
+    @Test
+    public void testLruEviction() throws Exception {
+        logger.info("Tests on-demand queries through an LRU cache smaller than the table");
+        assertQueriesThroughCache("LRU");
+    }
+
+    @Test
+    public void testLfuEviction() throws Exception {
+        logger.info("Tests on-demand queries through an LFU cache smaller than the table");
+        assertQueriesThroughCache("LFU");
+    }
+
+    private void assertQueriesThroughCache(String cachePolicy)
+            throws IOException, SQLException, InterruptedException {
+        String jdbcUrl = InternalDevicesTableWriteBenchmark.embeddedJdbcUrl("cache");
+        InternalDevicesTableQueryBenchmark.createTable(jdbcUrl, "primaryKey");
+        InternalDevicesTableQueryBenchmark.loadRows(jdbcUrl, ROWS);
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = InternalDevicesTableQueryBenchmark.createQueryRuntime(siddhiManager,
+                    jdbcUrl, "primaryKey", CACHE_SIZE, cachePolicy);
+            InputHandler deviceTemperatureStream = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM);
+            siddhiAppRuntime.start();
+
+            //Hot rows are read again between cold ones, so every policy evicts while the cold rows stream through
+            for (int pass = 0; pass < 2; pass++) {
+                for (int row = 0; row < ROWS; row++) {
+                    assertRow(siddhiAppRuntime, row);
+                    assertRow(siddhiAppRuntime, row % CACHE_SIZE);
+                }
+            }
+
+            Event[] range = InternalDevicesTableQueryBenchmark.queryDeviceRange(siddhiAppRuntime, ROWS / 2);
+            Assert.assertEquals(range.length, InternalDevicesTableQueryBenchmark.RANGE_ROWS,
+                    "A range query returned only part of the rows.");
+            TreeSet<Object> rangeDevices = new TreeSet<>();
+            for (Event event : range) {
+                rangeDevices.add(event.getData(0));
+            }
+            Assert.assertEquals(rangeDevices.size(), InternalDevicesTableQueryBenchmark.RANGE_ROWS);
+            Assert.assertEquals(rangeDevices.first(),
+                    InternalDevicesTableQueryBenchmark.deviceId(ROWS / 2));
+
+            //Rows missing when looked up become visible once the app writes them
+            String newDevice = InternalDevicesTableQueryBenchmark.deviceId(ROWS);
+            Event[] missing = InternalDevicesTableQueryBenchmark.lookupDevice(siddhiAppRuntime, ROWS);
+            Assert.assertTrue(missing == null || missing.length == 0, "A row was found before it was written.");
+            deviceTemperatureStream.send(new Object[]{"internal", newDevice, 99.5, "Basement"});
+            Assert.assertEquals(InternalDevicesTableWriteBenchmark.awaitRows(jdbcUrl, ROWS + 1, ROW_WAIT_MILLIS),
+                    ROWS + 1);
+            Event[] written = InternalDevicesTableQueryBenchmark.lookupDevice(siddhiAppRuntime, ROWS);
+            Assert.assertEquals(written.length, 1, "A row written by the app is not visible through the cache.");
+            Assert.assertEquals(written[0].getData(1), 99.5);
+        } finally {
+            siddhiManager.shutdown();
+            InternalDevicesTableWriteBenchmark.dropDatabase(jdbcUrl);
+        }
+    }
+
+    private static void assertRow(SiddhiAppRuntime siddhiAppRuntime, int row) {
+        Event[] events = InternalDevicesTableQueryBenchmark.lookupDevice(siddhiAppRuntime, row);
+        Assert.assertNotNull(events, "No rows for " + InternalDevicesTableQueryBenchmark.deviceId(row));
+        Assert.assertEquals(events.length, 1, "Rows of " + InternalDevicesTableQueryBenchmark.deviceId(row));
+        Assert.assertEquals(events[0].getData(0), InternalDevicesTableQueryBenchmark.deviceId(row));
+        Assert.assertEquals(events[0].getData(1), 20.0 + row % 60);
+    }
+}
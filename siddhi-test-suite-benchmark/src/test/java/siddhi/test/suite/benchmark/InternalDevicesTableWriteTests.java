@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.stream.input.InputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Regression tests for the writes of internal-filter into InternalDevicesTempTable on the embedded store.
+ * Verifies every internal event becomes a row, with and without batch:chunk.
+ */
+public class InternalDevicesTableWriteTests {
+    private static final Logger logger = LoggerFactory.getLogger(InternalDevicesTableWriteTests.class);
+
+    private static final int EVENTS = 2500;
+    private static final long ROW_WAIT_MILLIS = 10000;
+
+    @Test
+    public void testUnbatchedWrites() throws IOException, SQLException, InterruptedException {
+        logger.info("Tests all internal events are written without batching");
+        Assert.assertEquals(writeInternalEvents(0, 0), EVENTS);
+    }
+
+    @Test
+    public void testBatchedWrites() throws IOException, SQLException, InterruptedException {
+        logger.info("Tests all internal events are written in batches, including the last partial batch");
+        Assert.assertEquals(writeInternalEvents(1000, 100), EVENTS);
+    }
+
+    private long writeInternalEvents(int batchSize, long flushIntervalMillis)
+            throws IOException, SQLException, InterruptedException {
+        String jdbcUrl = InternalDevicesTableWriteBenchmark.embeddedJdbcUrl("test");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createEmbeddedStoreRuntime(siddhiManager,
+                    jdbcUrl, batchSize, flushIntervalMillis);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.DEVICE_TEMPERATURE_STREAM);
+            siddhiAppRuntime.start();
+            for (int i = 0; i < EVENTS; i++) {
+                inputHandler.send(new Object[]{"internal", "Generator" + i, 28.6, "Basement"});
+                inputHandler.send(new Object[]{"monitored", "CyrusOne" + i, 35.5, "ServerRoom1"});
+            }
+            return InternalDevicesTableWriteBenchmark.awaitRows(jdbcUrl, EVENTS, ROW_WAIT_MILLIS);
+        } finally {
+            siddhiManager.shutdown();
+            InternalDevicesTableWriteBenchmark.dropDatabase(jdbcUrl);
+        }
+    }
+}
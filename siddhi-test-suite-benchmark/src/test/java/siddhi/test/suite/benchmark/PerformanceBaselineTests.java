@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the baseline file and the regression checks of PerformanceBaseline.
+ */
+public class PerformanceBaselineTests {
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceBaselineTests.class);
+
+    private static final PerformanceBaseline.Tolerances TOLERANCES = new PerformanceBaseline.Tolerances(0.15, 0.30,
+            0.10);
+
+    @Test
+    public void testBaselineRoundTrip() throws IOException {
+        logger.info("Tests that a recorded baseline is read back with the same readings");
+        Map<String, PerformanceBaseline.Measurement> stages = new LinkedHashMap<>();
+        stages.put(TemperatureAlertApp.MONITERED_FILTER, new PerformanceBaseline.Measurement(2500000, 850, 312.5));
+        stages.put(PerformanceBaseline.APP_STAGE, new PerformanceBaseline.Measurement(400000, 6000, 1840.0));
+        Path file = Files.createTempFile("performance-baseline", ".json");
+        try {
+            new PerformanceBaseline.Baseline("5.1.3", stages).write(file);
+            PerformanceBaseline.Baseline baseline = PerformanceBaseline.Baseline.read(file);
+            Assert.assertEquals(baseline.getSiddhiVersion(), "5.1.3");
+            Assert.assertEquals(baseline.getStages().keySet(), stages.keySet());
+            PerformanceBaseline.Measurement measurement = baseline.getStages().get(PerformanceBaseline.APP_STAGE);
+            Assert.assertEquals(measurement.getEventsPerSecond(), 400000.0);
+            Assert.assertEquals(measurement.getP99LatencyNanos(), 6000.0);
+            Assert.assertEquals(measurement.getAllocatedBytesPerEvent(), 1840.0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStagesMissingFromBaselineAreNotCompared() throws IOException {
+        logger.info("Tests that stages missing from the baseline are reported without failing the comparison");
+        Path file = Files.createTempFile("performance-baseline", ".json");
+        try {
+            Files.write(file, "{\"siddhiVersion\": \"5.1.3\", \"stages\": {}}".getBytes(StandardCharsets.UTF_8));
+            PerformanceBaseline.Baseline baseline = PerformanceBaseline.Baseline.read(file);
+            Assert.assertTrue(baseline.getStages().isEmpty());
+            List<PerformanceBaseline.Comparison> comparisons = PerformanceBaseline.compare(baseline,
+                    current(2500000, 850, 312.5), TOLERANCES);
+            Assert.assertEquals(comparisons.size(), 1);
+            Assert.assertTrue(comparisons.get(0).isMissingBaseline());
+            Assert.assertFalse(comparisons.get(0).isRegression(), comparisons.get(0).toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testChangesWithinTolerancePass() {
+        logger.info("Tests that changes within the tolerances are not regressions");
+        List<PerformanceBaseline.Comparison> comparisons = PerformanceBaseline.compare(
+                current(2500000, 850, 312.5), current(2200000, 1050, 340.0), TOLERANCES);
+        Assert.assertEquals(comparisons.size(), 3);
+        for (PerformanceBaseline.Comparison comparison : comparisons) {
+            Assert.assertFalse(comparison.isRegression(), comparison.toString());
+        }
+    }
+
+    @Test
+    public void testRegressionsBeyondTolerance() {
+        logger.info("Tests that a throughput drop, and latency or allocation growth, beyond tolerance regress");
+        List<PerformanceBaseline.Comparison> comparisons = PerformanceBaseline.compare(
+                current(2500000, 850, 312.5), current(1750000, 1200, 400.0), TOLERANCES);
+        Assert.assertEquals(comparisons.size(), 3);
+        for (PerformanceBaseline.Comparison comparison : comparisons) {
+            Assert.assertTrue(comparison.isRegression(), comparison.toString());
+        }
+        Assert.assertEquals(comparisons.get(0).getChange(), 0.30, 1e-9);
+    }
+
+    @Test
+    public void testImprovementsPass() {
+        logger.info("Tests that improvements beyond tolerance are not regressions");
+        for (PerformanceBaseline.Comparison comparison : PerformanceBaseline.compare(
+                current(2500000, 850, 312.5), current(5000000, 400, 100.0), TOLERANCES)) {
+            Assert.assertFalse(comparison.isRegression(), comparison.toString());
+            Assert.assertTrue(comparison.getChange() < 0);
+        }
+    }
+
+    private static PerformanceBaseline.Baseline current(double eventsPerSecond, double p99LatencyNanos,
+                                                        double allocatedBytesPerEvent) {
+        Map<String, PerformanceBaseline.Measurement> stages = new LinkedHashMap<>();
+        stages.put(TemperatureAlertApp.MONITERED_FILTER,
+                new PerformanceBaseline.Measurement(eventsPerSecond, p99LatencyNanos, allocatedBytesPerEvent));
+        return new PerformanceBaseline.Baseline("5.1.3", stages);
+    }
+}
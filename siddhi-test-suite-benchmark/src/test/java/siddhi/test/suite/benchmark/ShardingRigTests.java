@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests that Temp-Alert-App sharded by deviceID hash with ShardingRig raises the same alerts as a single runtime.
+ */
+public class ShardingRigTests {
+    private static final Logger logger = LoggerFactory.getLogger(ShardingRigTests.class);
+
+    private static final int DEVICES = 256;
+    private static final int CYCLES = 3;
+
+    @Test
+    public void testShardedAlertsMatchSingleRuntime() throws Exception {
+        logger.info("Tests that the merged alerts of 3 shards match those of a single runtime");
+        ShardingRig.Result reference = ShardingRig.run(1, DEVICES, CYCLES);
+        ShardingRig.Result sharded = ShardingRig.run(3, DEVICES, CYCLES);
+        sharded.compareWith(reference);
+        logger.info(sharded.toString());
+        Assert.assertEquals(reference.getAlerts().size(), DEVICES * CYCLES,
+                "Every device cycle should raise an alert.");
+        Assert.assertTrue(sharded.isMatchingReference(), "The sharded runtimes raised different alerts.");
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests that the partitioned pattern state of Temp-Alert-App survives a crash with each persistence store of
+ * SnapshotPersistenceBenchmark.
+ */
+public class SnapshotPersistenceTests {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotPersistenceTests.class);
+
+    private static final int DEVICES = 500;
+
+    private Path directory;
+    private long expectedPeaks;
+
+    @BeforeClass
+    private void setUp() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("snapshot-persistence");
+        expectedPeaks = SnapshotPersistenceBenchmark.countPeaksWithoutRestart(DEVICES);
+    }
+
+    @AfterClass
+    private void tearDown() throws IOException {
+        SnapshotPersistenceBenchmark.deleteRecursively(directory);
+    }
+
+    @Test
+    public void testRestoreFromMappedFullSnapshot() throws Exception {
+        logger.info("Tests restoring the partition state from the memory-mapped full snapshot store");
+        assertRestored(SnapshotPersistenceBenchmark.Store.FULL_MAPPED);
+    }
+
+    @Test
+    public void testRestoreFromIncrementalSnapshot() throws Exception {
+        logger.info("Tests restoring the partition state from the incremental file system store");
+        assertRestored(SnapshotPersistenceBenchmark.Store.INCREMENTAL_FILE);
+    }
+
+    private void assertRestored(SnapshotPersistenceBenchmark.Store store) throws Exception {
+        SnapshotPersistenceBenchmark.Result result = SnapshotPersistenceBenchmark.measure(store, DEVICES,
+                directory.resolve(store.getName()), expectedPeaks);
+        logger.info(result.toString());
+        Assert.assertTrue(expectedPeaks >= DEVICES, "Every device should complete a peak.");
+        Assert.assertEquals(result.getRestoredPeaks(), result.getExpectedPeaks(),
+                "The restored runtime lost partial matches.");
+        Assert.assertTrue(result.getBaseBytes() > 0, "Nothing was written by the first persist.");
+        Assert.assertTrue(result.getSecondBytes() > 0, "Nothing was written by the second persist.");
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.stream.input.InputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the readings of the soak test: the pattern state census and the growth fit.
+ */
+public class SoakRunnerTests {
+    private static final Logger logger = LoggerFactory.getLogger(SoakRunnerTests.class);
+
+    private static final int DEVICES = 100;
+
+    @Test
+    public void testPatternStateCensus() throws IOException, InterruptedException {
+        logger.info("Tests the partitions and pattern states counted from a snapshot");
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = TemperatureAlertApp.createSandboxRuntime(siddhiManager);
+            InputHandler monitoredDevicesTempStream = siddhiAppRuntime.getInputHandler(
+                    TemperatureAlertApp.MONITORED_DEVICES_TEMP_STREAM);
+            siddhiAppRuntime.start();
+            for (double temp : new double[]{40.0, 60.0}) {
+                for (int device = 0; device < DEVICES; device++) {
+                    monitoredDevicesTempStream.send(new Object[]{"D" + device, temp, "ServerRoom"});
+                }
+            }
+            PatternStateCensus census = PatternStateCensus.take(siddhiAppRuntime);
+            logger.info("partitions=" + census.getPartitions() + ", live states=" + census.getLiveStates() +
+                    ", snapshot=" + census.getSnapshotBytes() + " bytes");
+            Assert.assertEquals(census.getPartitions(), DEVICES);
+            Assert.assertTrue(census.getLiveStates() >= DEVICES, "Rising temperatures leave partial matches.");
+            Assert.assertEquals(census.getLiveStates(), census.getMaxStatesPerPartition() * DEVICES);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testSlopePerHour() {
+        logger.info("Tests the least-squares growth per hour of the heap samples");
+        List<SoakRunner.Sample> samples = new ArrayList<>();
+        for (int minute = 0; minute < 60; minute++) {
+            long noise = minute % 2 == 0 ? 4096 : -4096;
+            samples.add(new SoakRunner.Sample(minute * 60, 0, 0, 0, 100000000L + minute * 1000L + noise,
+                    null, null));
+        }
+        Assert.assertEquals(SoakRunner.slopePerHour(samples, SoakRunner.Sample::getHeapAfterGc), 60000.0, 500.0);
+        Assert.assertEquals(SoakRunner.slopePerHour(samples.subList(0, 1), SoakRunner.Sample::getHeapAfterGc), 0.0);
+    }
+}
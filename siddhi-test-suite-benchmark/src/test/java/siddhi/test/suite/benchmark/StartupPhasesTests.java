@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import siddhi.test.suite.extension.app.SiddhiAppCache;
+
+/**
+ * Tests the startup phases of Temp-Alert-App timed by StartupPhases.
+ */
+public class StartupPhasesTests {
+    private static final Logger logger = LoggerFactory.getLogger(StartupPhasesTests.class);
+
+    @Test
+    public void testPhasesUntilFirstAlert() throws Exception {
+        logger.info("Tests the app cache takes the parse out of the startup phases until the first alert");
+        long hits = SiddhiAppCache.getHits();
+        long misses = SiddhiAppCache.getMisses();
+        StartupPhases.Phases uncached = StartupPhases.measure(StartupPhases.NO_CACHE, 0);
+        logger.info(uncached.toString());
+        Assert.assertEquals(SiddhiAppCache.getHits(), hits, "The uncached iteration should not use the app cache.");
+        Assert.assertEquals(SiddhiAppCache.getMisses(), misses,
+                "The uncached iteration should not use the app cache.");
+
+        StartupPhases.measure(StartupPhases.MEMORY_CACHE, 1);
+        hits = SiddhiAppCache.getHits();
+        misses = SiddhiAppCache.getMisses();
+        StartupPhases.Phases cached = StartupPhases.measure(StartupPhases.MEMORY_CACHE, 2);
+        logger.info(cached.toString());
+        Assert.assertEquals(SiddhiAppCache.getHits(), hits + 1, "The second cached iteration should reuse the app.");
+        Assert.assertEquals(SiddhiAppCache.getMisses(), misses, "The second cached iteration should not parse.");
+        Assert.assertTrue(cached.getMillis("parse") < uncached.getMillis("parse"), "Taking the app from the cache " +
+                "took " + cached.getMillis("parse") + " ms, parsing it took " + uncached.getMillis("parse") + " ms.");
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.app;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.query.api.SiddhiApp;
+import io.siddhi.query.compiler.SiddhiCompiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of parsed Siddhi apps, reused across the runtimes created from the same app.
+ * Description: Apps are keyed by their text after the ${...} variables are resolved from the system properties and
+ *              environment, so runtimes of the same app under different variables get different entries. Sandbox
+ *              runtimes strip the source, sink and store annotations from the SiddhiApp they are built from, so
+ *              sandbox and regular runtimes are given their own parsed apps, and runtimes of one parsed app are
+ *              created one at a time since Siddhi reads, and for sandboxes edits, its definitions while building
+ *              the runtime.
+ *              The apps are kept in memory, so only runtimes created later in the same JVM, such as redeploys and
+ *              tests, skip the parse. To also cut the cold start of a new JVM, set {@link #DIRECTORY_PROPERTY} to a
+ *              directory, for a pod one on a volume or in its image. Each parsed app is then serialized there under
+ *              the SHA-256 hash of its resolved text, and a JVM that does not have the app in memory deserializes
+ *              it from that file instead of parsing it. A file that cannot be deserialized, as after a Siddhi
+ *              upgrade, is replaced by a newly parsed app.
+ */
+public final class SiddhiAppCache {
+
+    public static final String DIRECTORY_PROPERTY = "siddhi.app.cache.dir";
+
+    private static final String FILE_EXTENSION = ".siddhiapp";
+    private static final Map<String, SiddhiApp> APPS = new ConcurrentHashMap<>();
+    private static final Map<String, SiddhiApp> SANDBOX_APPS = new ConcurrentHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong DISK_HITS = new AtomicLong();
+
+    private SiddhiAppCache() {
+    }
+
+    /**
+     * Returns the parsed app, parsing it only if the same app was not parsed before.
+     */
+    public static SiddhiApp get(String siddhiApp) {
+        return get(APPS, siddhiApp);
+    }
+
+    /**
+     * Creates a runtime of the app from its cached parsed app.
+     */
+    public static SiddhiAppRuntime createRuntime(SiddhiManager siddhiManager, String siddhiApp) {
+        SiddhiApp parsedApp = get(APPS, siddhiApp);
+        synchronized (parsedApp) {
+            return siddhiManager.createSiddhiAppRuntime(parsedApp);
+        }
+    }
+
+    /**
+     * Creates a sandbox runtime of the app from its cached parsed app.
+     */
+    public static SiddhiAppRuntime createSandboxRuntime(SiddhiManager siddhiManager, String siddhiApp) {
+        SiddhiApp parsedApp = get(SANDBOX_APPS, siddhiApp);
+        synchronized (parsedApp) {
+            return siddhiManager.createSandboxSiddhiAppRuntime(parsedApp);
+        }
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    /**
+     * Returns the number of misses of the in-memory cache that were read from the cache directory.
+     */
+    public static long getDiskHits() {
+        return DISK_HITS.get();
+    }
+
+    /**
+     * Drops every parsed app from memory, the next runtime of each app reads it from the cache directory when one
+     * is set, or parses it again. The files of the cache directory are kept.
+     */
+    public static void clear() {
+        APPS.clear();
+        SANDBOX_APPS.clear();
+    }
+
+    private static SiddhiApp get(Map<String, SiddhiApp> apps, String siddhiApp) {
+        String resolvedApp = SiddhiCompiler.updateVariables(siddhiApp);
+        SiddhiApp parsedApp = apps.get(resolvedApp);
+        if (parsedApp != null) {
+            HITS.incrementAndGet();
+            return parsedApp;
+        }
+        MISSES.incrementAndGet();
+        return apps.computeIfAbsent(resolvedApp, SiddhiAppCache::load);
+    }
+
+    private static SiddhiApp load(String resolvedApp) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.isEmpty()) {
+            return SiddhiCompiler.parse(resolvedApp);
+        }
+        Path file = Paths.get(directory, sha256(resolvedApp) + FILE_EXTENSION);
+        if (Files.isRegularFile(file)) {
+            try (InputStream inputStream = Files.newInputStream(file);
+                 ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
+                SiddhiApp siddhiApp = (SiddhiApp) objectInputStream.readObject();
+                DISK_HITS.incrementAndGet();
+                return siddhiApp;
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                //Written by another Siddhi version or cut short, the app is parsed and the file replaced
+            }
+        }
+        SiddhiApp siddhiApp = SiddhiCompiler.parse(resolvedApp);
+        write(file, siddhiApp);
+        return siddhiApp;
+    }
+
+    /**
+     * Writes the app to a temporary file moved into place, so readers never see a partly written file.
+     */
+    private static void write(Path file, SiddhiApp siddhiApp) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream outputStream = Files.newOutputStream(temporaryFile);
+                     ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+                    objectOutputStream.writeObject(siddhiApp);
+                }
+                try {
+                    Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the parsed app to " + file.toAbsolutePath() + ".", e);
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
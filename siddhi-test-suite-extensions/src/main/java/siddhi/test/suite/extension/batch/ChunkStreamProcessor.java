@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.batch;
+
+import io.siddhi.annotation.Example;
+import io.siddhi.annotation.Extension;
+import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiQueryContext;
+import io.siddhi.core.event.ComplexEvent;
+import io.siddhi.core.event.ComplexEventChunk;
+import io.siddhi.core.event.stream.MetaStreamEvent;
+import io.siddhi.core.event.stream.StreamEvent;
+import io.siddhi.core.event.stream.StreamEventCloner;
+import io.siddhi.core.event.stream.holder.StreamEventClonerHolder;
+import io.siddhi.core.event.stream.populater.ComplexEventPopulater;
+import io.siddhi.core.executor.ConstantExpressionExecutor;
+import io.siddhi.core.executor.ExpressionExecutor;
+import io.siddhi.core.query.processor.ProcessingMode;
+import io.siddhi.core.query.processor.Processor;
+import io.siddhi.core.query.processor.SchedulingProcessor;
+import io.siddhi.core.query.processor.stream.StreamProcessor;
+import io.siddhi.core.util.Scheduler;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.snapshot.state.State;
+import io.siddhi.core.util.snapshot.state.StateFactory;
+import io.siddhi.query.api.definition.AbstractDefinition;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.exception.SiddhiAppValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups events into chunks of up to batch.size events, emitted when full or flush.interval after the first event of
+ * the chunk arrived.
+ * When the query inserts into a store backed table, each chunk reaches the store as one add call, which the RDBMS
+ * store writes as one JDBC batch and one commit instead of one per event.
+ */
+@Extension(
+        name = "chunk",
+        namespace = "batch",
+        description = "Holds events back and emits them together as one chunk, once batch.size events are " +
+                "collected or flush.interval has passed since the first event of the chunk. Events held when the " +
+                "app shuts down are not emitted, so flush.interval bounds the events at risk.",
+        parameters = {
+                @Parameter(name = "batch.size",
+                        description = "The maximum number of events emitted in one chunk.",
+                        type = {DataType.INT}),
+                @Parameter(name = "flush.interval",
+                        description = "The maximum time an event is held back, 0 waits until the chunk is full.",
+                        type = {DataType.INT, DataType.LONG, DataType.TIME})
+        },
+        examples = @Example(
+                syntax = "from DeviceTemperatureStream[type == 'internal']#batch:chunk(100, 50 millisec)\n" +
+                        "select UUID() as currentTime, deviceID, temp\n" +
+                        "insert current events into InternalDevicesTempTable;",
+                description = "Writes internal device temperatures to the table in batches of up to 100 events, " +
+                        "holding events for at most 50 milliseconds.")
+)
+public class ChunkStreamProcessor extends StreamProcessor<ChunkStreamProcessor.ChunkState>
+        implements SchedulingProcessor {
+
+    private int batchSize;
+    private long flushInterval;
+    private Scheduler scheduler;
+    private SiddhiQueryContext siddhiQueryContext;
+
+    @Override
+    protected StateFactory<ChunkState> init(MetaStreamEvent metaStreamEvent, AbstractDefinition inputDefinition,
+                                            ExpressionExecutor[] attributeExpressionExecutors,
+                                            ConfigReader configReader,
+                                            StreamEventClonerHolder streamEventClonerHolder,
+                                            boolean outputExpectsExpiredEvents, boolean findToBeExecuted,
+                                            SiddhiQueryContext siddhiQueryContext) {
+        this.siddhiQueryContext = siddhiQueryContext;
+        if (attributeExpressionExecutors.length != 2 ||
+                !(attributeExpressionExecutors[0] instanceof ConstantExpressionExecutor) ||
+                !(attributeExpressionExecutors[1] instanceof ConstantExpressionExecutor)) {
+            throw new SiddhiAppValidationException("batch:chunk expects 2 constant parameters, batch.size and " +
+                    "flush.interval.");
+        }
+        Object batchSizeValue = ((ConstantExpressionExecutor) attributeExpressionExecutors[0]).getValue();
+        if (!(batchSizeValue instanceof Integer) || (Integer) batchSizeValue < 1) {
+            throw new SiddhiAppValidationException("The batch.size parameter of batch:chunk should be a positive " +
+                    "INT, but found '" + batchSizeValue + "'.");
+        }
+        batchSize = (Integer) batchSizeValue;
+        Object flushIntervalValue = ((ConstantExpressionExecutor) attributeExpressionExecutors[1]).getValue();
+        if (!(flushIntervalValue instanceof Integer || flushIntervalValue instanceof Long) ||
+                ((Number) flushIntervalValue).longValue() < 0) {
+            throw new SiddhiAppValidationException("The flush.interval parameter of batch:chunk should be a " +
+                    "non-negative INT, LONG or TIME, but found '" + flushIntervalValue + "'.");
+        }
+        flushInterval = ((Number) flushIntervalValue).longValue();
+        return () -> new ChunkState(batchSize);
+    }
+
+    @Override
+    protected void process(ComplexEventChunk<StreamEvent> streamEventChunk, Processor nextProcessor,
+                           StreamEventCloner streamEventCloner, ComplexEventPopulater complexEventPopulater,
+                           ChunkState state) {
+        List<List<StreamEvent>> chunks;
+        synchronized (state) {
+            chunks = null;
+            while (streamEventChunk.hasNext()) {
+                StreamEvent streamEvent = streamEventChunk.next();
+                streamEventChunk.remove();
+                if (streamEvent.getType() == ComplexEvent.Type.CURRENT) {
+                    if (state.events.isEmpty() && flushInterval > 0) {
+                        state.flushAt = siddhiQueryContext.getSiddhiAppContext().getTimestampGenerator()
+                                .currentTime() + flushInterval;
+                        scheduler.notifyAt(state.flushAt);
+                    }
+                    state.events.add(streamEventCloner.copyStreamEvent(streamEvent));
+                    if (state.events.size() >= batchSize) {
+                        chunks = addChunk(chunks, state.drain(batchSize));
+                    }
+                } else if (streamEvent.getType() == ComplexEvent.Type.TIMER && !state.events.isEmpty() &&
+                        streamEvent.getTimestamp() >= state.flushAt) {
+                    chunks = addChunk(chunks, state.drain(batchSize));
+                }
+            }
+        }
+        if (chunks != null) {
+            for (List<StreamEvent> chunk : chunks) {
+                streamEventChunk.clear();
+                for (StreamEvent streamEvent : chunk) {
+                    streamEventChunk.add(streamEvent);
+                }
+                nextProcessor.process(streamEventChunk);
+            }
+        }
+    }
+
+    private static List<List<StreamEvent>> addChunk(List<List<StreamEvent>> chunks, List<StreamEvent> chunk) {
+        if (chunks == null) {
+            chunks = new ArrayList<>(1);
+        }
+        chunks.add(chunk);
+        return chunks;
+    }
+
+    @Override
+    public List<Attribute> getReturnAttributes() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ProcessingMode getProcessingMode() {
+        return ProcessingMode.BATCH;
+    }
+
+    @Override
+    public void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public void start() {
+        //Nothing to start
+    }
+
+    @Override
+    public void stop() {
+        //Nothing to stop
+    }
+
+    /**
+     * Events held back for the next chunk.
+     */
+    static class ChunkState extends State {
+        private static final String EVENTS = "events";
+        private static final String FLUSH_AT = "flushAt";
+
+        private List<StreamEvent> events;
+        private long flushAt;
+
+        ChunkState(int batchSize) {
+            events = new ArrayList<>(batchSize);
+        }
+
+        List<StreamEvent> drain(int batchSize) {
+            List<StreamEvent> chunk = events;
+            events = new ArrayList<>(batchSize);
+            return chunk;
+        }
+
+        @Override
+        public boolean canDestroy() {
+            return events.isEmpty();
+        }
+
+        @Override
+        public Map<String, Object> snapshot() {
+            Map<String, Object> state = new HashMap<>();
+            state.put(EVENTS, new ArrayList<>(events));
+            state.put(FLUSH_AT, flushAt);
+            return state;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void restore(Map<String, Object> state) {
+            events = new ArrayList<>((List<StreamEvent>) state.get(EVENTS));
+            flushAt = (Long) state.get(FLUSH_AT);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.map;
+
+import io.siddhi.annotation.Example;
+import io.siddhi.annotation.Extension;
+import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiAppContext;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.exception.MappingFailedException;
+import io.siddhi.core.stream.input.source.AttributeMapping;
+import io.siddhi.core.stream.input.source.InputEventHandler;
+import io.siddhi.core.stream.input.source.SourceMapper;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.transport.OptionHolder;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.definition.StreamDefinition;
+import io.siddhi.query.api.exception.SiddhiAppValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming JSON source mapper for the default {"event":{...}} envelope of siddhi-map-json.
+ * Registered with siddhiManager.setExtension("sourceMapper:deviceTemperatureJson", ...), it maps the same messages
+ * as {@literal @}map(type='json') into DeviceTemperatureStream, reading byte[] payloads in place with
+ * {@link JsonEventReader} instead of building a JSON tree and a String per key and number.
+ */
+@Extension(
+        name = "deviceTemperatureJson",
+        namespace = "sourceMapper",
+        description = "Maps {\"event\":{...}} JSON messages, or JSON arrays of them, to the stream attributes of " +
+                "the same names. Supports string, double, float, int, long and bool attributes. Events missing an " +
+                "attribute are dropped, other events of the same array are still sent.",
+        parameters = {
+                @Parameter(name = "string.cache.size",
+                        description = "Number of decoded values cached per string attribute.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "1024")
+        },
+        examples = @Example(
+                syntax = "@source(type='nats', cluster.id='TemperatureCluster', " +
+                        "destination = 'Temp-Alert-App_DeviceTempStream', " +
+                        "bootstrap.servers = 'nats://localhost:4222', @map(type='deviceTemperatureJson'))\n" +
+                        "define stream DeviceTemperatureStream (type string, deviceID string, temp double, " +
+                        "roomID string);",
+                description = "Maps the messages of 'Temp-Alert-App_DeviceTempStream' the same way as " +
+                        "@map(type='json').")
+)
+public class DeviceTemperatureJsonSourceMapper extends SourceMapper {
+
+    private static final String STRING_CACHE_SIZE = "string.cache.size";
+    private static final String DEFAULT_STRING_CACHE_SIZE = "1024";
+
+    private byte[][] attributeNames;
+    private Attribute.Type[] attributeTypes;
+    private StringCache[] stringCaches;
+
+    @Override
+    public void init(StreamDefinition streamDefinition, OptionHolder optionHolder,
+                     List<AttributeMapping> attributeMappingList, ConfigReader configReader,
+                     SiddhiAppContext siddhiAppContext) {
+        if (attributeMappingList != null && !attributeMappingList.isEmpty()) {
+            throw new SiddhiAppValidationException("deviceTemperatureJson maps attributes by name, " +
+                    "@attributes are not supported on stream '" + streamDefinition.getId() + "'.");
+        }
+        int stringCacheSize = Integer.parseInt(optionHolder.getOrCreateOption(STRING_CACHE_SIZE,
+                DEFAULT_STRING_CACHE_SIZE).getValue());
+        List<Attribute> attributes = streamDefinition.getAttributeList();
+        attributeNames = new byte[attributes.size()][];
+        attributeTypes = new Attribute.Type[attributes.size()];
+        stringCaches = new StringCache[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            if (attribute.getType() == Attribute.Type.OBJECT) {
+                throw new SiddhiAppValidationException("deviceTemperatureJson does not support the object " +
+                        "attribute '" + attribute.getName() + "' of stream '" + streamDefinition.getId() + "'.");
+            }
+            attributeNames[i] = attribute.getName().getBytes(StandardCharsets.UTF_8);
+            attributeTypes[i] = attribute.getType();
+            if (attribute.getType() == Attribute.Type.STRING) {
+                stringCaches[i] = new StringCache(stringCacheSize);
+            }
+        }
+    }
+
+    @Override
+    public Class[] getSupportedInputEventClasses() {
+        return new Class[]{byte[].class, String.class};
+    }
+
+    @Override
+    protected void mapAndProcess(Object eventObject, InputEventHandler inputEventHandler)
+            throws MappingFailedException, InterruptedException {
+        if (eventObject == null) {
+            throw new MappingFailedException("Null message received by deviceTemperatureJson.");
+        }
+        byte[] bytes = eventObject instanceof byte[] ? (byte[]) eventObject :
+                eventObject.toString().getBytes(StandardCharsets.UTF_8);
+        List<Object[]> dataList = new ArrayList<>(1);
+        int failed = new JsonEventReader(attributeNames, attributeTypes, stringCaches, bytes).readEvents(dataList);
+        if (dataList.size() == 1) {
+            inputEventHandler.sendEvent(new Event(System.currentTimeMillis(), dataList.get(0)));
+        } else if (!dataList.isEmpty()) {
+            long timestamp = System.currentTimeMillis();
+            Event[] events = new Event[dataList.size()];
+            for (int i = 0; i < events.length; i++) {
+                events[i] = new Event(timestamp, dataList.get(i));
+            }
+            inputEventHandler.sendEvents(events);
+        }
+        if (failed > 0) {
+            throw new MappingFailedException(failed + " event(s) of the message were dropped, an attribute was " +
+                    "missing or did not match its type.");
+        }
+    }
+
+    @Override
+    protected boolean allowNullInTransportProperties() {
+        return false;
+    }
+}
@@ -0,0 +1,593 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.map;
+
+import io.siddhi.core.exception.MappingFailedException;
+import io.siddhi.query.api.definition.Attribute;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads {"event":{...}} envelopes, or a JSON array of them, from the bytes of one message.
+ * Description: Attribute keys are matched against the UTF-8 bytes of the stream attribute names and values are
+ *              converted from the bytes in place, so no JSON tree, key String or number String is built. Strings
+ *              without escapes come from a {@link StringCache}, doubles with up to 15 significant digits and a
+ *              decimal exponent of at most 22 are computed exactly from their digits, and longer ones fall back to
+ *              Double.parseDouble. Keys other than the stream attributes are skipped.
+ *              One reader is created per message, the schema arrays and caches are shared.
+ */
+final class JsonEventReader {
+
+    private static final byte[] EVENT_KEY = "event".getBytes(StandardCharsets.US_ASCII);
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private final byte[][] attributeNames;
+    private final Attribute.Type[] attributeTypes;
+    private final StringCache[] stringCaches;
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+
+    JsonEventReader(byte[][] attributeNames, Attribute.Type[] attributeTypes, StringCache[] stringCaches,
+                    byte[] bytes) {
+        this.attributeNames = attributeNames;
+        this.attributeTypes = attributeTypes;
+        this.stringCaches = stringCaches;
+        this.bytes = bytes;
+        this.end = bytes.length;
+    }
+
+    /**
+     * Adds the attribute values of every event in the message to the list.
+     * Events with a missing attribute or a value of the wrong type are skipped, and reported by the returned
+     * count of failed events, since the other events of an array are still valid.
+     *
+     * @throws MappingFailedException when the message is not well-formed JSON
+     */
+    int readEvents(List<Object[]> events) throws MappingFailedException {
+        int failed = 0;
+        skipWhitespace();
+        if (peek() == '[') {
+            position++;
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+            } else {
+                while (true) {
+                    failed += readEnvelope(events);
+                    skipWhitespace();
+                    byte next = next();
+                    if (next == ']') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw error("',' or ']' expected");
+                    }
+                    skipWhitespace();
+                }
+            }
+        } else {
+            failed += readEnvelope(events);
+        }
+        skipWhitespace();
+        if (position != end) {
+            throw error("unexpected content after the event");
+        }
+        return failed;
+    }
+
+    /**
+     * Reads one {"event":{...}} object, returns 1 if its event could not be mapped.
+     */
+    private int readEnvelope(List<Object[]> events) throws MappingFailedException {
+        expect('{');
+        skipWhitespace();
+        boolean eventFound = false;
+        int failed = 0;
+        if (peek() == '}') {
+            position++;
+        } else {
+            while (true) {
+                boolean isEvent = readKeyIndex(null) == 0;
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                if (isEvent && !eventFound) {
+                    eventFound = true;
+                    Object[] data = readEvent();
+                    if (data == null) {
+                        failed = 1;
+                    } else {
+                        events.add(data);
+                    }
+                } else {
+                    skipValue();
+                }
+                skipWhitespace();
+                byte next = next();
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw error("',' or '}' expected");
+                }
+                skipWhitespace();
+            }
+        }
+        return eventFound ? failed : 1;
+    }
+
+    /**
+     * Reads the attribute object of an event, returns null when an attribute is missing or of the wrong type.
+     */
+    private Object[] readEvent() throws MappingFailedException {
+        expect('{');
+        Object[] data = new Object[attributeTypes.length];
+        boolean[] found = new boolean[attributeTypes.length];
+        boolean valid = true;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return null;
+        }
+        while (true) {
+            int index = readKeyIndex(attributeNames);
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (index >= 0) {
+                found[index] = true;
+                if (peek() == 'n') {
+                    expectLiteral("null");
+                } else if (!readValue(index, data)) {
+                    valid = false;
+                    skipValue();
+                }
+            } else {
+                skipValue();
+            }
+            skipWhitespace();
+            byte next = next();
+            if (next == '}') {
+                break;
+            }
+            if (next != ',') {
+                throw error("',' or '}' expected");
+            }
+            skipWhitespace();
+        }
+        for (boolean attributeFound : found) {
+            valid &= attributeFound;
+        }
+        return valid ? data : null;
+    }
+
+    /**
+     * Reads a key and returns the index of the matching name, -1 when none matches.
+     * With null names, returns 0 for the "event" key.
+     */
+    private int readKeyIndex(byte[][] names) throws MappingFailedException {
+        expect('"');
+        int start = position;
+        int stringEnd = scanString();
+        if (stringEnd < 0) {
+            //Keys with escape sequences are compared after decoding
+            String key = decodeString(start);
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            return indexOf(names, keyBytes, 0, keyBytes.length);
+        }
+        position = stringEnd + 1;
+        return indexOf(names, bytes, start, stringEnd);
+    }
+
+    private static int indexOf(byte[][] names, byte[] key, int start, int keyEnd) {
+        if (names == null) {
+            return equals(EVENT_KEY, key, start, keyEnd) ? 0 : -1;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (equals(names[i], key, start, keyEnd)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equals(byte[] name, byte[] key, int start, int keyEnd) {
+        if (name.length != keyEnd - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != key[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the value at the current position to the type of the attribute.
+     * Returns false, without moving, when the JSON type does not match the attribute type.
+     */
+    private boolean readValue(int index, Object[] data) throws MappingFailedException {
+        byte first = peek();
+        switch (attributeTypes[index]) {
+            case STRING:
+                if (first != '"') {
+                    return false;
+                }
+                position++;
+                data[index] = readString(stringCaches[index]);
+                return true;
+            case BOOL:
+                if (first == 't') {
+                    expectLiteral("true");
+                    data[index] = Boolean.TRUE;
+                    return true;
+                }
+                if (first == 'f') {
+                    expectLiteral("false");
+                    data[index] = Boolean.FALSE;
+                    return true;
+                }
+                return false;
+            case DOUBLE:
+                if (!isNumberStart(first)) {
+                    return false;
+                }
+                data[index] = readDouble();
+                return true;
+            case FLOAT:
+                if (!isNumberStart(first)) {
+                    return false;
+                }
+                data[index] = (float) readDouble();
+                return true;
+            case INT:
+            case LONG:
+                if (!isNumberStart(first)) {
+                    return false;
+                }
+                int start = position;
+                Long value = readLong();
+                if (value == null || (attributeTypes[index] == Attribute.Type.INT &&
+                        (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE))) {
+                    position = start;
+                    return false;
+                }
+                data[index] = attributeTypes[index] == Attribute.Type.INT ? (Object) value.intValue() : value;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private String readString(StringCache stringCache) throws MappingFailedException {
+        int start = position;
+        int stringEnd = scanString();
+        if (stringEnd < 0) {
+            return decodeString(start);
+        }
+        position = stringEnd + 1;
+        return stringCache.get(bytes, start, stringEnd);
+    }
+
+    /**
+     * Returns the position of the closing quote of the string starting at the current position, or -1 when the
+     * string has escape sequences.
+     */
+    private int scanString() throws MappingFailedException {
+        for (int i = position; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '"') {
+                return i;
+            }
+            if (b == '\\') {
+                return -1;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private String decodeString(int start) throws MappingFailedException {
+        StringBuilder builder = new StringBuilder();
+        int chunkStart = start;
+        int i = start;
+        while (i < end) {
+            byte b = bytes[i];
+            if (b == '"') {
+                builder.append(new String(bytes, chunkStart, i - chunkStart, StandardCharsets.UTF_8));
+                position = i + 1;
+                return builder.toString();
+            }
+            if (b == '\\') {
+                builder.append(new String(bytes, chunkStart, i - chunkStart, StandardCharsets.UTF_8));
+                if (i + 1 >= end) {
+                    break;
+                }
+                byte escaped = bytes[i + 1];
+                i += 2;
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        builder.append((char) escaped);
+                        break;
+                    case 'b':
+                        builder.append('\b');
+                        break;
+                    case 'f':
+                        builder.append('\f');
+                        break;
+                    case 'n':
+                        builder.append('\n');
+                        break;
+                    case 'r':
+                        builder.append('\r');
+                        break;
+                    case 't':
+                        builder.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 4 > end) {
+                            throw error("invalid unicode escape");
+                        }
+                        try {
+                            builder.append((char) Integer.parseInt(
+                                    new String(bytes, i, 4, StandardCharsets.US_ASCII), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("invalid unicode escape");
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        throw error("invalid escape sequence");
+                }
+                chunkStart = i;
+            } else {
+                i++;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private double readDouble() throws MappingFailedException {
+        int start = position;
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            position++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        int digits = 0;
+        while (position < end && isDigit(bytes[position])) {
+            int digit = bytes[position++] - '0';
+            digits++;
+            if (significantDigits < MAX_MANTISSA_DIGITS) {
+                if (mantissa != 0 || digit != 0) {
+                    mantissa = mantissa * 10 + digit;
+                    significantDigits++;
+                }
+            } else {
+                truncated = true;
+                exponent++;
+            }
+        }
+        if (position < end && bytes[position] == '.') {
+            position++;
+            while (position < end && isDigit(bytes[position])) {
+                int digit = bytes[position++] - '0';
+                digits++;
+                if (significantDigits < MAX_MANTISSA_DIGITS) {
+                    if (mantissa != 0 || digit != 0) {
+                        mantissa = mantissa * 10 + digit;
+                        significantDigits++;
+                    }
+                    exponent--;
+                } else {
+                    truncated = true;
+                }
+            }
+        }
+        if (digits == 0) {
+            throw error("number expected");
+        }
+        if (position < end && (bytes[position] == 'e' || bytes[position] == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (bytes[position] == '-' || bytes[position] == '+')) {
+                negativeExponent = bytes[position] == '-';
+                position++;
+            }
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            while (position < end && isDigit(bytes[position])) {
+                if (explicitExponent < 100000) {
+                    explicitExponent = explicitExponent * 10 + (bytes[position] - '0');
+                }
+                position++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                throw error("exponent expected");
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (!truncated && significantDigits <= MAX_EXACT_DIGITS &&
+                exponent >= -(POWERS_OF_TEN.length - 1) && exponent <= POWERS_OF_TEN.length - 1) {
+            //Both operands are exact doubles, so the single rounding of the operation is the correct one
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] :
+                    mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(bytes, start, position - start, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Reads an integer number, returns null when it has a fraction or exponent, or does not fit a long.
+     */
+    private Long readLong() throws MappingFailedException {
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (position < end && isDigit(bytes[position])) {
+            int digit = bytes[position++] - '0';
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                return null;
+            }
+            value = value * 10 - digit;
+            digits++;
+        }
+        if (digits == 0) {
+            throw error("number expected");
+        }
+        if (position < end && (bytes[position] == '.' || bytes[position] == 'e' || bytes[position] == 'E')) {
+            return null;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                return null;
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    private void skipValue() throws MappingFailedException {
+        byte first = peek();
+        switch (first) {
+            case '"':
+                position++;
+                int stringEnd = scanString();
+                if (stringEnd < 0) {
+                    decodeString(position);
+                } else {
+                    position = stringEnd + 1;
+                }
+                return;
+            case '{':
+            case '[':
+                skipContainer();
+                return;
+            case 't':
+                expectLiteral("true");
+                return;
+            case 'f':
+                expectLiteral("false");
+                return;
+            case 'n':
+                expectLiteral("null");
+                return;
+            default:
+                if (!isNumberStart(first)) {
+                    throw error("value expected");
+                }
+                readDouble();
+        }
+    }
+
+    /**
+     * Skips a nested object or array, only strings have to be looked into for brackets.
+     */
+    private void skipContainer() throws MappingFailedException {
+        int depth = 0;
+        while (position < end) {
+            byte b = bytes[position++];
+            if (b == '"') {
+                int stringEnd = scanString();
+                if (stringEnd < 0) {
+                    decodeString(position);
+                } else {
+                    position = stringEnd + 1;
+                }
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw error("unterminated object or array");
+    }
+
+    private void expectLiteral(String literal) throws MappingFailedException {
+        if (position + literal.length() > end) {
+            throw error("'" + literal + "' expected");
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (bytes[position + i] != literal.charAt(i)) {
+                throw error("'" + literal + "' expected");
+            }
+        }
+        position += literal.length();
+    }
+
+    private void expect(char expected) throws MappingFailedException {
+        if (next() != expected) {
+            position--;
+            throw error("'" + expected + "' expected");
+        }
+    }
+
+    private byte peek() throws MappingFailedException {
+        if (position >= end) {
+            throw error("unexpected end of message");
+        }
+        return bytes[position];
+    }
+
+    private byte next() throws MappingFailedException {
+        byte b = peek();
+        position++;
+        return b;
+    }
+
+    private void skipWhitespace() {
+        while (position < end) {
+            byte b = bytes[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || isDigit(b);
+    }
+
+    private MappingFailedException error(String reason) {
+        return new MappingFailedException("Invalid JSON at offset " + position + ": " + reason + ".");
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.map;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Direct-mapped cache of the Strings decoded from ASCII byte ranges, so that recurring attribute values such as
+ * device ids, types and room ids are not allocated again for every message.
+ * A slot is checked by comparing its String with the bytes, without copying them. Slots are written without locks:
+ * a reader either sees the old or the new String of a slot and verifies it against the bytes, so races only cost a
+ * cache miss.
+ */
+final class StringCache {
+
+    private final String[] slots;
+    private final int mask;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    StringCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new String[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the String of the bytes from start (inclusive) to end (exclusive).
+     */
+    String get(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                //Not ASCII, the chars of the String do not map one to one to the bytes
+                return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            }
+            hash = 31 * hash + b;
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = slots[slot];
+        if (cached != null && matches(cached, bytes, start, end)) {
+            return cached;
+        }
+        String value = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        slots[slot] = value;
+        return value;
+    }
+
+    private static boolean matches(String cached, byte[] bytes, int start, int end) {
+        if (cached.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (cached.charAt(i - start) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.nats;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-JVM stand-in for a NATS streaming server, used through the loopback 'nats' source and sink.
+ * Messages are handed to the subscribers of a destination on the publishing thread, by reference.
+ * The payload object given to publish is the object received by the subscribers, nothing is serialized or copied.
+ * A destination can be throttled to stand in for a server or network slower than the publisher, see {@link #throttle}.
+ */
+public final class LoopbackNatsBroker {
+
+    private static final ConcurrentMap<String, List<Subscriber>> SUBSCRIBERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Throttle> THROTTLES = new ConcurrentHashMap<>();
+
+    private LoopbackNatsBroker() {
+    }
+
+    /**
+     * Delivers a message to every subscriber of the destination, returns the number of subscribers.
+     */
+    public static int publish(String destination, Object payload) {
+        Throttle throttle = THROTTLES.get(destination);
+        if (throttle != null) {
+            throttle.acquire(destination);
+        }
+        List<Subscriber> subscribers = SUBSCRIBERS.get(destination);
+        if (subscribers == null) {
+            return 0;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onMessage(payload);
+        }
+        return subscribers.size();
+    }
+
+    /**
+     * Delivers length messages of the payloads array starting from offset, in order, to every subscriber.
+     * The subscribers are looked up once for the whole batch, messages to a throttled destination are published one
+     * by one.
+     */
+    public static int publish(String destination, Object[] payloads, int offset, int length) {
+        if (THROTTLES.containsKey(destination)) {
+            int delivered = 0;
+            for (int i = offset; i < offset + length; i++) {
+                delivered = publish(destination, payloads[i]);
+            }
+            return delivered;
+        }
+        List<Subscriber> subscribers = SUBSCRIBERS.get(destination);
+        if (subscribers == null) {
+            return 0;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onMessages(payloads, offset, length);
+        }
+        return subscribers.size();
+    }
+
+    public static void subscribe(String destination, Subscriber subscriber) {
+        SUBSCRIBERS.computeIfAbsent(destination, key -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    public static void unsubscribe(String destination, Subscriber subscriber) {
+        List<Subscriber> subscribers = SUBSCRIBERS.get(destination);
+        if (subscribers != null) {
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /**
+     * Limits the destination to the given number of messages per second. A publish waits for its turn, and fails with
+     * {@link PublishTimeoutException} when its turn is more than maxWaitMillis away, like a NATS streaming publish
+     * whose acknowledgement times out.
+     */
+    public static void throttle(String destination, double messagesPerSecond, long maxWaitMillis) {
+        THROTTLES.put(destination, new Throttle(messagesPerSecond, maxWaitMillis));
+    }
+
+    public static void unthrottle(String destination) {
+        THROTTLES.remove(destination);
+    }
+
+    /**
+     * Number of publishes to the throttled destination that failed with {@link PublishTimeoutException}.
+     */
+    public static long getRejectedPublishes(String destination) {
+        Throttle throttle = THROTTLES.get(destination);
+        return throttle == null ? 0 : throttle.rejected.get();
+    }
+
+    /**
+     * Hands out evenly spaced publish turns, each publisher reserves the next free turn and waits for it.
+     */
+    private static final class Throttle {
+        private final long intervalNanos;
+        private final long maxWaitNanos;
+        private final AtomicLong rejected = new AtomicLong();
+        private long nextTurnNanos = System.nanoTime();
+
+        Throttle(double messagesPerSecond, long maxWaitMillis) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / messagesPerSecond);
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        }
+
+        void acquire(String destination) {
+            long now = System.nanoTime();
+            long turn;
+            synchronized (this) {
+                turn = Math.max(now, nextTurnNanos);
+                if (turn - now > maxWaitNanos) {
+                    rejected.incrementAndGet();
+                    throw new PublishTimeoutException("Publish to '" + destination + "' timed out, the destination " +
+                            "is throttled and " + TimeUnit.NANOSECONDS.toMillis(turn - now) + " ms behind.");
+                }
+                nextTurnNanos = turn + intervalNanos;
+            }
+            long delay;
+            while ((delay = turn - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+        }
+    }
+
+    /**
+     * Receives the messages published to a destination.
+     */
+    public interface Subscriber {
+
+        void onMessage(Object payload);
+
+        default void onMessages(Object[] payloads, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                onMessage(payloads[i]);
+            }
+        }
+    }
+}
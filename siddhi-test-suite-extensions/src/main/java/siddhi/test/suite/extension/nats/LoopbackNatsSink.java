@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.nats;
+
+import io.siddhi.annotation.Example;
+import io.siddhi.annotation.Extension;
+import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiAppContext;
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.core.stream.ServiceDeploymentInfo;
+import io.siddhi.core.stream.output.sink.Sink;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.snapshot.state.State;
+import io.siddhi.core.util.snapshot.state.StateFactory;
+import io.siddhi.core.util.transport.DynamicOptions;
+import io.siddhi.core.util.transport.Option;
+import io.siddhi.core.util.transport.OptionHolder;
+import io.siddhi.query.api.definition.StreamDefinition;
+
+/**
+ * Loopback replacement of the siddhi-io-nats sink.
+ * Registered with siddhiManager.setExtension("sink:nats", LoopbackNatsSink.class), it hands the mapped payloads of
+ * {@literal @}sink(type='nats', ...) to the subscribers of the destination on {@link LoopbackNatsBroker}.
+ * Publishes timing out on a throttled destination are reported as ConnectionUnavailableException, so the
+ * {@literal @}sink on.error handling of Siddhi applies as it does for the NATS sink.
+ */
+@Extension(
+        name = "nats",
+        namespace = "sink",
+        description = "In-JVM stand-in of the NATS streaming sink, publishes to the destination on " +
+                "LoopbackNatsBroker.",
+        parameters = {
+                @Parameter(name = "destination",
+                        description = "Subject name which the sink should publish to.",
+                        type = {DataType.STRING},
+                        dynamic = true),
+                @Parameter(name = "bootstrap.servers",
+                        description = "Accepted for compatibility with the NATS sink, not used.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "nats://localhost:4222"),
+                @Parameter(name = "cluster.id",
+                        description = "Accepted for compatibility with the NATS sink, not used.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "test-cluster")
+        },
+        examples = @Example(
+                syntax = "@sink(type='nats', cluster.id='TemperatureCluster', " +
+                        "destination = 'Temp-Alert-App_AlertStream', " +
+                        "bootstrap.servers = 'nats://localhost:4222', @map(type='json'))\n" +
+                        "define stream AlertStream (deviceID string, peakTemp double, " +
+                        "authorityContactEmail string);",
+                description = "Publishes JSON alerts to LoopbackNatsBroker under 'Temp-Alert-App_AlertStream'.")
+)
+public class LoopbackNatsSink extends Sink<State> {
+
+    private static final String DESTINATION = "destination";
+
+    private Option destinationOption;
+
+    @Override
+    public Class[] getSupportedInputEventClasses() {
+        return new Class[]{String.class, byte[].class};
+    }
+
+    @Override
+    protected ServiceDeploymentInfo exposeServiceDeploymentInfo() {
+        return null;
+    }
+
+    @Override
+    public String[] getSupportedDynamicOptions() {
+        return new String[]{DESTINATION};
+    }
+
+    @Override
+    protected StateFactory<State> init(StreamDefinition outputStreamDefinition, OptionHolder optionHolder,
+                                       ConfigReader sinkConfigReader, SiddhiAppContext siddhiAppContext) {
+        this.destinationOption = optionHolder.validateAndGetOption(DESTINATION);
+        return null;
+    }
+
+    @Override
+    public void publish(Object payload, DynamicOptions dynamicOptions, State state)
+            throws ConnectionUnavailableException {
+        try {
+            LoopbackNatsBroker.publish(destinationOption.getValue(dynamicOptions), payload);
+        } catch (PublishTimeoutException e) {
+            throw new ConnectionUnavailableException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void connect() throws ConnectionUnavailableException {
+        //Nothing to connect, the broker lives in the JVM
+    }
+
+    @Override
+    public void disconnect() {
+        //Nothing to disconnect
+    }
+
+    @Override
+    public void destroy() {
+        //Nothing to destroy
+    }
+}
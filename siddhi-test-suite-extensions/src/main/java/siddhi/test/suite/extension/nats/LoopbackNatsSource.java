@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.nats;
+
+import io.siddhi.annotation.Example;
+import io.siddhi.annotation.Extension;
+import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiAppContext;
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.core.stream.ServiceDeploymentInfo;
+import io.siddhi.core.stream.input.source.Source;
+import io.siddhi.core.stream.input.source.SourceEventListener;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.snapshot.state.State;
+import io.siddhi.core.util.snapshot.state.StateFactory;
+import io.siddhi.core.util.transport.OptionHolder;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Loopback replacement of the siddhi-io-nats source.
+ * Registered with siddhiManager.setExtension("source:nats", LoopbackNatsSource.class), it lets an app with
+ * {@literal @}source(type='nats', ...) consume messages published to {@link LoopbackNatsBroker} without a NATS
+ * server. Messages are passed to the source mapper on the publishing thread, by reference, one at a time. With
+ * json.batch set to true, the string messages of a batch publish are instead joined into one JSON array and passed to
+ * a JSON mapper at once, so they reach the stream as one batch of events at the cost of copying them.
+ */
+@Extension(
+        name = "nats",
+        namespace = "source",
+        description = "In-JVM stand-in of the NATS streaming source, subscribes to the destination on " +
+                "LoopbackNatsBroker.",
+        parameters = {
+                @Parameter(name = "destination",
+                        description = "Subject name which the source should subscribe to.",
+                        type = {DataType.STRING}),
+                @Parameter(name = "bootstrap.servers",
+                        description = "Accepted for compatibility with the NATS source, not used.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "nats://localhost:4222"),
+                @Parameter(name = "cluster.id",
+                        description = "Accepted for compatibility with the NATS source, not used.",
+                        type = {DataType.STRING},
+                        optional = true,
+                        defaultValue = "test-cluster"),
+                @Parameter(name = "json.batch",
+                        description = "Joins the JSON messages of a batch publish into one JSON array for the " +
+                                "mapper. Only for JSON mappers that accept arrays of events.",
+                        type = {DataType.BOOL},
+                        optional = true,
+                        defaultValue = "false")
+        },
+        examples = @Example(
+                syntax = "@source(type='nats', cluster.id='TemperatureCluster', " +
+                        "destination = 'Temp-Alert-App_DeviceTempStream', " +
+                        "bootstrap.servers = 'nats://localhost:4222', @map(type='json'))\n" +
+                        "define stream DeviceTemperatureStream (type string, deviceID string, temp double, " +
+                        "roomID string);",
+                description = "Consumes JSON messages published to LoopbackNatsBroker under " +
+                        "'Temp-Alert-App_DeviceTempStream'.")
+)
+public class LoopbackNatsSource extends Source<State> implements LoopbackNatsBroker.Subscriber {
+
+    private SourceEventListener sourceEventListener;
+    private String destination;
+    private boolean jsonBatch;
+    private final ReentrantLock pauseLock = new ReentrantLock();
+    private final Condition unpaused = pauseLock.newCondition();
+    private volatile boolean paused;
+
+    @Override
+    public StateFactory<State> init(SourceEventListener sourceEventListener, OptionHolder optionHolder,
+                                    String[] requestedTransportPropertyNames, ConfigReader configReader,
+                                    SiddhiAppContext siddhiAppContext) {
+        this.sourceEventListener = sourceEventListener;
+        this.destination = optionHolder.validateAndGetStaticValue("destination");
+        this.jsonBatch = Boolean.parseBoolean(optionHolder.validateAndGetStaticValue("json.batch", "false"));
+        return null;
+    }
+
+    @Override
+    public Class[] getOutputEventClasses() {
+        return new Class[]{String.class, byte[].class};
+    }
+
+    @Override
+    protected ServiceDeploymentInfo exposeServiceDeploymentInfo() {
+        return null;
+    }
+
+    @Override
+    public void connect(ConnectionCallback connectionCallback, State state) throws ConnectionUnavailableException {
+        LoopbackNatsBroker.subscribe(destination, this);
+    }
+
+    @Override
+    public void disconnect() {
+        LoopbackNatsBroker.unsubscribe(destination, this);
+    }
+
+    @Override
+    public void destroy() {
+        //Nothing to destroy
+    }
+
+    @Override
+    public void pause() {
+        paused = true;
+    }
+
+    @Override
+    public void resume() {
+        paused = false;
+        pauseLock.lock();
+        try {
+            unpaused.signalAll();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+
+    @Override
+    public void onMessage(Object payload) {
+        if (paused) {
+            awaitResume();
+        }
+        sourceEventListener.onEvent(payload, null);
+    }
+
+    @Override
+    public void onMessages(Object[] payloads, int offset, int length) {
+        if (!jsonBatch || length < 2 || !areStrings(payloads, offset, length)) {
+            LoopbackNatsBroker.Subscriber.super.onMessages(payloads, offset, length);
+            return;
+        }
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = offset; i < offset + length; i++) {
+            String message = ((String) payloads[i]).trim();
+            if (message.startsWith("[") && message.endsWith("]")) {
+                message = message.substring(1, message.length() - 1).trim();
+            }
+            if (message.isEmpty()) {
+                continue;
+            }
+            if (batch.length() > 1) {
+                batch.append(',');
+            }
+            batch.append(message);
+        }
+        if (paused) {
+            awaitResume();
+        }
+        sourceEventListener.onEvent(batch.append(']').toString(), null);
+    }
+
+    private static boolean areStrings(Object[] payloads, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!(payloads[i] instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void awaitResume() {
+        pauseLock.lock();
+        try {
+            while (paused) {
+                unpaused.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pauseLock.unlock();
+        }
+    }
+}
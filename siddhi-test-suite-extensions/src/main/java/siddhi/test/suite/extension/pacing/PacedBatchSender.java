@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.pacing;
+
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends events to a stream through InputHandler.send(Event[]) in batches, at a pace set by the caller.
+ * Description: Events are added to a batch, which is sent when full. When the caller waits for the next event to be
+ *              due, the batch is sent early, so an event never waits for later events to fill its batch. Each batch
+ *              is sent as a new array, since the stream may keep it.
+ */
+public class PacedBatchSender {
+
+    private final InputHandler inputHandler;
+    private final Event[] batch;
+    private int batchLength;
+    private long sent;
+
+    public PacedBatchSender(InputHandler inputHandler, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, but was " + batchSize + ".");
+        }
+        this.inputHandler = inputHandler;
+        this.batch = new Event[batchSize];
+    }
+
+    /**
+     * Adds an event to the batch, and sends the batch when it is full.
+     */
+    public void add(Event event) throws InterruptedException {
+        batch[batchLength++] = event;
+        if (batchLength == batch.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Waits until the given System.nanoTime is reached, sending the batch first if it is not reached yet.
+     */
+    public void awaitDue(long due) throws InterruptedException {
+        if (due - System.nanoTime() > 0) {
+            flush();
+            parkUntil(due);
+        }
+    }
+
+    /**
+     * Sends the events added since the last batch was sent.
+     */
+    public void flush() throws InterruptedException {
+        if (batchLength == 0) {
+            return;
+        }
+        if (batchLength == batch.length) {
+            inputHandler.send(batch.clone());
+        } else {
+            Event[] partialBatch = new Event[batchLength];
+            System.arraycopy(batch, 0, partialBatch, 0, batchLength);
+            inputHandler.send(partialBatch);
+        }
+        sent += batchLength;
+        batchLength = 0;
+    }
+
+    /**
+     * Returns the number of events sent, without those still in the batch.
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * Parks the thread until the given System.nanoTime is reached.
+     */
+    public static void parkUntil(long due) throws InterruptedException {
+        long delay;
+        while ((delay = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(delay);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Interrupted while waiting for the next event to be due.");
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.persistence;
+
+import io.siddhi.core.exception.PersistenceStoreException;
+import io.siddhi.core.util.persistence.PersistenceStore;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File system persistence store writing each revision through a memory-mapped file.
+ * Description: A revision is written into a mapped temporary file, forced to the device and then renamed to its
+ *              revision name, and the rename is forced to the device with the directory, so a crash while saving
+ *              never leaves a partial revision as the last one, nor loses a saved one. Loading reads the file
+ *              straight into the snapshot array, which a restore right after a save serves from the page cache.
+ *              Files are kept under [directory]/[siddhi app name]/[revision], the oldest are deleted beyond the
+ *              revisions to keep. Set with siddhiManager.setPersistenceStore(new MappedFilePersistenceStore(...)).
+ */
+public class MappedFilePersistenceStore implements PersistenceStore {
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int DEFAULT_REVISIONS_TO_KEEP = 3;
+
+    private Path directory;
+    private int revisionsToKeep;
+
+    public MappedFilePersistenceStore(String directory) {
+        this(directory, DEFAULT_REVISIONS_TO_KEEP);
+    }
+
+    public MappedFilePersistenceStore(String directory, int revisionsToKeep) {
+        this.directory = Paths.get(directory);
+        this.revisionsToKeep = revisionsToKeep;
+    }
+
+    @Override
+    public void save(String siddhiAppName, String revision, byte[] snapshot) {
+        Path appDirectory = directory.resolve(siddhiAppName);
+        Path revisionFile = appDirectory.resolve(revision);
+        Path temporaryFile = appDirectory.resolve(revision + TEMPORARY_SUFFIX);
+        try {
+            Files.createDirectories(appDirectory);
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, snapshot.length);
+                buffer.put(snapshot);
+                buffer.force();
+            }
+            try {
+                Files.move(temporaryFile, revisionFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, revisionFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            forceDirectory(appDirectory);
+            deleteOldRevisions(appDirectory);
+        } catch (IOException e) {
+            throw new PersistenceStoreException("Cannot save revision '" + revision + "' of Siddhi app '" +
+                    siddhiAppName + "' to " + revisionFile.toAbsolutePath() + ".", e);
+        }
+    }
+
+    @Override
+    public void setProperties(Map properties) {
+        Object location = properties.get("location");
+        if (location != null) {
+            directory = Paths.get(location.toString());
+        }
+        Object revisionsToKeepProperty = properties.get("revisionsToKeep");
+        if (revisionsToKeepProperty != null) {
+            revisionsToKeep = Integer.parseInt(revisionsToKeepProperty.toString());
+        }
+    }
+
+    @Override
+    public byte[] load(String siddhiAppName, String revision) {
+        Path revisionFile = directory.resolve(siddhiAppName).resolve(revision);
+        try {
+            if (Files.size(revisionFile) > Integer.MAX_VALUE) {
+                throw new PersistenceStoreException("Revision '" + revision + "' of Siddhi app '" + siddhiAppName +
+                        "' is larger than 2 GB.");
+            }
+            return Files.readAllBytes(revisionFile);
+        } catch (IOException e) {
+            throw new PersistenceStoreException("Cannot load revision '" + revision + "' of Siddhi app '" +
+                    siddhiAppName + "' from " + revisionFile.toAbsolutePath() + ".", e);
+        }
+    }
+
+    @Override
+    public String getLastRevision(String siddhiAppName) {
+        List<Path> revisions = listRevisions(directory.resolve(siddhiAppName));
+        return revisions.isEmpty() ? null : revisions.get(revisions.size() - 1).getFileName().toString();
+    }
+
+    @Override
+    public void clearAllRevisions(String siddhiAppName) {
+        for (Path revision : listRevisions(directory.resolve(siddhiAppName))) {
+            try {
+                Files.deleteIfExists(revision);
+            } catch (IOException e) {
+                throw new PersistenceStoreException("Cannot delete revision " + revision.toAbsolutePath() + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Forces the entries of a directory, such as a renamed revision, to the device.
+     */
+    private static void forceDirectory(Path appDirectory) throws IOException {
+        try (FileChannel channel = FileChannel.open(appDirectory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            //Directories cannot be opened on Windows, the rename is left to the file system there
+        }
+    }
+
+    private void deleteOldRevisions(Path appDirectory) throws IOException {
+        List<Path> revisions = listRevisions(appDirectory);
+        for (int i = 0; i < revisions.size() - revisionsToKeep; i++) {
+            Files.deleteIfExists(revisions.get(i));
+        }
+    }
+
+    /**
+     * Lists the complete revisions of an app, oldest first. Revisions are named [timestamp]_[siddhi app name].
+     */
+    private static List<Path> listRevisions(Path appDirectory) {
+        List<Path> revisions = new ArrayList<>();
+        if (!Files.isDirectory(appDirectory)) {
+            return revisions;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(appDirectory)) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                    revisions.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenceStoreException("Cannot list the revisions in " + appDirectory.toAbsolutePath() +
+                    ".", e);
+        }
+        revisions.sort(Comparator.comparingLong(MappedFilePersistenceStore::timestamp)
+                .thenComparing(Path::getFileName));
+        return revisions;
+    }
+
+    private static long timestamp(Path revision) {
+        String name = revision.getFileName().toString();
+        int separator = name.indexOf('_');
+        try {
+            return Long.parseLong(separator < 0 ? name : name.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
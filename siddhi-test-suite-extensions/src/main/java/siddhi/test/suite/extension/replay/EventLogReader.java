@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.replay;
+
+import io.siddhi.core.event.Event;
+import io.siddhi.query.api.definition.Attribute;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the events of a binary event log written by {@link EventLogWriter} through a memory-mapped file.
+ * Description: The file is mapped read-only in regions, a new region is mapped from the start of a record that does
+ *              not fit in the current one. A zero record length or a record cut short by the end of the file ends the
+ *              log.
+ */
+public class EventLogReader implements Closeable {
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long regionSize;
+    private final Attribute.Type[] types;
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    public EventLogReader(Path file) throws IOException {
+        this(file, EventLogWriter.DEFAULT_REGION_SIZE);
+    }
+
+    EventLogReader(Path file, long regionSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.regionSize = regionSize;
+        try {
+            this.region = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(Math.max(regionSize, 1024),
+                    fileSize));
+            if (region.remaining() < EventLogWriter.headerSize(new Attribute.Type[0]) ||
+                    region.getInt() != EventLogWriter.MAGIC) {
+                throw new IOException(file.toAbsolutePath() + " is not an event log.");
+            }
+            short version = region.getShort();
+            if (version != EventLogWriter.VERSION) {
+                throw new IOException("Event log " + file.toAbsolutePath() + " has version " + version +
+                        ", only version " + EventLogWriter.VERSION + " is supported.");
+            }
+            Attribute.Type[] allTypes = Attribute.Type.values();
+            this.types = new Attribute.Type[region.getShort()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = allTypes[region.get()];
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Attribute.Type[] getAttributeTypes() {
+        return types.clone();
+    }
+
+    /**
+     * Returns the next event, or null at the end of the log.
+     */
+    public Event read() throws IOException {
+        if (nextRecordLength() == 0) {
+            return null;
+        }
+        region.position(region.position() + Integer.BYTES);
+        long timestamp = region.getLong();
+        Object[] data = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (region.get() == 0) {
+                continue;
+            }
+            switch (types[i]) {
+                case STRING:
+                    byte[] bytes = new byte[region.getInt()];
+                    region.get(bytes);
+                    data[i] = new String(bytes, StandardCharsets.UTF_8);
+                    break;
+                case INT:
+                    data[i] = region.getInt();
+                    break;
+                case LONG:
+                    data[i] = region.getLong();
+                    break;
+                case FLOAT:
+                    data[i] = region.getFloat();
+                    break;
+                case DOUBLE:
+                    data[i] = region.getDouble();
+                    break;
+                case BOOL:
+                    data[i] = region.get() != 0;
+                    break;
+                default:
+                    throw new IOException("Unexpected attribute type " + types[i] + " in the event log.");
+            }
+        }
+        return new Event(timestamp, data);
+    }
+
+    /**
+     * Moves past the next event without reading it, returns false at the end of the log.
+     */
+    boolean skip() throws IOException {
+        int recordLength = nextRecordLength();
+        if (recordLength == 0) {
+            return false;
+        }
+        region.position(region.position() + Integer.BYTES + recordLength);
+        return true;
+    }
+
+    /**
+     * Returns the offset in the file of the next record, which is the end of the log once read or skip is done.
+     */
+    long getPosition() {
+        return regionStart + region.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        channel.close();
+    }
+
+    /**
+     * Returns the length of the next record and makes it readable, or 0 at the end of the log.
+     */
+    private int nextRecordLength() throws IOException {
+        if (!ensureAvailable(Integer.BYTES)) {
+            return 0;
+        }
+        int recordLength = region.getInt(region.position());
+        if (recordLength <= 0 || !ensureAvailable(Integer.BYTES + recordLength)) {
+            return 0;
+        }
+        return recordLength;
+    }
+
+    /**
+     * Makes the given number of bytes from the read position readable, returns false if the file ends before.
+     */
+    private boolean ensureAvailable(int bytes) throws IOException {
+        if (region.remaining() >= bytes) {
+            return true;
+        }
+        long position = regionStart + region.position();
+        if (fileSize - position < bytes) {
+            return false;
+        }
+        regionStart = position;
+        region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                Math.min(Math.max(regionSize, bytes), fileSize - regionStart));
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.replay;
+
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import siddhi.test.suite.extension.pacing.PacedBatchSender;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a binary event log into a stream through InputHandler.send(Event[]) in batches.
+ * Description: Events are sent with their recorded timestamps, so with @app:playback the time based windows of the
+ *              app see the same time as when the log was recorded. At a speed of 1 the events are sent at the pace
+ *              they were recorded, at N the gaps between them are divided by N, and at 0 they are sent as fast as
+ *              the stream takes them. Batches are sent through {@link PacedBatchSender}, so when pacing, a batch is
+ *              sent early whenever the next event is not due yet.
+ */
+public class EventLogReplayer {
+
+    public static final double MAX_SPEED = 0;
+
+    private final Path file;
+    private final int batchSize;
+    private final double speed;
+
+    public EventLogReplayer(Path file, int batchSize, double speed) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, but was " + batchSize + ".");
+        }
+        if (speed < 0) {
+            throw new IllegalArgumentException("Speed must not be negative, but was " + speed + ".");
+        }
+        this.file = file;
+        this.batchSize = batchSize;
+        this.speed = speed;
+    }
+
+    /**
+     * Sends every event of the log to the input handler and returns the number of events sent.
+     */
+    public long replay(InputHandler inputHandler) throws IOException, InterruptedException {
+        PacedBatchSender sender = new PacedBatchSender(inputHandler, batchSize);
+        boolean first = true;
+        long firstTimestamp = 0;
+        long start = 0;
+        try (EventLogReader reader = new EventLogReader(file)) {
+            Event event;
+            while ((event = reader.read()) != null) {
+                if (speed != MAX_SPEED) {
+                    if (first) {
+                        first = false;
+                        firstTimestamp = event.getTimestamp();
+                        start = System.nanoTime();
+                    }
+                    sender.awaitDue(start + (long) (TimeUnit.MILLISECONDS.toNanos(
+                            event.getTimestamp() - firstTimestamp) / speed));
+                }
+                sender.add(event);
+            }
+        }
+        sender.flush();
+        return sender.getSent();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.replay;
+
+import io.siddhi.annotation.Example;
+import io.siddhi.annotation.Extension;
+import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiAppContext;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.exception.ConnectionUnavailableException;
+import io.siddhi.core.exception.SiddhiAppRuntimeException;
+import io.siddhi.core.stream.ServiceDeploymentInfo;
+import io.siddhi.core.stream.output.sink.Sink;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.snapshot.state.State;
+import io.siddhi.core.util.snapshot.state.StateFactory;
+import io.siddhi.core.util.transport.DynamicOptions;
+import io.siddhi.core.util.transport.OptionHolder;
+import io.siddhi.query.api.definition.StreamDefinition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Sink recording the events of a stream into a binary event log, to be replayed with {@link EventLogReplayer}.
+ * Description: Added with @map(type='passThrough') to a stream such as DeviceTemperatureStream, it writes every event
+ *              with its timestamp and typed attributes through {@link EventLogWriter}, so production traffic is
+ *              captured without JSON. The log is opened when the sink connects, and appended to if it exists, so
+ *              a reconnect or a restart keeps the events captured before. It is closed when the sink disconnects.
+ */
+@Extension(
+        name = "eventLog",
+        namespace = "sink",
+        description = "Records the events of the stream, with their timestamps, into a memory-mapped binary " +
+                "event log.",
+        parameters = {
+                @Parameter(name = "file",
+                        description = "Path of the event log, appended to if it exists.",
+                        type = {DataType.STRING}),
+                @Parameter(name = "region.size.mb",
+                        description = "Size of each memory-mapped region of the log file, in megabytes.",
+                        type = {DataType.INT},
+                        optional = true,
+                        defaultValue = "64")
+        },
+        examples = @Example(
+                syntax = "@sink(type='eventLog', file='/captures/device-temperature.log', " +
+                        "@map(type='passThrough'))\n" +
+                        "define stream DeviceTemperatureStream (type string, deviceID string, temp double, " +
+                        "roomID string);",
+                description = "Records the events of DeviceTemperatureStream to /captures/device-temperature.log.")
+)
+public class EventLogSink extends Sink<State> {
+
+    private static final String FILE = "file";
+    private static final String REGION_SIZE_MB = "region.size.mb";
+
+    private StreamDefinition streamDefinition;
+    private Path file;
+    private long regionSize;
+    private volatile EventLogWriter writer;
+
+    @Override
+    public Class[] getSupportedInputEventClasses() {
+        return new Class[]{Event.class, Event[].class};
+    }
+
+    @Override
+    protected ServiceDeploymentInfo exposeServiceDeploymentInfo() {
+        return null;
+    }
+
+    @Override
+    public String[] getSupportedDynamicOptions() {
+        return new String[0];
+    }
+
+    @Override
+    protected StateFactory<State> init(StreamDefinition outputStreamDefinition, OptionHolder optionHolder,
+                                       ConfigReader sinkConfigReader, SiddhiAppContext siddhiAppContext) {
+        this.streamDefinition = outputStreamDefinition;
+        this.file = Paths.get(optionHolder.validateAndGetStaticValue(FILE));
+        this.regionSize = Long.parseLong(optionHolder.validateAndGetStaticValue(REGION_SIZE_MB, "64")) * 1024 * 1024;
+        return null;
+    }
+
+    @Override
+    public void publish(Object payload, DynamicOptions dynamicOptions, State state)
+            throws ConnectionUnavailableException {
+        EventLogWriter currentWriter = writer;
+        if (currentWriter == null) {
+            throw new ConnectionUnavailableException("Event log " + file.toAbsolutePath() + " is not open.");
+        }
+        try {
+            if (payload instanceof Event[]) {
+                for (Event event : (Event[]) payload) {
+                    currentWriter.write(event.getTimestamp(), event.getData());
+                }
+            } else {
+                Event event = (Event) payload;
+                currentWriter.write(event.getTimestamp(), event.getData());
+            }
+        } catch (IOException e) {
+            throw new SiddhiAppRuntimeException("Cannot write to event log " + file.toAbsolutePath() + ".", e);
+        }
+    }
+
+    @Override
+    public void connect() throws ConnectionUnavailableException {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            writer = new EventLogWriter(file, streamDefinition.getAttributeList(), regionSize);
+        } catch (IOException e) {
+            throw new ConnectionUnavailableException("Cannot open event log " + file.toAbsolutePath() + ".", e);
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        EventLogWriter currentWriter = writer;
+        writer = null;
+        if (currentWriter != null) {
+            try {
+                currentWriter.close();
+            } catch (IOException e) {
+                throw new SiddhiAppRuntimeException("Cannot close event log " + file.toAbsolutePath() + ".", e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        //The log is closed on disconnect
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.replay;
+
+import io.siddhi.query.api.definition.Attribute;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes events into a binary event log through a memory-mapped file.
+ * Description: The log starts with a header holding the attribute types, followed by one record per event: the
+ *              record length, the event timestamp and each attribute as a presence byte and its typed value, strings
+ *              as their UTF-8 length and bytes. The file is mapped in regions, a new region is mapped when a record
+ *              does not fit in the current one, and the file is cut to the written length when the writer is closed.
+ *              The record length is written last, after the rest of the record, and the unwritten part of a region
+ *              is zero, which reads as the end of the log. A record torn by a crashed writer therefore has a zero
+ *              length, so the log can still be read up to its last whole record.
+ *              An existing log is appended to, after its last whole record, so a reconnect or a restart of the app
+ *              keeps the events captured before. Its attribute types must be those of the writer.
+ *              OBJECT attributes have no binary form and are rejected.
+ */
+public class EventLogWriter implements Closeable {
+
+    static final int MAGIC = 0x5345564C;
+    static final short VERSION = 1;
+    static final long DEFAULT_REGION_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Attribute.Type[] types;
+    private final long regionSize;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long eventCount;
+
+    public EventLogWriter(Path file, List<Attribute> attributes) throws IOException {
+        this(file, attributes, DEFAULT_REGION_SIZE);
+    }
+
+    EventLogWriter(Path file, List<Attribute> attributes, long regionSize) throws IOException {
+        this.types = new Attribute.Type[attributes.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = attributes.get(i).getType();
+            if (types[i] == Attribute.Type.OBJECT) {
+                throw new IllegalArgumentException("Attribute '" + attributes.get(i).getName() + "' is of type " +
+                        "OBJECT, which cannot be written to an event log.");
+            }
+        }
+        this.regionSize = regionSize;
+        long end = Files.exists(file) && Files.size(file) > 0 ? endOfLog(file, types, regionSize) : 0;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (end > 0) {
+                //Drops a torn record or the unwritten region of a crashed writer, the log is extended with zeros
+                channel.truncate(end);
+                this.regionStart = end;
+                this.region = channel.map(FileChannel.MapMode.READ_WRITE, end, regionSize);
+                return;
+            }
+            this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(regionSize, headerSize(types)));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        region.putInt(MAGIC);
+        region.putShort(VERSION);
+        region.putShort((short) types.length);
+        for (Attribute.Type type : types) {
+            region.put((byte) type.ordinal());
+        }
+    }
+
+    /**
+     * Appends an event with the given timestamp and attribute values.
+     */
+    public synchronized void write(long timestamp, Object[] data) throws IOException {
+        if (data.length != types.length) {
+            throw new IllegalArgumentException("Expected " + types.length + " attributes but the event has " +
+                    data.length + ".");
+        }
+        byte[][] strings = null;
+        int recordLength = Long.BYTES + types.length;
+        for (int i = 0; i < types.length; i++) {
+            if (data[i] == null) {
+                continue;
+            }
+            if (types[i] == Attribute.Type.STRING) {
+                if (strings == null) {
+                    strings = new byte[types.length][];
+                }
+                strings[i] = data[i].toString().getBytes(StandardCharsets.UTF_8);
+                recordLength += Integer.BYTES + strings[i].length;
+            } else {
+                recordLength += valueSize(types[i]);
+            }
+        }
+        ensureCapacity(Integer.BYTES + recordLength);
+        int recordStart = region.position();
+        region.position(recordStart + Integer.BYTES);
+        region.putLong(timestamp);
+        for (int i = 0; i < types.length; i++) {
+            if (data[i] == null) {
+                region.put((byte) 0);
+                continue;
+            }
+            region.put((byte) 1);
+            switch (types[i]) {
+                case STRING:
+                    region.putInt(strings[i].length);
+                    region.put(strings[i]);
+                    break;
+                case INT:
+                    region.putInt(((Number) data[i]).intValue());
+                    break;
+                case LONG:
+                    region.putLong(((Number) data[i]).longValue());
+                    break;
+                case FLOAT:
+                    region.putFloat(((Number) data[i]).floatValue());
+                    break;
+                case DOUBLE:
+                    region.putDouble(((Number) data[i]).doubleValue());
+                    break;
+                case BOOL:
+                    region.put((byte) ((Boolean) data[i] ? 1 : 0));
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected attribute type " + types[i] + ".");
+            }
+        }
+        region.putInt(recordStart, recordLength);
+        eventCount++;
+    }
+
+    /**
+     * Returns the number of events written by this writer, without those of the log it appends to.
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Forces the written records to the storage device.
+     */
+    public synchronized void flush() {
+        region.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        long length = regionStart + region.position();
+        region.force();
+        region = null;
+        channel.truncate(length);
+        channel.close();
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (region.remaining() >= bytes) {
+            return;
+        }
+        region.force();
+        regionStart += region.position();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(regionSize, bytes));
+    }
+
+    /**
+     * Returns the end of the last whole record of an existing log, after checking that it holds the given types.
+     */
+    private static long endOfLog(Path file, Attribute.Type[] types, long regionSize) throws IOException {
+        try (EventLogReader reader = new EventLogReader(file, regionSize)) {
+            if (!Arrays.equals(reader.getAttributeTypes(), types)) {
+                throw new IOException("Event log " + file.toAbsolutePath() + " holds the attribute types " +
+                        Arrays.toString(reader.getAttributeTypes()) + ", not " + Arrays.toString(types) + ".");
+            }
+            while (reader.skip()) {
+                //Skips to the end of the log
+            }
+            return reader.getPosition();
+        }
+    }
+
+    static int headerSize(Attribute.Type[] types) {
+        return Integer.BYTES + Short.BYTES + Short.BYTES + types.length;
+    }
+
+    static int valueSize(Attribute.Type type) {
+        switch (type) {
+            case INT:
+            case FLOAT:
+                return Integer.BYTES;
+            case LONG:
+            case DOUBLE:
+                return Long.BYTES;
+            case BOOL:
+                return 1;
+            default:
+                throw new IllegalArgumentException("Attribute type " + type + " has no fixed size.");
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.temperature;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from deviceID to the partial matches of the rise-then-fall pattern
+ * every e1, e2[e1.temp &lt;= temp], e3[e2.temp &gt; temp] of that device.
+ * Partial matches are kept as primitive stacks:
+ * rising  - temps of e1 waiting for e2, strictly decreasing from bottom to top.
+ * falling - (e1.temp, e2.temp) pairs waiting for e3, e2.temp non-decreasing from bottom to top.
+ * Both orders hold for every input, so a temperature only ever pops entries from the top of the stacks.
+ * Stacks grow per device, an event does not allocate unless a stack or the match buffer has to grow.
+ */
+final class DevicePeakStates implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_STACK_CAPACITY = 4;
+
+    private String[] keys;
+    private double[][] risingTemps;
+    private int[] risingSizes;
+    private double[][] fallingInitialTemps;
+    private double[][] fallingPeakTemps;
+    private int[] fallingSizes;
+    private int size;
+
+    private transient double[] matchedInitialTemps = new double[INITIAL_STACK_CAPACITY];
+    private transient double[] matchedPeakTemps = new double[INITIAL_STACK_CAPACITY];
+
+    DevicePeakStates() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Applies the temperature of a device and returns the number of completed rise-then-fall matches.
+     * The matches can be read through {@link #matchedInitialTemp(int)} and {@link #matchedPeakTemp(int)}
+     * until the next call, in the order the partial matches reached their peak.
+     */
+    int onTemperature(String deviceId, double temp) {
+        int slot = slotOf(deviceId);
+        if (keys[slot] == null) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                slot = slotOf(deviceId);
+            }
+            keys[slot] = deviceId;
+            risingTemps[slot] = new double[INITIAL_STACK_CAPACITY];
+            fallingInitialTemps[slot] = new double[INITIAL_STACK_CAPACITY];
+            fallingPeakTemps[slot] = new double[INITIAL_STACK_CAPACITY];
+            size++;
+        }
+
+        // e3: every partial match whose peak is above this temperature completes
+        double[] peaks = fallingPeakTemps[slot];
+        double[] initials = fallingInitialTemps[slot];
+        int fallingSize = fallingSizes[slot];
+        int firstFalling = fallingSize;
+        while (firstFalling > 0 && peaks[firstFalling - 1] > temp) {
+            firstFalling--;
+        }
+        int matches = fallingSize - firstFalling;
+        ensureMatchCapacity(matches);
+        System.arraycopy(initials, firstFalling, matchedInitialTemps, 0, matches);
+        System.arraycopy(peaks, firstFalling, matchedPeakTemps, 0, matches);
+        fallingSize = firstFalling;
+
+        // e2: every partial match started at or below this temperature now waits for a fall from it
+        double[] rising = risingTemps[slot];
+        int risingSize = risingSizes[slot];
+        int firstRising = risingSize;
+        while (firstRising > 0 && rising[firstRising - 1] <= temp) {
+            firstRising--;
+        }
+        int risen = risingSize - firstRising;
+        if (fallingSize + risen > peaks.length) {
+            int capacity = grownCapacity(peaks.length, fallingSize + risen);
+            peaks = Arrays.copyOf(peaks, capacity);
+            initials = Arrays.copyOf(initials, capacity);
+            fallingPeakTemps[slot] = peaks;
+            fallingInitialTemps[slot] = initials;
+        }
+        System.arraycopy(rising, firstRising, initials, fallingSize, risen);
+        Arrays.fill(peaks, fallingSize, fallingSize + risen, temp);
+        fallingSizes[slot] = fallingSize + risen;
+
+        // every e1: this temperature starts a new partial match
+        risingSize = firstRising;
+        if (risingSize == rising.length) {
+            rising = Arrays.copyOf(rising, grownCapacity(rising.length, risingSize + 1));
+            risingTemps[slot] = rising;
+        }
+        rising[risingSize] = temp;
+        risingSizes[slot] = risingSize + 1;
+        return matches;
+    }
+
+    double matchedInitialTemp(int index) {
+        return matchedInitialTemps[index];
+    }
+
+    double matchedPeakTemp(int index) {
+        return matchedPeakTemps[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Number of partial matches kept for all devices.
+     */
+    long partialMatches() {
+        long partialMatches = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            partialMatches += risingSizes[slot] + fallingSizes[slot];
+        }
+        return partialMatches;
+    }
+
+    DevicePeakStates copy() {
+        DevicePeakStates copy = new DevicePeakStates();
+        copy.allocate(keys.length);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                copy.keys[slot] = keys[slot];
+                copy.risingTemps[slot] = Arrays.copyOf(risingTemps[slot], risingSizes[slot]);
+                copy.risingSizes[slot] = risingSizes[slot];
+                copy.fallingInitialTemps[slot] = Arrays.copyOf(fallingInitialTemps[slot], fallingSizes[slot]);
+                copy.fallingPeakTemps[slot] = Arrays.copyOf(fallingPeakTemps[slot], fallingSizes[slot]);
+                copy.fallingSizes[slot] = fallingSizes[slot];
+            }
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    private int slotOf(String deviceId) {
+        int hash = deviceId.hashCode() * 0x9E3779B9;
+        int mask = keys.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != null && !keys[slot].equals(deviceId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        double[][] oldRisingTemps = risingTemps;
+        int[] oldRisingSizes = risingSizes;
+        double[][] oldFallingInitialTemps = fallingInitialTemps;
+        double[][] oldFallingPeakTemps = fallingPeakTemps;
+        int[] oldFallingSizes = fallingSizes;
+        allocate(capacity);
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldKeys[oldSlot] != null) {
+                int slot = slotOf(oldKeys[oldSlot]);
+                keys[slot] = oldKeys[oldSlot];
+                risingTemps[slot] = oldRisingTemps[oldSlot];
+                risingSizes[slot] = oldRisingSizes[oldSlot];
+                fallingInitialTemps[slot] = oldFallingInitialTemps[oldSlot];
+                fallingPeakTemps[slot] = oldFallingPeakTemps[oldSlot];
+                fallingSizes[slot] = oldFallingSizes[oldSlot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        risingTemps = new double[capacity][];
+        risingSizes = new int[capacity];
+        fallingInitialTemps = new double[capacity][];
+        fallingPeakTemps = new double[capacity][];
+        fallingSizes = new int[capacity];
+    }
+
+    private void ensureMatchCapacity(int matches) {
+        if (matchedInitialTemps == null || matchedInitialTemps.length < matches) {
+            int capacity = grownCapacity(INITIAL_STACK_CAPACITY, matches);
+            matchedInitialTemps = new double[capacity];
+            matchedPeakTemps = new double[capacity];
+        }
+    }
+
+    private static int grownCapacity(int capacity, int required) {
+        capacity = Math.max(capacity, INITIAL_STACK_CAPACITY);
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+}
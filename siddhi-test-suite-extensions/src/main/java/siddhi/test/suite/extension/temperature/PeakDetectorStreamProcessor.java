@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.temperature;
+
+import io.siddhi.annotation.Example;
+import io.siddhi.annotation.Extension;
+import io.siddhi.annotation.Parameter;
+import io.siddhi.annotation.ReturnAttribute;
+import io.siddhi.annotation.util.DataType;
+import io.siddhi.core.config.SiddhiQueryContext;
+import io.siddhi.core.event.ComplexEvent;
+import io.siddhi.core.event.ComplexEventChunk;
+import io.siddhi.core.event.stream.MetaStreamEvent;
+import io.siddhi.core.event.stream.StreamEvent;
+import io.siddhi.core.event.stream.StreamEventCloner;
+import io.siddhi.core.event.stream.holder.StreamEventClonerHolder;
+import io.siddhi.core.event.stream.populater.ComplexEventPopulater;
+import io.siddhi.core.executor.ExpressionExecutor;
+import io.siddhi.core.query.processor.ProcessingMode;
+import io.siddhi.core.query.processor.Processor;
+import io.siddhi.core.query.processor.stream.StreamProcessor;
+import io.siddhi.core.util.config.ConfigReader;
+import io.siddhi.core.util.snapshot.state.State;
+import io.siddhi.core.util.snapshot.state.StateFactory;
+import io.siddhi.query.api.definition.AbstractDefinition;
+import io.siddhi.query.api.definition.Attribute;
+import io.siddhi.query.api.exception.SiddhiAppValidationException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects rise-then-fall temperature peaks per device without partitioning the stream.
+ * Emits the same matches as the partitioned pattern of Temp-Alert-App:
+ * partition with (deviceID of MonitoredDevicesTempStream)
+ * from every e1=MonitoredDevicesTempStream, e2=MonitoredDevicesTempStream[e1.temp &lt;= temp],
+ *      e3=MonitoredDevicesTempStream[e2[last].temp &gt; temp]
+ * The partial matches of all devices are held in one {@link DevicePeakStates} map instead of a pattern runtime
+ * per partition.
+ */
+@Extension(
+        name = "peakDetector",
+        namespace = "temperature",
+        description = "Detects a temperature rise followed by a fall for each device. For every earlier " +
+                "temperature of the device that was followed by an equal or higher peak, an event is emitted " +
+                "when a temperature lower than that peak arrives.",
+        parameters = {
+                @Parameter(name = "device.id",
+                        description = "The attribute identifying the device.",
+                        type = {DataType.STRING},
+                        dynamic = true),
+                @Parameter(name = "temp",
+                        description = "The temperature reported by the device.",
+                        type = {DataType.DOUBLE},
+                        dynamic = true)
+        },
+        returnAttributes = {
+                @ReturnAttribute(name = "initialTemp",
+                        description = "The temperature the rise started from.",
+                        type = {DataType.DOUBLE}),
+                @ReturnAttribute(name = "peakTemp",
+                        description = "The peak temperature before the fall.",
+                        type = {DataType.DOUBLE})
+        },
+        examples = @Example(
+                syntax = "from MonitoredDevicesTempStream#temperature:peakDetector(deviceID, temp)\n" +
+                        "select deviceID, initialTemp, peakTemp\n" +
+                        "insert into PeakTempStream;",
+                description = "Emits deviceID, initialTemp and peakTemp when the temperature of a device falls " +
+                        "after a rise, same as the temperature-increase-detector pattern.")
+)
+public class PeakDetectorStreamProcessor extends StreamProcessor<PeakDetectorStreamProcessor.PeakDetectorState> {
+
+    private ExpressionExecutor deviceIdExecutor;
+    private ExpressionExecutor tempExecutor;
+    private List<Attribute> returnAttributes;
+
+    @Override
+    protected StateFactory<PeakDetectorState> init(MetaStreamEvent metaStreamEvent,
+                                                   AbstractDefinition inputDefinition,
+                                                   ExpressionExecutor[] attributeExpressionExecutors,
+                                                   ConfigReader configReader,
+                                                   StreamEventClonerHolder streamEventClonerHolder,
+                                                   boolean outputExpectsExpiredEvents,
+                                                   boolean findToBeExecuted,
+                                                   SiddhiQueryContext siddhiQueryContext) {
+        if (attributeExpressionExecutors.length != 2) {
+            throw new SiddhiAppValidationException("temperature:peakDetector expects 2 parameters, " +
+                    "device.id and temp, but found " + attributeExpressionExecutors.length + ".");
+        }
+        deviceIdExecutor = attributeExpressionExecutors[0];
+        if (deviceIdExecutor.getReturnType() != Attribute.Type.STRING) {
+            throw new SiddhiAppValidationException("The device.id parameter of temperature:peakDetector " +
+                    "should be of type STRING, but found " + deviceIdExecutor.getReturnType() + ".");
+        }
+        tempExecutor = attributeExpressionExecutors[1];
+        if (tempExecutor.getReturnType() != Attribute.Type.DOUBLE) {
+            throw new SiddhiAppValidationException("The temp parameter of temperature:peakDetector " +
+                    "should be of type DOUBLE, but found " + tempExecutor.getReturnType() + ".");
+        }
+        returnAttributes = new ArrayList<>(2);
+        returnAttributes.add(new Attribute("initialTemp", Attribute.Type.DOUBLE));
+        returnAttributes.add(new Attribute("peakTemp", Attribute.Type.DOUBLE));
+        return PeakDetectorState::new;
+    }
+
+    @Override
+    protected void process(ComplexEventChunk<StreamEvent> streamEventChunk, Processor nextProcessor,
+                           StreamEventCloner streamEventCloner, ComplexEventPopulater complexEventPopulater,
+                           PeakDetectorState state) {
+        synchronized (state) {
+            DevicePeakStates devicePeakStates = state.devicePeakStates;
+            while (streamEventChunk.hasNext()) {
+                StreamEvent streamEvent = streamEventChunk.next();
+                if (streamEvent.getType() != ComplexEvent.Type.CURRENT) {
+                    continue;
+                }
+                Object deviceId = deviceIdExecutor.execute(streamEvent);
+                Object temp = tempExecutor.execute(streamEvent);
+                if (deviceId != null && temp != null) {
+                    int matches = devicePeakStates.onTemperature((String) deviceId, (Double) temp);
+                    for (int i = 0; i < matches; i++) {
+                        StreamEvent peakEvent = streamEventCloner.copyStreamEvent(streamEvent);
+                        complexEventPopulater.populateComplexEvent(peakEvent, new Object[]{
+                                devicePeakStates.matchedInitialTemp(i), devicePeakStates.matchedPeakTemp(i)});
+                        streamEventChunk.insertBeforeCurrent(peakEvent);
+                    }
+                }
+                streamEventChunk.remove();
+            }
+        }
+        if (streamEventChunk.getFirst() != null) {
+            nextProcessor.process(streamEventChunk);
+        }
+    }
+
+    @Override
+    public List<Attribute> getReturnAttributes() {
+        return returnAttributes;
+    }
+
+    @Override
+    public ProcessingMode getProcessingMode() {
+        return ProcessingMode.BATCH;
+    }
+
+    @Override
+    public void start() {
+        //Nothing to start
+    }
+
+    @Override
+    public void stop() {
+        //Nothing to stop
+    }
+
+    /**
+     * Partial matches of all devices seen by the query.
+     */
+    static class PeakDetectorState extends State {
+        private static final String DEVICE_PEAK_STATES = "devicePeakStates";
+
+        private DevicePeakStates devicePeakStates = new DevicePeakStates();
+
+        @Override
+        public boolean canDestroy() {
+            return devicePeakStates.size() == 0;
+        }
+
+        @Override
+        public Map<String, Object> snapshot() {
+            Map<String, Object> state = new HashMap<>();
+            state.put(DEVICE_PEAK_STATES, devicePeakStates.copy());
+            return state;
+        }
+
+        @Override
+        public void restore(Map<String, Object> state) {
+            devicePeakStates = ((DevicePeakStates) state.get(DEVICE_PEAK_STATES)).copy();
+        }
+
+        DevicePeakStates getDevicePeakStates() {
+            return devicePeakStates;
+        }
+    }
+}
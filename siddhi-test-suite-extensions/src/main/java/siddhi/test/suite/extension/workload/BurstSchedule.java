@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.workload;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate of a generated workload, steady or with periodic bursts.
+ * Description: The workload runs at the base rate, except for the first burst duration of every burst period where
+ *              it runs at the base rate times the burst multiplier. A base rate of {@link #MAX_SPEED} sends events as
+ *              fast as they are taken, without pacing.
+ */
+public class BurstSchedule {
+
+    public static final double MAX_SPEED = 0;
+
+    private final double eventsPerSecond;
+    private final long periodNanos;
+    private final long durationNanos;
+    private final double multiplier;
+
+    public BurstSchedule(double eventsPerSecond) {
+        this(eventsPerSecond, 0, 0, 1);
+    }
+
+    public BurstSchedule(double eventsPerSecond, long periodMillis, long durationMillis, double multiplier) {
+        if (eventsPerSecond < 0) {
+            throw new IllegalArgumentException("Rate must not be negative, but was " + eventsPerSecond + ".");
+        }
+        if (periodMillis < 0 || durationMillis < 0 || durationMillis > periodMillis) {
+            throw new IllegalArgumentException("Burst duration must be between 0 and the burst period of " +
+                    periodMillis + " ms, but was " + durationMillis + " ms.");
+        }
+        if (multiplier <= 0) {
+            throw new IllegalArgumentException("Burst multiplier must be positive, but was " + multiplier + ".");
+        }
+        this.eventsPerSecond = eventsPerSecond;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        this.durationNanos = TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        this.multiplier = multiplier;
+    }
+
+    public boolean isPaced() {
+        return eventsPerSecond != MAX_SPEED;
+    }
+
+    /**
+     * Returns the rate in events per second at the given time since the start of the workload.
+     */
+    public double getRate(long elapsedNanos) {
+        if (durationNanos > 0 && elapsedNanos % periodNanos < durationNanos) {
+            return eventsPerSecond * multiplier;
+        }
+        return eventsPerSecond;
+    }
+
+    /**
+     * Returns the time from an event sent at the given time since the start of the workload to the next event.
+     */
+    public long getIntervalNanos(long elapsedNanos) {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / getRate(elapsedNanos));
+    }
+}
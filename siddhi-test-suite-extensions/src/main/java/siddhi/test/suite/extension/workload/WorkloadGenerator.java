@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.workload;
+
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+import siddhi.test.suite.extension.pacing.PacedBatchSender;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Generates DeviceTemperatureStream events (type, deviceID, temp, roomID) of a fleet of devices, one at a time.
+ * Description: Each event comes from a device drawn from a {@link ZipfDistribution}, so a few hot devices send most of
+ *              the events. Each device is monitored or internal for the whole run, at the monitored ratio, and sits in
+ *              one of {@link #ROOMS} rooms. The temperature of a device takes a random walk of up to walk.step degrees
+ *              per event, kept between {@link #MIN_TEMP} and {@link #MAX_WALK_TEMP}, so its local peaks do not pass
+ *              the alert threshold of {@link #ALERT_TEMP}. With the peak probability, an event starts a peak instead:
+ *              the device jumps above the threshold and falls back below it on its next event. Every completed peak
+ *              of a monitored device completes the rise-and-fall pattern of Temp-Alert-App with a peak over the
+ *              threshold, so {@link #getPeaks} is the number of alerts the generated events raise.
+ *              Events are generated as they are sent, so no dataset is kept in memory, only the temperature of each
+ *              device. The same seed generates the same events.
+ */
+public class WorkloadGenerator {
+
+    public static final String MONITORED = "monitored";
+    public static final String INTERNAL = "internal";
+    public static final double ALERT_TEMP = 75;
+    public static final double MIN_TEMP = 15;
+    public static final double MAX_WALK_TEMP = 74;
+    public static final int ROOMS = 16;
+
+    private static final double MIN_PEAK_RISE = 1;
+    private static final double MAX_PEAK_RISE = 20;
+    private static final double MIN_PEAK_FALL = 10;
+
+    private final int devices;
+    private final String devicePrefix;
+    private final double peakProbability;
+    private final double walkStep;
+    private final BurstSchedule schedule;
+    private final SplittableRandom random;
+    private final ZipfDistribution zipf;
+    private final BitSet monitored;
+    private final BitSet peaking;
+    private final double[] temps;
+    private long events;
+    private long monitoredEvents;
+    private long peaks;
+
+    private WorkloadGenerator(Builder builder) {
+        if (builder.monitoredRatio < 0 || builder.monitoredRatio > 1) {
+            throw new IllegalArgumentException("Monitored ratio must be between 0 and 1, but was " +
+                    builder.monitoredRatio + ".");
+        }
+        if (builder.peakProbability < 0 || builder.peakProbability > 1) {
+            throw new IllegalArgumentException("Peak probability must be between 0 and 1, but was " +
+                    builder.peakProbability + ".");
+        }
+        if (builder.walkStep < 0) {
+            throw new IllegalArgumentException("Walk step must not be negative, but was " + builder.walkStep + ".");
+        }
+        this.devices = builder.devices;
+        this.devicePrefix = builder.devicePrefix;
+        this.peakProbability = builder.peakProbability;
+        this.walkStep = builder.walkStep;
+        this.schedule = builder.schedule;
+        this.random = new SplittableRandom(builder.seed);
+        this.zipf = new ZipfDistribution(builder.devices, builder.zipfExponent, random.split());
+        this.monitored = new BitSet(builder.devices);
+        for (int device = 0; device < builder.devices; device++) {
+            if (random.nextDouble() < builder.monitoredRatio) {
+                monitored.set(device);
+            }
+        }
+        this.peaking = new BitSet(builder.devices);
+        this.temps = new double[builder.devices];
+        for (int device = 0; device < builder.devices; device++) {
+            temps[device] = Double.NaN;
+        }
+    }
+
+    /**
+     * Returns the data of the next event: type, deviceID, temp and roomID.
+     */
+    public Object[] next() {
+        int device = zipf.sample();
+        double temp = temps[device];
+        boolean isMonitored = monitored.get(device);
+        if (Double.isNaN(temp)) {
+            temp = MIN_TEMP + random.nextDouble() * (MAX_WALK_TEMP - MIN_TEMP);
+        } else if (peaking.get(device)) {
+            temp = Math.min(MAX_WALK_TEMP, temp - MIN_PEAK_FALL - random.nextDouble() * MAX_PEAK_RISE);
+            peaking.clear(device);
+            if (isMonitored) {
+                peaks++;
+            }
+        } else if (peakProbability > 0 && random.nextDouble() < peakProbability) {
+            temp = ALERT_TEMP + MIN_PEAK_RISE + random.nextDouble() * (MAX_PEAK_RISE - MIN_PEAK_RISE);
+            peaking.set(device);
+        } else {
+            temp = Math.max(MIN_TEMP, Math.min(MAX_WALK_TEMP, temp + (random.nextDouble() * 2 - 1) * walkStep));
+        }
+        temp = Math.round(temp * 10) / 10.0;
+        temps[device] = temp;
+        events++;
+        if (isMonitored) {
+            monitoredEvents++;
+        }
+        return new Object[]{isMonitored ? MONITORED : INTERNAL, devicePrefix + device, temp,
+                "ServerRoom" + device % ROOMS};
+    }
+
+    /**
+     * Sends the given number of events to the input handler in batches, at the rate of the burst schedule.
+     * Batches are sent through {@link PacedBatchSender}, early whenever the next event is not due yet.
+     */
+    public long send(InputHandler inputHandler, long count, int batchSize) throws InterruptedException {
+        PacedBatchSender sender = new PacedBatchSender(inputHandler, batchSize);
+        long start = System.nanoTime();
+        long due = start;
+        for (long sent = 0; sent < count; sent++) {
+            if (schedule.isPaced()) {
+                sender.awaitDue(due);
+                due += schedule.getIntervalNanos(due - start);
+            }
+            sender.add(new Event(System.currentTimeMillis(), next()));
+        }
+        sender.flush();
+        return count;
+    }
+
+    /**
+     * Publishes the given number of events as JSON messages, as read by the json mapper of Temp-Alert-App, at the
+     * rate of the burst schedule.
+     */
+    public long publish(MessagePublisher publisher, long count)
+            throws IOException, InterruptedException, TimeoutException {
+        long start = System.nanoTime();
+        long due = start;
+        for (long sent = 0; sent < count; sent++) {
+            if (schedule.isPaced()) {
+                PacedBatchSender.parkUntil(due);
+                due += schedule.getIntervalNanos(due - start);
+            }
+            publisher.publish(toJson(next()));
+        }
+        return count;
+    }
+
+    /**
+     * Publishes the given number of events as JSON messages to a destination of LoopbackNatsBroker.
+     */
+    public long publish(String destination, long count) throws InterruptedException {
+        try {
+            return publish(message -> LoopbackNatsBroker.publish(destination, message), count);
+        } catch (IOException | TimeoutException e) {
+            throw new IllegalStateException("Publishing to the loopback broker does not throw " + e, e);
+        }
+    }
+
+    /**
+     * Returns the JSON message of the data of an event.
+     */
+    public static String toJson(Object[] data) {
+        return "{\"event\":{\"type\":\"" + data[0] + "\",\"deviceID\":\"" + data[1] + "\",\"temp\":" + data[2] +
+                ",\"roomID\":\"" + data[3] + "\"}}";
+    }
+
+    public int getDevices() {
+        return devices;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getMonitoredEvents() {
+        return monitoredEvents;
+    }
+
+    /**
+     * Returns the number of peaks above {@link #ALERT_TEMP} completed by monitored devices, which is the number of
+     * alerts raised by the events generated so far.
+     */
+    public long getPeaks() {
+        return peaks;
+    }
+
+    /**
+     * Publishes a JSON message, as to a NATS streaming connection.
+     */
+    public interface MessagePublisher {
+        void publish(String message) throws IOException, InterruptedException, TimeoutException;
+    }
+
+    /**
+     * Settings of a {@link WorkloadGenerator}.
+     */
+    public static class Builder {
+        private final int devices;
+        private long seed = 1;
+        private double zipfExponent = 1;
+        private double monitoredRatio = 0.5;
+        private double peakProbability = 0.01;
+        private double walkStep = 2;
+        private String devicePrefix = "device-";
+        private BurstSchedule schedule = new BurstSchedule(BurstSchedule.MAX_SPEED);
+
+        public Builder(int devices) {
+            this.devices = devices;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Skew of the events over the devices, 0 for uniform, default 1.
+         */
+        public Builder zipfExponent(double zipfExponent) {
+            this.zipfExponent = zipfExponent;
+            return this;
+        }
+
+        /**
+         * Share of the devices sending monitored events, default 0.5.
+         */
+        public Builder monitoredRatio(double monitoredRatio) {
+            this.monitoredRatio = monitoredRatio;
+            return this;
+        }
+
+        /**
+         * Probability that an event of a device starts a peak above the alert threshold, default 0.01.
+         */
+        public Builder peakProbability(double peakProbability) {
+            this.peakProbability = peakProbability;
+            return this;
+        }
+
+        /**
+         * Largest change of a temperature between two events of a device outside peaks, default 2 degrees.
+         */
+        public Builder walkStep(double walkStep) {
+            this.walkStep = walkStep;
+            return this;
+        }
+
+        public Builder devicePrefix(String devicePrefix) {
+            this.devicePrefix = devicePrefix;
+            return this;
+        }
+
+        /**
+         * Rate of the events, default {@link BurstSchedule#MAX_SPEED}.
+         */
+        public Builder schedule(BurstSchedule schedule) {
+            this.schedule = schedule;
+            return this;
+        }
+
+        public WorkloadGenerator build() {
+            return new WorkloadGenerator(this);
+        }
+    }
+}
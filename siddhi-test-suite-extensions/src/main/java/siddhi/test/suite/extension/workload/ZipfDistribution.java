@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.workload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks 0 to n - 1 with probability proportional to 1 / (rank + 1)^exponent.
+ * Description: Uses the rejection-inversion method of Hormann and Derflinger, which takes constant time and memory
+ *              per sample whatever the number of ranks, so millions of devices need no probability table. An exponent
+ *              of 0 samples the ranks uniformly, and the larger the exponent the more samples go to the first ranks.
+ */
+public class ZipfDistribution {
+
+    private final int n;
+    private final double exponent;
+    private final SplittableRandom random;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public ZipfDistribution(int n, double exponent, SplittableRandom random) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Number of ranks must be at least 1, but was " + n + ".");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Exponent must not be negative, but was " + exponent + ".");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.random = random;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Returns the next rank, from 0 for the most frequent to n - 1 for the least frequent.
+     */
+    public int sample() {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > n) {
+                k = n;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) {
+            t = -1;
+        }
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    private static double log1pOverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    private static double expm1OverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.app;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.query.api.SiddhiApp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Testsuite for the cache of parsed Siddhi apps.
+ */
+public class SiddhiAppCacheTests {
+    private static final Logger logger = LoggerFactory.getLogger(SiddhiAppCacheTests.class);
+
+    private static final String APP = "@App:name('Cached-App')\n" +
+            "define stream TempStream (deviceID string, temp double);\n" +
+            "@sink(type='log')\n" +
+            "define stream HotStream (deviceID string, temp double);\n" +
+            "from TempStream[temp > ${THRESHOLD}]\n" +
+            "select deviceID, temp\n" +
+            "insert into HotStream;";
+
+    @BeforeMethod
+    private void setUp() {
+        SiddhiAppCache.clear();
+        System.setProperty("THRESHOLD", "50");
+    }
+
+    @AfterMethod
+    private void tearDown() {
+        SiddhiAppCache.clear();
+        System.clearProperty("THRESHOLD");
+        System.clearProperty(SiddhiAppCache.DIRECTORY_PROPERTY);
+    }
+
+    @Test
+    public void testAppIsParsedOnce() {
+        logger.info("Tests the app is parsed once and reparsed when its variables change");
+        long misses = SiddhiAppCache.getMisses();
+        SiddhiApp first = SiddhiAppCache.get(APP);
+        Assert.assertSame(SiddhiAppCache.get(APP), first);
+        Assert.assertEquals(SiddhiAppCache.getMisses(), misses + 1);
+        System.setProperty("THRESHOLD", "70");
+        Assert.assertNotSame(SiddhiAppCache.get(APP), first, "Apps with other variables are other entries.");
+    }
+
+    @Test
+    public void testAppIsReadFromCacheDirectory() throws IOException, InterruptedException {
+        logger.info("Tests an app parsed once is read from the cache directory after the in-memory cache is dropped");
+        Path directory = Files.createTempDirectory("siddhi-app-cache");
+        System.setProperty(SiddhiAppCache.DIRECTORY_PROPERTY, directory.toString());
+        try {
+            long diskHits = SiddhiAppCache.getDiskHits();
+            SiddhiApp parsed = SiddhiAppCache.get(APP);
+            Assert.assertEquals(SiddhiAppCache.getDiskHits(), diskHits);
+            try (Stream<Path> files = Files.list(directory)) {
+                Assert.assertEquals(files.collect(Collectors.toList()).size(), 1, "The app should be written once.");
+            }
+
+            //A new JVM starts without the app in memory
+            SiddhiAppCache.clear();
+            SiddhiApp read = SiddhiAppCache.get(APP);
+            Assert.assertEquals(SiddhiAppCache.getDiskHits(), diskHits + 1);
+            Assert.assertNotSame(read, parsed);
+            SiddhiManager siddhiManager = new SiddhiManager();
+            try {
+                AtomicInteger count = new AtomicInteger();
+                SiddhiAppRuntime siddhiAppRuntime = start(SiddhiAppCache.createRuntime(siddhiManager, APP), count);
+                siddhiAppRuntime.getInputHandler("TempStream").send(new Object[]{"D1", 60.0});
+                siddhiAppRuntime.getInputHandler("TempStream").send(new Object[]{"D2", 40.0});
+                Assert.assertEquals(count.get(), 1);
+            } finally {
+                siddhiManager.shutdown();
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRuntimesOfCachedAppAreIndependent() throws InterruptedException {
+        logger.info("Tests runtimes created from the same parsed app process events independently");
+        SiddhiManager firstManager = new SiddhiManager();
+        SiddhiManager secondManager = new SiddhiManager();
+        SiddhiManager sandboxManager = new SiddhiManager();
+        try {
+            long hits = SiddhiAppCache.getHits();
+            AtomicInteger firstCount = new AtomicInteger();
+            AtomicInteger secondCount = new AtomicInteger();
+            AtomicInteger sandboxCount = new AtomicInteger();
+            SiddhiAppRuntime first = start(SiddhiAppCache.createRuntime(firstManager, APP), firstCount);
+            SiddhiAppRuntime second = start(SiddhiAppCache.createRuntime(secondManager, APP), secondCount);
+            SiddhiAppRuntime sandbox = start(SiddhiAppCache.createSandboxRuntime(sandboxManager, APP),
+                    sandboxCount);
+            Assert.assertEquals(SiddhiAppCache.getHits(), hits + 1, "The second runtime should reuse the app.");
+
+            first.getInputHandler("TempStream").send(new Object[]{"D1", 60.0});
+            second.getInputHandler("TempStream").send(new Object[]{"D2", 40.0});
+            second.getInputHandler("TempStream").send(new Object[]{"D3", 80.0});
+            sandbox.getInputHandler("TempStream").send(new Object[]{"D4", 90.0});
+            Assert.assertEquals(firstCount.get(), 1);
+            Assert.assertEquals(secondCount.get(), 1);
+            Assert.assertEquals(sandboxCount.get(), 1);
+        } finally {
+            firstManager.shutdown();
+            secondManager.shutdown();
+            sandboxManager.shutdown();
+        }
+    }
+
+    private static SiddhiAppRuntime start(SiddhiAppRuntime siddhiAppRuntime, AtomicInteger count) {
+        siddhiAppRuntime.addCallback("HotStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                count.addAndGet(events.length);
+            }
+        });
+        siddhiAppRuntime.start();
+        return siddhiAppRuntime;
+    }
+}
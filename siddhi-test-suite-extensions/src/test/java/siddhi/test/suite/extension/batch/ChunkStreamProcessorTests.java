@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.batch;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.query.output.callback.QueryCallback;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.util.SiddhiTestHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testsuite for batch:chunk.
+ */
+public class ChunkStreamProcessorTests {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkStreamProcessorTests.class);
+
+    private static final String APP = "" +
+            "define stream DeviceTemperatureStream (type string, deviceID string, temp double, roomID string);\n" +
+            "define table InternalDevicesTempTable(currentTime string, deviceID string, temp double);\n" +
+            "@info(name = 'internal-filter')\n" +
+            "from DeviceTemperatureStream[type == 'internal']#batch:chunk(%d, %s)\n" +
+            "select UUID() as currentTime, deviceID, temp\n" +
+            "insert current events into InternalDevicesTempTable;";
+
+    @Test
+    public void testChunksOfBatchSize() throws InterruptedException {
+        logger.info("Tests chunks emitted when batch.size events are collected");
+        List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+        AtomicInteger count = new AtomicInteger();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = createRuntime(siddhiManager, 10, "0", chunkSizes, count);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler("DeviceTemperatureStream");
+            for (int i = 0; i < 25; i++) {
+                inputHandler.send(new Object[]{"internal", "Generator" + i, 28.6, "Basement"});
+                inputHandler.send(new Object[]{"monitored", "CyrusOne" + i, 35.5, "ServerRoom1"});
+            }
+            Assert.assertEquals(chunkSizes.size(), 2);
+            Assert.assertEquals(chunkSizes.get(0).intValue(), 10);
+            Assert.assertEquals(chunkSizes.get(1).intValue(), 10);
+            Assert.assertEquals(siddhiAppRuntime.query("from InternalDevicesTempTable").length, 20);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testChunkFlushedAfterInterval() throws InterruptedException {
+        logger.info("Tests partial chunks emitted after flush.interval");
+        List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+        AtomicInteger count = new AtomicInteger();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = createRuntime(siddhiManager, 10, "100 millisec", chunkSizes, count);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler("DeviceTemperatureStream");
+            for (int i = 0; i < 15; i++) {
+                inputHandler.send(new Object[]{"internal", "Generator" + i, 28.6, "Basement"});
+            }
+            Assert.assertEquals(count.get(), 10);
+            SiddhiTestHelper.waitForEvents(10, 15, count, 2000);
+            Assert.assertEquals(count.get(), 15);
+            Assert.assertEquals(chunkSizes.get(chunkSizes.size() - 1).intValue(), 5);
+            Assert.assertEquals(siddhiAppRuntime.query("from InternalDevicesTempTable").length, 15);
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    private SiddhiAppRuntime createRuntime(SiddhiManager siddhiManager, int batchSize, String flushInterval,
+                                           List<Integer> chunkSizes, AtomicInteger count) {
+        siddhiManager.setExtension("batch:chunk", ChunkStreamProcessor.class);
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(
+                String.format(APP, batchSize, flushInterval));
+        siddhiAppRuntime.addCallback("internal-filter", new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                chunkSizes.add(inEvents.length);
+                count.addAndGet(inEvents.length);
+            }
+        });
+        siddhiAppRuntime.start();
+        return siddhiAppRuntime;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.map;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+import siddhi.test.suite.extension.nats.LoopbackNatsSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Testsuite for sourceMapper:deviceTemperatureJson.
+ * Description: Publishes the same messages to a stream mapped with siddhi-map-json and to a stream mapped with
+ *              deviceTemperatureJson over LoopbackNatsBroker, and verifies both receive the same events.
+ */
+public class DeviceTemperatureJsonSourceMapperTests {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceTemperatureJsonSourceMapperTests.class);
+
+    private static final String JSON_DESTINATION = "JsonMapper_DeviceTempStream";
+    private static final String STREAMING_DESTINATION = "StreamingJsonMapper_DeviceTempStream";
+    private static final String APP = "" +
+            "@source(type='nats', destination='" + JSON_DESTINATION + "', @map(type='json'))\n" +
+            "define stream JsonDeviceTemperatureStream (type string, deviceID string, temp double, " +
+            "roomID string);\n" +
+            "@source(type='nats', destination='" + STREAMING_DESTINATION + "', " +
+            "@map(type='deviceTemperatureJson', string.cache.size='64'))\n" +
+            "define stream StreamingDeviceTemperatureStream (type string, deviceID string, temp double, " +
+            "roomID string);\n";
+
+    private SiddhiManager siddhiManager;
+    private final List<String> jsonEvents = new CopyOnWriteArrayList<>();
+    private final List<String> streamingEvents = new CopyOnWriteArrayList<>();
+
+    @BeforeMethod
+    private void startApp() {
+        jsonEvents.clear();
+        streamingEvents.clear();
+        siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+        siddhiManager.setExtension("sourceMapper:deviceTemperatureJson", DeviceTemperatureJsonSourceMapper.class);
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(APP);
+        siddhiAppRuntime.addCallback("JsonDeviceTemperatureStream", collectTo(jsonEvents));
+        siddhiAppRuntime.addCallback("StreamingDeviceTemperatureStream", collectTo(streamingEvents));
+        siddhiAppRuntime.start();
+    }
+
+    @AfterMethod
+    private void shutdownApp() {
+        siddhiManager.shutdown();
+    }
+
+    @Test
+    public void testSingleEvent() {
+        logger.info("Tests a single event message as published to Temp-Alert-App");
+        publishToBoth("{\n" +
+                "    \"event\": {\n" +
+                "        \"type\": \"monitored\",\n" +
+                "        \"deviceID\": \"C001\",\n" +
+                "        \"temp\": 40.2,\n" +
+                "        \"roomID\": \"F2-Conference\"\n" +
+                "    }\n" +
+                "}");
+        Assert.assertEquals(streamingEvents, Collections.singletonList("monitored|C001|40.2|F2-Conference"));
+        Assert.assertEquals(streamingEvents, jsonEvents);
+    }
+
+    @Test
+    public void testEventArray() {
+        logger.info("Tests a JSON array of events, sent as one batch");
+        StringBuilder message = new StringBuilder("[");
+        for (int i = 0; i < 16; i++) {
+            message.append(i == 0 ? "" : ",").append(toJson("internal", "D" + i, 20.5 + i, "ServerRoom"));
+        }
+        publishToBoth(message.append("]").toString());
+        Assert.assertEquals(streamingEvents.size(), 16);
+        Assert.assertEquals(streamingEvents, jsonEvents);
+    }
+
+    @Test
+    public void testReorderedAndEscapedFields() {
+        logger.info("Tests attributes in a different order, with escape sequences and without whitespace");
+        publishToBoth("{\"event\":{\"roomID\":\"F2 \\\"Conference\\\"\\n\\u00e9\",\"temp\":-0.5," +
+                "\"deviceID\":\"C\\/001\",\"type\":\"monitored\"}}");
+        Assert.assertEquals(streamingEvents, Collections.singletonList("monitored|C/001|-0.5|F2 \"Conference\"\né"));
+        Assert.assertEquals(streamingEvents, jsonEvents);
+    }
+
+    @Test
+    public void testRepeatedValuesFromCache() {
+        logger.info("Tests recurring and colliding string values, which are served from the string cache");
+        for (int i = 0; i < 500; i++) {
+            publishToBoth(toJson(i % 2 == 0 ? "monitored" : "internal", "D" + (i % 150), 30.0 + i % 7,
+                    "Room" + i % 3));
+        }
+        Assert.assertEquals(streamingEvents.size(), 500);
+        Assert.assertEquals(streamingEvents, jsonEvents);
+    }
+
+    @Test
+    public void testRandomTemperatures() {
+        logger.info("Tests the conversion of random temperatures against Double.parseDouble");
+        Random random = new Random(1234);
+        for (int i = 0; i < 1000; i++) {
+            double temp = i % 2 == 0 ? Math.round(random.nextDouble() * 10000) / 100.0 :
+                    (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+            publishToBoth(toJson("monitored", "R" + i, temp, "ServerRoom"));
+        }
+        Assert.assertEquals(streamingEvents.size(), 1000);
+        Assert.assertEquals(streamingEvents, jsonEvents);
+    }
+
+    @Test
+    public void testNumberForms() {
+        logger.info("Tests integer, exponent and long mantissa temperatures");
+        String[] temps = {"25", "-0", "1e2", "2.5E-3", "1.7976931348623157E308", "4.9E-324", "0.1",
+                "123456789012345678901234.5", "0.30000000000000004", "1E23"};
+        for (String temp : temps) {
+            LoopbackNatsBroker.publish(STREAMING_DESTINATION, bytes("{\"event\":{\"type\":\"monitored\"," +
+                    "\"deviceID\":\"N\",\"temp\":" + temp + ",\"roomID\":\"R\"}}"));
+        }
+        Assert.assertEquals(streamingEvents.size(), temps.length);
+        for (int i = 0; i < temps.length; i++) {
+            Assert.assertEquals(streamingEvents.get(i), "monitored|N|" + Double.parseDouble(temps[i]) + "|R");
+        }
+    }
+
+    @Test
+    public void testUnknownFieldsAndNulls() {
+        logger.info("Tests that unknown fields are skipped and null values are accepted");
+        LoopbackNatsBroker.publish(STREAMING_DESTINATION, bytes("{\"meta\":{\"source\":[1,{\"a\":\"}\"}]}," +
+                "\"event\":{\"type\":\"monitored\",\"firmware\":{\"version\":[1,2]},\"deviceID\":\"C001\"," +
+                "\"temp\":40.2,\"calibrated\":true,\"roomID\":null}}"));
+        Assert.assertEquals(streamingEvents, Collections.singletonList("monitored|C001|40.2|null"));
+    }
+
+    @Test
+    public void testEventsWithMissingAttributesAreDropped() {
+        logger.info("Tests that only the events with all attributes are sent");
+        LoopbackNatsBroker.publish(STREAMING_DESTINATION, bytes("[" +
+                toJson("monitored", "C001", 40.0, "Room1") + "," +
+                "{\"event\":{\"type\":\"monitored\",\"deviceID\":\"C002\",\"roomID\":\"Room1\"}}," +
+                "{\"event\":{\"type\":\"monitored\",\"deviceID\":\"C003\",\"temp\":\"hot\",\"roomID\":\"Room1\"}}," +
+                "{\"other\":{}}," +
+                toJson("monitored", "C004", 41.0, "Room1") + "]"));
+        Assert.assertEquals(streamingEvents, Arrays.asList("monitored|C001|40.0|Room1", "monitored|C004|41.0|Room1"));
+    }
+
+    @Test
+    public void testMalformedMessagesAreDropped() {
+        logger.info("Tests that malformed messages are dropped and later messages are still mapped");
+        String[] messages = {"", "{", "{\"event\":{\"type\":\"monitored\"", "[" + toJson("m", "D", 1.0, "R"),
+                toJson("m", "D", 1.0, "R") + "}", "{\"event\":{\"type\":monitored}}"};
+        for (String message : messages) {
+            LoopbackNatsBroker.publish(STREAMING_DESTINATION, message);
+        }
+        LoopbackNatsBroker.publish(STREAMING_DESTINATION, toJson("monitored", "C001", 40.2, "F2-Conference"));
+        Assert.assertEquals(streamingEvents, Collections.singletonList("monitored|C001|40.2|F2-Conference"));
+    }
+
+    private void publishToBoth(String message) {
+        LoopbackNatsBroker.publish(JSON_DESTINATION, message);
+        LoopbackNatsBroker.publish(STREAMING_DESTINATION, bytes(message));
+    }
+
+    private static StreamCallback collectTo(List<String> collected) {
+        return new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                for (Event event : events) {
+                    collected.add(event.getData(0) + "|" + event.getData(1) + "|" + event.getData(2) + "|" +
+                            event.getData(3));
+                }
+            }
+        };
+    }
+
+    private static byte[] bytes(String message) {
+        return message.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String toJson(String type, String deviceId, double temp, String roomId) {
+        return String.format(Locale.ROOT, "{\"event\":{\"type\":\"%s\",\"deviceID\":\"%s\",\"temp\":%s," +
+                "\"roomID\":\"%s\"}}", type, deviceId, Double.toString(temp), roomId);
+    }
+}
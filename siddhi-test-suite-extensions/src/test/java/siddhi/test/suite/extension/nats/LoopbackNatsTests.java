@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.nats;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Testsuite for the loopback NATS source and sink.
+ * Description: Runs Temp-Alert-App with its NATS source, sink and JSON mappers, with the NATS transport replaced by
+ *              LoopbackNatsBroker and the RDBMS store replaced by an in-memory table.
+ */
+public class LoopbackNatsTests {
+    private static final Logger logger = LoggerFactory.getLogger(LoopbackNatsTests.class);
+
+    private static final String APP = "TemperatureAlertApp/apps/Temp-Alert-App.siddhi";
+    private static final String INPUT_DESTINATION = "Loopback_DeviceTempStream";
+    private static final String OUTPUT_DESTINATION = "Loopback_AlertStream";
+
+    private SiddhiManager siddhiManager;
+    private SiddhiAppRuntime siddhiAppRuntime;
+    private final List<Object> alerts = new CopyOnWriteArrayList<>();
+    private final LoopbackNatsBroker.Subscriber alertSubscriber = alerts::add;
+
+    @BeforeClass
+    private void setUpTest() {
+        Map<String, String> envMap = new HashMap<>();
+        envMap.put("CLUSTER_ID", "TemperatureCluster");
+        envMap.put("INPUT_DESTINATION", INPUT_DESTINATION);
+        envMap.put("OUTPUT_DESTINATION", OUTPUT_DESTINATION);
+        envMap.put("NATS_URL", "nats://localhost:4222");
+        System.getProperties().putAll(envMap);
+    }
+
+    @BeforeMethod
+    private void startApp() throws IOException, URISyntaxException {
+        alerts.clear();
+        LoopbackNatsBroker.subscribe(OUTPUT_DESTINATION, alertSubscriber);
+        siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+        siddhiManager.setExtension("sink:nats", LoopbackNatsSink.class);
+        siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(readApp()
+                .replaceAll("@Store\\(.*\\)\\s*\\n", "")
+                .replaceAll("@sink\\(type = 'log'\\)\\s*\\n", "")
+                .replace("@map(type='json')", "json.batch = 'true', @map(type='json')"));
+        siddhiAppRuntime.start();
+    }
+
+    @AfterMethod
+    private void shutdownApp() {
+        siddhiManager.shutdown();
+        LoopbackNatsBroker.unsubscribe(OUTPUT_DESTINATION, alertSubscriber);
+    }
+
+    @Test
+    public void testAppOutput() {
+        logger.info("Tests alerts published through the loopback sink");
+        for (double temp : new double[]{40.2, 60.0, 80.0, 30.0}) {
+            LoopbackNatsBroker.publish(INPUT_DESTINATION, toJson("C001", temp));
+        }
+        Assert.assertEquals(alerts.size(), 1);
+        Assert.assertTrue(((String) alerts.get(0)).contains("\"peakTemp\":80.0"));
+    }
+
+    @Test
+    public void testBatchedPublish() {
+        logger.info("Tests messages published as a batch reach the stream as one batch of events");
+        List<Integer> chunks = new CopyOnWriteArrayList<>();
+        siddhiAppRuntime.addCallback("DeviceTemperatureStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                chunks.add(events.length);
+            }
+        });
+        Object[] batch = new Object[400];
+        double[] temps = {40.0, 60.0, 80.0, 30.0};
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = toJson("D" + (i % 100), temps[i / 100]);
+        }
+        Assert.assertEquals(LoopbackNatsBroker.publish(INPUT_DESTINATION, batch, 0, batch.length), 1);
+        Assert.assertEquals(chunks.size(), 1, "The batch should be mapped at once, but arrived as " + chunks);
+        Assert.assertEquals(chunks.get(0).intValue(), batch.length);
+        Assert.assertEquals(alerts.size(), 100);
+    }
+
+    @Test
+    public void testThrottledDestination() {
+        logger.info("Tests that publishes beyond the wait limit of a throttled destination are rejected");
+        String destination = "Loopback_Throttled";
+        List<Object> received = new CopyOnWriteArrayList<>();
+        LoopbackNatsBroker.Subscriber subscriber = received::add;
+        LoopbackNatsBroker.subscribe(destination, subscriber);
+        LoopbackNatsBroker.throttle(destination, 10, 0);
+        try {
+            int rejected = 0;
+            for (int i = 0; i < 5; i++) {
+                try {
+                    LoopbackNatsBroker.publish(destination, "message" + i);
+                } catch (PublishTimeoutException e) {
+                    rejected++;
+                }
+            }
+            Assert.assertEquals(received.size(), 1);
+            Assert.assertEquals(rejected, 4);
+            Assert.assertEquals(LoopbackNatsBroker.getRejectedPublishes(destination), 4);
+
+            LoopbackNatsBroker.throttle(destination, 100, 1000);
+            long start = System.nanoTime();
+            LoopbackNatsBroker.publish(destination, new Object[]{"a", "b", "c", "d", "e"}, 0, 5);
+            Assert.assertEquals(received.size(), 6);
+            Assert.assertTrue(System.nanoTime() - start >= 35000000L, "Throttled publishes were not spaced.");
+        } finally {
+            LoopbackNatsBroker.unthrottle(destination);
+            LoopbackNatsBroker.unsubscribe(destination, subscriber);
+        }
+    }
+
+    private String readApp() throws IOException, URISyntaxException {
+        URL url = getClass().getClassLoader().getResource(APP);
+        Assert.assertNotNull(url, APP + " is not available in the test classpath.");
+        return new String(Files.readAllBytes(Paths.get(url.toURI())), StandardCharsets.UTF_8);
+    }
+
+    private static String toJson(String deviceId, double temp) {
+        return "{\"event\":{\"type\":\"monitored\",\"deviceID\":\"" + deviceId + "\",\"temp\":" + temp +
+                ",\"roomID\":\"F2-Conference\"}}";
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.pacing;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Testsuite for sending paced batches of events to a stream.
+ */
+public class PacedBatchSenderTests {
+    private static final Logger logger = LoggerFactory.getLogger(PacedBatchSenderTests.class);
+
+    private SiddhiManager siddhiManager;
+    private InputHandler inputHandler;
+    private final List<Integer> batches = new CopyOnWriteArrayList<>();
+
+    @BeforeMethod
+    private void startApp() {
+        batches.clear();
+        siddhiManager = new SiddhiManager();
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(
+                "define stream TempStream (deviceID string, temp double);");
+        siddhiAppRuntime.addCallback("TempStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                batches.add(events.length);
+            }
+        });
+        inputHandler = siddhiAppRuntime.getInputHandler("TempStream");
+        siddhiAppRuntime.start();
+    }
+
+    @AfterMethod
+    private void shutdownApp() {
+        siddhiManager.shutdown();
+    }
+
+    @Test
+    public void testFullAndPartialBatches() throws InterruptedException {
+        logger.info("Tests events are sent in full batches, and the rest when flushed");
+        PacedBatchSender sender = new PacedBatchSender(inputHandler, 4);
+        for (int i = 0; i < 10; i++) {
+            sender.add(new Event(i, new Object[]{"D" + i, 40.0}));
+        }
+        Assert.assertEquals(sender.getSent(), 8);
+        sender.flush();
+        Assert.assertEquals(sender.getSent(), 10);
+        Assert.assertEquals(batches.toString(), "[4, 4, 2]");
+    }
+
+    @Test
+    public void testBatchIsSentEarlyWhenNextEventIsNotDue() throws InterruptedException {
+        logger.info("Tests a batch is sent before waiting for the next event to be due");
+        PacedBatchSender sender = new PacedBatchSender(inputHandler, 64);
+        sender.add(new Event(1, new Object[]{"D1", 40.0}));
+        sender.add(new Event(2, new Object[]{"D2", 60.0}));
+        sender.awaitDue(System.nanoTime() - 1);
+        Assert.assertTrue(batches.isEmpty(), "A batch should not be sent when the next event is already due.");
+        long start = System.nanoTime();
+        sender.awaitDue(start + TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(batches.toString(), "[2]");
+        Assert.assertEquals(sender.getSent(), 2);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.persistence;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Testsuite for the memory-mapped file persistence store.
+ */
+public class MappedFilePersistenceStoreTests {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFilePersistenceStoreTests.class);
+
+    private static final String APP_NAME = "Mapped-Persistence-App";
+    private static final String APP = "@App:name('" + APP_NAME + "')\n" +
+            "define stream TempStream (deviceID string, temp double);\n" +
+            "from TempStream#window.length(5)\n" +
+            "select sum(temp) as total\n" +
+            "insert into TotalStream;";
+    private static final long SAVE_WAIT_MILLIS = 10000;
+
+    private Path directory;
+
+    @BeforeMethod
+    private void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("mapped-persistence");
+    }
+
+    @AfterMethod
+    private void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad() {
+        logger.info("Tests revisions are loaded as saved, the last revision by timestamp");
+        MappedFilePersistenceStore store = new MappedFilePersistenceStore(directory.toString(), 2);
+        Assert.assertNull(store.getLastRevision(APP_NAME));
+        store.save(APP_NAME, "900_" + APP_NAME, bytes("first"));
+        store.save(APP_NAME, "1000_" + APP_NAME, bytes("second"));
+        store.save(APP_NAME, "999_" + APP_NAME, bytes("third"));
+        Assert.assertEquals(store.getLastRevision(APP_NAME), "1000_" + APP_NAME);
+        Assert.assertEquals(new String(store.load(APP_NAME, "1000_" + APP_NAME), StandardCharsets.UTF_8), "second");
+        Assert.assertEquals(new String(store.load(APP_NAME, "999_" + APP_NAME), StandardCharsets.UTF_8), "third");
+        Assert.assertFalse(Files.exists(directory.resolve(APP_NAME).resolve("900_" + APP_NAME)),
+                "Revisions beyond the revisions to keep are deleted.");
+        store.save(APP_NAME, "1001_" + APP_NAME, new byte[0]);
+        Assert.assertEquals(store.load(APP_NAME, "1001_" + APP_NAME).length, 0);
+        store.clearAllRevisions(APP_NAME);
+        Assert.assertNull(store.getLastRevision(APP_NAME));
+    }
+
+    @Test
+    public void testPartialSaveIsIgnored() throws IOException {
+        logger.info("Tests a revision left half written by a crash is not taken as the last revision");
+        MappedFilePersistenceStore store = new MappedFilePersistenceStore(directory.toString());
+        store.save(APP_NAME, "1000_" + APP_NAME, bytes("complete"));
+        Files.write(directory.resolve(APP_NAME).resolve("2000_" + APP_NAME + ".tmp"), bytes("partial"));
+        Assert.assertEquals(store.getLastRevision(APP_NAME), "1000_" + APP_NAME);
+    }
+
+    @Test
+    public void testRestoreAfterRestart() throws Exception {
+        logger.info("Tests the window state of a runtime is restored by a new runtime");
+        MappedFilePersistenceStore store = new MappedFilePersistenceStore(directory.toString());
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setPersistenceStore(store);
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(APP);
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler("TempStream");
+            siddhiAppRuntime.start();
+            inputHandler.send(new Object[]{"D1", 10.0});
+            inputHandler.send(new Object[]{"D2", 20.0});
+            String revision = siddhiAppRuntime.persist().getRevision();
+            awaitRevision(store, revision);
+        } finally {
+            siddhiManager.shutdown();
+        }
+
+        List<Object> totals = new CopyOnWriteArrayList<>();
+        siddhiManager = new SiddhiManager();
+        siddhiManager.setPersistenceStore(store);
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(APP);
+            siddhiAppRuntime.addCallback("TotalStream", new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    for (Event event : events) {
+                        totals.add(event.getData(0));
+                    }
+                }
+            });
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler("TempStream");
+            siddhiAppRuntime.start();
+            siddhiAppRuntime.restoreLastRevision();
+            inputHandler.send(new Object[]{"D3", 30.0});
+        } finally {
+            siddhiManager.shutdown();
+        }
+        Assert.assertEquals(totals.size(), 1);
+        Assert.assertEquals(totals.get(0), 60.0);
+    }
+
+    /**
+     * Snapshots are saved asynchronously, waits until the revision is the last one of the store.
+     */
+    private static void awaitRevision(MappedFilePersistenceStore store, String revision) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SAVE_WAIT_MILLIS;
+        while (!revision.equals(store.getLastRevision(APP_NAME)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(store.getLastRevision(APP_NAME), revision);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
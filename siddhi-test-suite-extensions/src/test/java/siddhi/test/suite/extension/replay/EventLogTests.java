@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.replay;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import io.siddhi.query.api.definition.Attribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Testsuite for recording events into the binary event log and replaying them.
+ */
+public class EventLogTests {
+    private static final Logger logger = LoggerFactory.getLogger(EventLogTests.class);
+
+    private static final String DEVICE_TEMPERATURE_STREAM = "define stream DeviceTemperatureStream (type string, " +
+            "deviceID string, temp double, roomID string);\n";
+
+    private Path directory;
+
+    @BeforeMethod
+    private void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("event-log");
+    }
+
+    @AfterMethod
+    private void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testWriteAndReadAcrossRegions() throws IOException {
+        logger.info("Tests every attribute type and null are read back as written, across mapped regions");
+        List<Attribute> attributes = Arrays.asList(new Attribute("deviceID", Attribute.Type.STRING),
+                new Attribute("count", Attribute.Type.INT), new Attribute("sequence", Attribute.Type.LONG),
+                new Attribute("humidity", Attribute.Type.FLOAT), new Attribute("temp", Attribute.Type.DOUBLE),
+                new Attribute("monitored", Attribute.Type.BOOL));
+        Path file = directory.resolve("all-types.log");
+        List<Event> written = new ArrayList<>();
+        try (EventLogWriter writer = new EventLogWriter(file, attributes, 256)) {
+            for (int i = 0; i < 1000; i++) {
+                Object[] data = {i % 7 == 0 ? null : "Dévice-" + i, i, (long) i << 33, i / 4f, i * 1.5,
+                        i % 2 == 0};
+                data[i % data.length] = i % 3 == 0 ? null : data[i % data.length];
+                written.add(new Event(1000L + i, data));
+                writer.write(1000L + i, data);
+            }
+            Assert.assertEquals(writer.getEventCount(), 1000);
+        }
+        try (EventLogReader reader = new EventLogReader(file, 256)) {
+            Assert.assertEquals(reader.getAttributeTypes()[4], Attribute.Type.DOUBLE);
+            for (Event expected : written) {
+                Event event = reader.read();
+                Assert.assertNotNull(event);
+                Assert.assertEquals(event.getTimestamp(), expected.getTimestamp());
+                Assert.assertEquals(event.getData(), expected.getData());
+            }
+            Assert.assertNull(reader.read(), "The log should end after the written events.");
+        }
+    }
+
+    @Test
+    public void testLogOfCrashedWriterReadsUpToLastRecord() throws IOException {
+        logger.info("Tests a log that was not closed ends at its last whole record");
+        Path file = directory.resolve("crashed.log");
+        List<Attribute> attributes = Arrays.asList(new Attribute("deviceID", Attribute.Type.STRING),
+                new Attribute("temp", Attribute.Type.DOUBLE));
+        try (EventLogWriter writer = new EventLogWriter(file, attributes, 4096)) {
+            writer.write(1, new Object[]{"D1", 40.0});
+            writer.write(2, new Object[]{"D2", 60.0});
+            writer.flush();
+            //A crash leaves the mapped region, zero beyond the written records, as the file
+            byte[] unclosed = Files.readAllBytes(file);
+            Files.write(directory.resolve("unclosed.log"), unclosed, StandardOpenOption.CREATE);
+        }
+        try (EventLogReader reader = new EventLogReader(directory.resolve("unclosed.log"))) {
+            Assert.assertEquals(reader.read().getData(), new Object[]{"D1", 40.0});
+            Assert.assertEquals(reader.read().getData(), new Object[]{"D2", 60.0});
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testLogWithTornRecordReadsUpToLastRecord() throws IOException {
+        logger.info("Tests a log of a writer that crashed while writing a record ends at its last whole record");
+        Path file = directory.resolve("torn.log");
+        List<Attribute> attributes = Arrays.asList(new Attribute("deviceID", Attribute.Type.STRING),
+                new Attribute("temp", Attribute.Type.DOUBLE));
+        //Length, timestamp, and the presence byte and value of deviceID "Dn" and temp
+        int recordSize = Integer.BYTES + Long.BYTES + 1 + Integer.BYTES + 2 + 1 + Double.BYTES;
+        int tornRecordStart = EventLogWriter.headerSize(new Attribute.Type[]{Attribute.Type.STRING,
+                Attribute.Type.DOUBLE}) + 2 * recordSize;
+        try (EventLogWriter writer = new EventLogWriter(file, attributes, 4096)) {
+            writer.write(1, new Object[]{"D1", 40.0});
+            writer.write(2, new Object[]{"D2", 60.0});
+            writer.write(3, new Object[]{"D3", 80.0});
+            writer.flush();
+            //A crash before the record length is written leaves its body, or part of it, after a zero length
+            byte[] torn = Files.readAllBytes(file);
+            Arrays.fill(torn, tornRecordStart, tornRecordStart + Integer.BYTES, (byte) 0);
+            Arrays.fill(torn, tornRecordStart + recordSize / 2, tornRecordStart + recordSize, (byte) 0);
+            Files.write(directory.resolve("unclosed-torn.log"), torn, StandardOpenOption.CREATE);
+        }
+        try (EventLogReader reader = new EventLogReader(directory.resolve("unclosed-torn.log"))) {
+            Assert.assertEquals(reader.read().getData(), new Object[]{"D1", 40.0});
+            Assert.assertEquals(reader.read().getData(), new Object[]{"D2", 60.0});
+            Assert.assertNull(reader.read(), "The torn record should not be read.");
+        }
+    }
+
+    @Test
+    public void testReopenedLogIsAppended() throws IOException {
+        logger.info("Tests a reopened log keeps its events, also after a writer crashed while writing a record");
+        Path file = directory.resolve("appended.log");
+        List<Attribute> attributes = Arrays.asList(new Attribute("deviceID", Attribute.Type.STRING),
+                new Attribute("temp", Attribute.Type.DOUBLE));
+        try (EventLogWriter writer = new EventLogWriter(file, attributes, 4096)) {
+            writer.write(1, new Object[]{"D1", 40.0});
+        }
+        try (EventLogWriter writer = new EventLogWriter(file, attributes, 4096)) {
+            writer.write(2, new Object[]{"D2", 60.0});
+            writer.write(3, new Object[]{"D3", 80.0});
+            writer.flush();
+            //A crash before the record length of D3 is written leaves its body after a zero length
+            byte[] torn = Files.readAllBytes(file);
+            int tornRecordStart = EventLogWriter.headerSize(new Attribute.Type[]{Attribute.Type.STRING,
+                    Attribute.Type.DOUBLE}) + 2 * (Integer.BYTES + Long.BYTES + 1 + Integer.BYTES + 2 + 1 +
+                    Double.BYTES);
+            Arrays.fill(torn, tornRecordStart, tornRecordStart + Integer.BYTES, (byte) 0);
+            Files.write(directory.resolve("appended-torn.log"), torn, StandardOpenOption.CREATE);
+        }
+        Path tornFile = directory.resolve("appended-torn.log");
+        try (EventLogWriter writer = new EventLogWriter(tornFile, attributes, 4096)) {
+            writer.write(4, new Object[]{"D4", 30.0});
+            Assert.assertEquals(writer.getEventCount(), 1);
+        }
+        try (EventLogReader reader = new EventLogReader(tornFile)) {
+            Assert.assertEquals(reader.read().getData(), new Object[]{"D1", 40.0});
+            Assert.assertEquals(reader.read().getData(), new Object[]{"D2", 60.0});
+            Assert.assertEquals(reader.read().getData(), new Object[]{"D4", 30.0});
+            Assert.assertNull(reader.read(), "The torn record should be replaced by the appended one.");
+        }
+        try {
+            new EventLogWriter(tornFile, attributes.subList(0, 1), 4096).close();
+            Assert.fail("A log of other attribute types should not be appended to.");
+        } catch (IOException e) {
+            logger.info("Rejected as expected: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRecordAndReplay() throws IOException, InterruptedException {
+        logger.info("Tests events recorded by the eventLog sink are replayed in order with their timestamps");
+        Path file = directory.resolve("device-temperature.log");
+        List<Event> sent = new ArrayList<>();
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("sink:eventLog", EventLogSink.class);
+        try {
+            SiddhiAppRuntime recordingRuntime = siddhiManager.createSiddhiAppRuntime("@App:name('Recording-App')\n" +
+                    "@sink(type='eventLog', file='" + file.toString().replace("\\", "/") + "', " +
+                    "@map(type='passThrough'))\n" + DEVICE_TEMPERATURE_STREAM);
+            InputHandler inputHandler = recordingRuntime.getInputHandler("DeviceTemperatureStream");
+            recordingRuntime.start();
+            for (int i = 0; i < 500; i++) {
+                Event event = new Event(5000L + i * 10, new Object[]{i % 5 == 0 ? "internal" : "monitored",
+                        "D" + (i % 17), 20.0 + i % 60, "ServerRoom" + (i % 3)});
+                sent.add(event);
+                inputHandler.send(event);
+            }
+            recordingRuntime.shutdown();
+
+            List<Event> replayed = new CopyOnWriteArrayList<>();
+            SiddhiAppRuntime replayRuntime = siddhiManager.createSiddhiAppRuntime("@App:name('Replay-App')\n" +
+                    DEVICE_TEMPERATURE_STREAM);
+            replayRuntime.addCallback("DeviceTemperatureStream", new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    replayed.addAll(Arrays.asList(events));
+                }
+            });
+            replayRuntime.start();
+            long count = new EventLogReplayer(file, 64, EventLogReplayer.MAX_SPEED).replay(
+                    replayRuntime.getInputHandler("DeviceTemperatureStream"));
+            Assert.assertEquals(count, sent.size());
+            Assert.assertEquals(replayed.size(), sent.size());
+            for (int i = 0; i < sent.size(); i++) {
+                Assert.assertEquals(replayed.get(i).getTimestamp(), sent.get(i).getTimestamp());
+                Assert.assertEquals(replayed.get(i).getData(), sent.get(i).getData());
+            }
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testPacedReplay() throws IOException, InterruptedException {
+        logger.info("Tests replay keeps the recorded gaps at 1x and divides them at Nx");
+        Path file = directory.resolve("paced.log");
+        try (EventLogWriter writer = new EventLogWriter(file, Arrays.asList(
+                new Attribute("deviceID", Attribute.Type.STRING), new Attribute("temp", Attribute.Type.DOUBLE)))) {
+            for (int i = 0; i <= 20; i++) {
+                writer.write(i * 20L, new Object[]{"D" + i, 40.0});
+            }
+        }
+        SiddhiManager siddhiManager = new SiddhiManager();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSiddhiAppRuntime(
+                    "define stream TempStream (deviceID string, temp double);");
+            InputHandler inputHandler = siddhiAppRuntime.getInputHandler("TempStream");
+            siddhiAppRuntime.start();
+            long realTimeMillis = replayMillis(new EventLogReplayer(file, 8, 1), inputHandler);
+            long fourTimesMillis = replayMillis(new EventLogReplayer(file, 8, 4), inputHandler);
+            logger.info("Replay of 400 ms of events took " + realTimeMillis + " ms at 1x and " + fourTimesMillis +
+                    " ms at 4x");
+            Assert.assertTrue(realTimeMillis >= 400, "Replay at 1x took " + realTimeMillis + " ms.");
+            Assert.assertTrue(fourTimesMillis >= 100 && fourTimesMillis < realTimeMillis,
+                    "Replay at 4x took " + fourTimesMillis + " ms.");
+        } finally {
+            siddhiManager.shutdown();
+        }
+    }
+
+    private static long replayMillis(EventLogReplayer replayer, InputHandler inputHandler)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Assert.assertEquals(replayer.replay(inputHandler), 21);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.temperature;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.input.InputHandler;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Testsuite for temperature:peakDetector.
+ * Description: Sends the same MonitoredDevicesTempStream events to Temp-Alert-App and to
+ *              Temp-Alert-App-PeakDetector, and verifies both emit the same PeakTempStream events.
+ */
+public class PeakDetectorStreamProcessorTests {
+    private static final Logger logger = LoggerFactory.getLogger(PeakDetectorStreamProcessorTests.class);
+
+    private static final String PATTERN_APP = "TemperatureAlertApp/apps/Temp-Alert-App.siddhi";
+    private static final String PEAK_DETECTOR_APP = "TemperatureAlertApp/apps/Temp-Alert-App-PeakDetector.siddhi";
+
+    @BeforeClass
+    private void setUpTest() {
+        Map<String, String> envMap = new HashMap<>();
+        envMap.put("CLUSTER_ID", "");
+        envMap.put("INPUT_DESTINATION", "");
+        envMap.put("OUTPUT_DESTINATION", "");
+        envMap.put("NATS_URL", "");
+        envMap.put("DATABASE_URL", "");
+        envMap.put("USERNAME", "");
+        envMap.put("PASSWORD", "");
+        envMap.put("JDBC_DRIVER_NAME", "");
+        System.getProperties().putAll(envMap);
+    }
+
+    @Test
+    public void testPeakOfAlertSequence() throws Exception {
+        logger.info("Tests peak detection of the sequence used in testAppOutput");
+        List<Object[]> events = new ArrayList<>();
+        events.add(new Object[]{"C001", 40.2, "F2-Conference"});
+        events.add(new Object[]{"C001", 60.0, "F2-Conference"});
+        events.add(new Object[]{"C001", 80.0, "F2-Conference"});
+        events.add(new Object[]{"C001", 30.0, "F2-Conference"});
+
+        List<String> peaks = collectPeakTemps(PEAK_DETECTOR_APP, events);
+        Assert.assertEquals(peaks, Arrays.asList("C001|40.2|60.0", "C001|60.0|80.0"));
+        Assert.assertEquals(peaks, collectPeakTemps(PATTERN_APP, events));
+    }
+
+    @Test
+    public void testPeaksWithRepeatedTemperatures() throws Exception {
+        logger.info("Tests peak detection when temperatures plateau");
+        List<Object[]> events = new ArrayList<>();
+        double[] temps = {50.0, 50.0, 70.0, 70.0, 60.0, 60.0, 90.0, 40.0, 40.0, 95.0};
+        for (double temp : temps) {
+            events.add(new Object[]{"P001", temp, "ServerRoom1"});
+            events.add(new Object[]{"P002", 100 - temp, "ServerRoom2"});
+        }
+        Assert.assertEquals(collectPeakTemps(PEAK_DETECTOR_APP, events), collectPeakTemps(PATTERN_APP, events));
+    }
+
+    @Test
+    public void testPeaksOfRandomWalks() throws Exception {
+        logger.info("Tests peak detection of interleaved random temperature walks");
+        Random random = new Random(1234);
+        int devices = 50;
+        double[] temps = new double[devices];
+        Arrays.fill(temps, 50.0);
+        List<Object[]> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int device = random.nextInt(devices);
+            temps[device] = Math.max(0, temps[device] + (random.nextInt(5) - 2) * 5.0);
+            events.add(new Object[]{"R" + device, temps[device], "ServerRoom" + (device % 4)});
+        }
+        List<String> peaks = collectPeakTemps(PEAK_DETECTOR_APP, events);
+        Assert.assertFalse(peaks.isEmpty());
+        Assert.assertEquals(peaks, collectPeakTemps(PATTERN_APP, events));
+    }
+
+    /**
+     * Sends the events to MonitoredDevicesTempStream and returns the sorted deviceID|initialTemp|peakTemp values
+     * received from PeakTempStream.
+     */
+    private List<String> collectPeakTemps(String appResource, List<Object[]> events)
+            throws IOException, URISyntaxException, InterruptedException {
+        SiddhiManager siddhiManager = new SiddhiManager();
+        siddhiManager.setExtension("temperature:peakDetector", PeakDetectorStreamProcessor.class);
+        List<String> peaks = new ArrayList<>();
+        try {
+            SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSandboxSiddhiAppRuntime(
+                    readResourceToString(appResource));
+            siddhiAppRuntime.addCallback("PeakTempStream", new StreamCallback() {
+                @Override
+                public void receive(Event[] events) {
+                    for (Event event : events) {
+                        peaks.add(event.getData(0) + "|" + event.getData(1) + "|" + event.getData(2));
+                    }
+                }
+            });
+            InputHandler monitoredDevicesTempStream = siddhiAppRuntime.getInputHandler("MonitoredDevicesTempStream");
+            siddhiAppRuntime.start();
+            for (Object[] event : events) {
+                monitoredDevicesTempStream.send(event.clone());
+            }
+        } finally {
+            siddhiManager.shutdown();
+        }
+        Collections.sort(peaks);
+        return peaks;
+    }
+
+    private String readResourceToString(String resource) throws IOException, URISyntaxException {
+        URL url = getClass().getClassLoader().getResource(resource);
+        Assert.assertNotNull(url, resource + " is not available in the test classpath.");
+        return new String(Files.readAllBytes(Paths.get(url.toURI())), StandardCharsets.UTF_8);
+    }
+}
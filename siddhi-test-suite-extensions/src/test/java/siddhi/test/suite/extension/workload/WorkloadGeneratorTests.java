@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.extension.workload;
+
+import io.siddhi.core.SiddhiAppRuntime;
+import io.siddhi.core.SiddhiManager;
+import io.siddhi.core.event.Event;
+import io.siddhi.core.stream.output.StreamCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import siddhi.test.suite.extension.nats.LoopbackNatsBroker;
+import siddhi.test.suite.extension.nats.LoopbackNatsSink;
+import siddhi.test.suite.extension.nats.LoopbackNatsSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Testsuite for the DeviceTemperatureStream workload generator.
+ * Description: Checks the skew of the generated devices, and runs Temp-Alert-App on generated events through its
+ *              input handler and through the loopback NATS source, expecting one alert per generated peak.
+ */
+public class WorkloadGeneratorTests {
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadGeneratorTests.class);
+
+    private static final String APP = "TemperatureAlertApp/apps/Temp-Alert-App.siddhi";
+    private static final String INPUT_DESTINATION = "Workload_DeviceTempStream";
+    private static final String OUTPUT_DESTINATION = "Workload_AlertStream";
+    private static final int DEVICES = 500;
+    private static final int EVENTS = 50000;
+
+    private SiddhiManager siddhiManager;
+
+    @BeforeClass
+    private void setUpTest() {
+        System.setProperty("CLUSTER_ID", "TemperatureCluster");
+        System.setProperty("INPUT_DESTINATION", INPUT_DESTINATION);
+        System.setProperty("OUTPUT_DESTINATION", OUTPUT_DESTINATION);
+        System.setProperty("NATS_URL", "nats://localhost:4222");
+    }
+
+    @BeforeMethod
+    private void createSiddhiManager() {
+        siddhiManager = new SiddhiManager();
+    }
+
+    @AfterMethod
+    private void shutdownSiddhiManager() {
+        siddhiManager.shutdown();
+    }
+
+    @Test
+    public void testZipfSkew() {
+        logger.info("Tests the share of the most frequent ranks of the Zipf distribution");
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1, new SplittableRandom(7));
+        int[] counts = new int[1000];
+        int samples = 200000;
+        for (int i = 0; i < samples; i++) {
+            counts[zipf.sample()]++;
+        }
+        double harmonic = 0;
+        for (int rank = 1; rank <= 1000; rank++) {
+            harmonic += 1.0 / rank;
+        }
+        for (int rank : new int[]{0, 1, 9}) {
+            double expected = samples / (harmonic * (rank + 1));
+            Assert.assertEquals(counts[rank], expected, expected * 0.1, "Unexpected share of rank " + rank + ".");
+        }
+    }
+
+    @Test
+    public void testSameSeedGeneratesSameEvents() {
+        logger.info("Tests that generators with the same seed generate the same events");
+        WorkloadGenerator first = new WorkloadGenerator.Builder(DEVICES).seed(42).build();
+        WorkloadGenerator second = new WorkloadGenerator.Builder(DEVICES).seed(42).build();
+        for (int i = 0; i < 1000; i++) {
+            Object[] data = first.next();
+            Assert.assertEquals(second.next(), data, "Event " + i + " differs: " + Arrays.toString(data));
+        }
+    }
+
+    @Test
+    public void testAlertsOfGeneratedPeaks() throws Exception {
+        logger.info("Tests that each generated peak raises one alert through the input handler");
+        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSandboxSiddhiAppRuntime(readApp());
+        AtomicLong alerts = new AtomicLong();
+        siddhiAppRuntime.addCallback("AlertStream", new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                alerts.addAndGet(events.length);
+            }
+        });
+        siddhiAppRuntime.start();
+        WorkloadGenerator generator = new WorkloadGenerator.Builder(DEVICES).zipfExponent(1.2).monitoredRatio(0.7)
+                .peakProbability(0.05).build();
+        generator.send(siddhiAppRuntime.getInputHandler("DeviceTemperatureStream"), EVENTS, 64);
+        logger.info("Generated " + generator.getEvents() + " events, " + generator.getMonitoredEvents() +
+                " monitored, with " + generator.getPeaks() + " peaks");
+        Assert.assertEquals(generator.getEvents(), EVENTS);
+        Assert.assertTrue(generator.getMonitoredEvents() > 0 && generator.getMonitoredEvents() < EVENTS,
+                "Both monitored and internal events should be generated.");
+        Assert.assertTrue(generator.getPeaks() > EVENTS / 100, "Too few peaks were generated.");
+        Assert.assertEquals(alerts.get(), generator.getPeaks());
+    }
+
+    @Test
+    public void testAlertsOfPublishedPeaks() throws Exception {
+        logger.info("Tests that each generated peak raises one alert through the loopback NATS source");
+        siddhiManager.setExtension("source:nats", LoopbackNatsSource.class);
+        siddhiManager.setExtension("sink:nats", LoopbackNatsSink.class);
+        siddhiManager.createSiddhiAppRuntime(readApp()
+                .replaceAll("@Store\\(.*\\)\\s*\\n", "")
+                .replaceAll("@sink\\(type = 'log'\\)\\s*\\n", "")).start();
+        List<Object> alerts = new CopyOnWriteArrayList<>();
+        LoopbackNatsBroker.Subscriber alertSubscriber = alerts::add;
+        LoopbackNatsBroker.subscribe(OUTPUT_DESTINATION, alertSubscriber);
+        try {
+            WorkloadGenerator generator = new WorkloadGenerator.Builder(DEVICES).seed(3).peakProbability(0.05)
+                    .build();
+            generator.publish(INPUT_DESTINATION, EVENTS / 10);
+            Assert.assertTrue(generator.getPeaks() > 0, "No peaks were generated.");
+            Assert.assertEquals(alerts.size(), generator.getPeaks());
+            Assert.assertTrue(((String) alerts.get(0)).contains("\"deviceID\":\"device-"));
+        } finally {
+            LoopbackNatsBroker.unsubscribe(OUTPUT_DESTINATION, alertSubscriber);
+        }
+    }
+
+    @Test
+    public void testBurstSchedule() throws Exception {
+        logger.info("Tests the pace of a workload with bursts");
+        BurstSchedule schedule = new BurstSchedule(1000, 1000, 100, 10);
+        Assert.assertEquals(schedule.getRate(TimeUnit.MILLISECONDS.toNanos(50)), 10000.0);
+        Assert.assertEquals(schedule.getRate(TimeUnit.MILLISECONDS.toNanos(500)), 1000.0);
+        Assert.assertEquals(schedule.getRate(TimeUnit.MILLISECONDS.toNanos(1050)), 10000.0);
+
+        List<Object> received = new CopyOnWriteArrayList<>();
+        LoopbackNatsBroker.Subscriber subscriber = received::add;
+        String destination = "Workload_Paced";
+        LoopbackNatsBroker.subscribe(destination, subscriber);
+        try {
+            WorkloadGenerator generator = new WorkloadGenerator.Builder(DEVICES)
+                    .schedule(new BurstSchedule(2000)).build();
+            long start = System.nanoTime();
+            generator.publish(destination, 201);
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(95),
+                    "Paced events were not spaced.");
+            Assert.assertEquals(received.size(), 201);
+        } finally {
+            LoopbackNatsBroker.unsubscribe(destination, subscriber);
+        }
+    }
+
+    private String readApp() throws IOException, URISyntaxException {
+        URL url = getClass().getClassLoader().getResource(APP);
+        Assert.assertNotNull(url, APP + " is not available in the test classpath.");
+        return new String(Files.readAllBytes(Paths.get(url.toURI())), StandardCharsets.UTF_8);
+    }
+}
@@ -26,14 +26,18 @@ import io.siddhi.distribution.test.framework.SiddhiRunnerContainer;
 import io.siddhi.distribution.test.framework.util.NatsClient;
 import io.siddhi.extension.io.nats.sink.NATSSink;
 import io.siddhi.extension.map.json.sinkmapper.JsonSinkMapper;
-import org.testcontainers.containers.output.WaitingConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import siddhi.test.suite.signal.CompletionSignal;
+import siddhi.test.suite.signal.LogSignal;
+import siddhi.test.suite.signal.NatsSignal;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -51,12 +55,14 @@ import java.util.concurrent.TimeoutException;
  * com.google.protobuf_3.6.1 (imported from maven-dependency-plugin to /target/TemperatureAlertApp/jars)
  */
 public abstract class AbstractTemperatureAlertAppTests {
+    private static final Logger logger = LoggerFactory.getLogger(AbstractTemperatureAlertAppTests.class);
+
     MySQLContainer mySQLContainer;
     NatsContainer natsContainer;
     SiddhiRunnerContainer siddhiRunnerContainer;
 
     NatsClient natsClient;
-    WaitingConsumer siddhiLogConsumer = new WaitingConsumer();
+    LogSignal siddhiLogSignal = new LogSignal();
 
     private String natsClusterId = "TemperatureCluster";
     private String natsUrl = "nats-streaming";
@@ -77,8 +83,18 @@ public abstract class AbstractTemperatureAlertAppTests {
         this.natsOutputDestination = natsOutputDestination;
     }
 
+    /**
+     * NATS streaming client ids have to be unique on the cluster, which is shared by test classes running in
+     * parallel.
+     */
+    String natsClientId(String client) {
+        return client + "_" + getClass().getSimpleName();
+    }
+
     @Test
     public void testMessageConsumption() throws InterruptedException, IOException, TimeoutException {
+        CompletionSignal<String> consumed = siddhiLogSignal.expect(
+                "data=[dummyType, dummyDeviceID, 50.0, dummyRoomID]");
         natsClient.publish(natsInputDestination, "{\n" +
                 "    \"event\": {\n" +
                 "        \"type\": \"dummyType\",\n" +
@@ -88,9 +104,8 @@ public abstract class AbstractTemperatureAlertAppTests {
                 "    }\n" +
                 "}");
         try {
-            siddhiLogConsumer.waitUntil(frame ->
-                            frame.getUtf8String().contains("data=[dummyType, dummyDeviceID, 50.0, dummyRoomID]"),
-                    5, TimeUnit.SECONDS);
+            consumed.await(5, TimeUnit.SECONDS);
+            logger.info("Message consumed by Siddhi Runner in " + consumed.getLatencyMillis() + " ms.");
         } catch (TimeoutException e) {
             Assert.fail("Message consumption acknowledgement is not available in Siddhi Runner logs.");
         }
@@ -114,11 +129,12 @@ public abstract class AbstractTemperatureAlertAppTests {
                         "temp double, roomID string);");
         siddhiAppRuntime.start();
         InputHandler inputHandler = siddhiAppRuntime.getInputHandler("DeviceTemperatureStream");
+        CompletionSignal<String> consumed = siddhiLogSignal.expect("data=[fooType, 001, 60.0, 202]");
         inputHandler.send(new Object[]{"fooType", "001", 60, "202"});
         try {
-            siddhiLogConsumer.waitUntil(frame ->
-                            frame.getUtf8String().contains("data=[fooType, 001, 60.0, 202]"),
-                    5, TimeUnit.SECONDS);
+            consumed.await(5, TimeUnit.SECONDS);
+            logger.info("Message published with Siddhi consumed by Siddhi Runner in " +
+                    consumed.getLatencyMillis() + " ms.");
         } catch (TimeoutException e) {
             Assert.fail("Message consumption acknowledgement is not available in Siddhi Runner logs.");
         } finally {
@@ -129,44 +145,71 @@ public abstract class AbstractTemperatureAlertAppTests {
     @Test
     public void testAppOutput() throws InterruptedException, IOException, TimeoutException {
 
-        NatsClient.ResultHolder resultHolder = new NatsClient.ResultHolder(1, 3);
-        NatsClient natsClient = new NatsClient(natsClusterId, "stan_test1",
-                natsUrl, resultHolder);
-        natsClient.connect();
-        natsClient.subscribeFromNow(natsOutputDestination);
-        natsClient.publish(natsInputDestination, "{\n" +
-                "    \"event\": {\n" +
-                "        \"type\": \"monitored\",\n" +
-                "        \"deviceID\": \"C001\",\n" +
-                "        \"temp\": 40.2,\n" +
-                "        \"roomID\": \"F2-Conference\"\n" +
-                "    }\n" +
-                "}");
+        try (NatsSignal alertSignal = new NatsSignal(natsClusterId, natsClientId("stan_test1"), natsUrl,
+                natsOutputDestination)) {
+            CompletionSignal<String> alert = alertSignal.expect(message ->
+                    message.contains("\"deviceID\":\"C001\""));
+            natsClient.publish(natsInputDestination, "{\n" +
+                    "    \"event\": {\n" +
+                    "        \"type\": \"monitored\",\n" +
+                    "        \"deviceID\": \"C001\",\n" +
+                    "        \"temp\": 40.2,\n" +
+                    "        \"roomID\": \"F2-Conference\"\n" +
+                    "    }\n" +
+                    "}");
 
-        natsClient.publish(natsInputDestination, "{\n" +
-                "    \"event\": {\n" +
-                "        \"type\": \"monitored\",\n" +
-                "        \"deviceID\": \"C001\",\n" +
-                "        \"temp\": 60.0,\n" +
-                "        \"roomID\": \"F2-Conference\"\n" +
-                "    }\n" +
-                "}");
-        natsClient.publish(natsInputDestination, "{\n" +
-                "    \"event\": {\n" +
-                "        \"type\": \"monitored\",\n" +
-                "        \"deviceID\": \"C001\",\n" +
-                "        \"temp\": 80.0,\n" +
-                "        \"roomID\": \"F2-Conference\"\n" +
-                "    }\n" +
-                "}");
-        natsClient.publish(natsInputDestination, "{\n" +
-                "    \"event\": {\n" +
-                "        \"type\": \"monitored\",\n" +
-                "        \"deviceID\": \"C001\",\n" +
-                "        \"temp\": 30.0,\n" +
-                "        \"roomID\": \"F2-Conference\"\n" +
-                "    }\n" +
-                "}");
-        Assert.assertTrue(((ArrayList<String>) resultHolder.waitAndGetResults()).get(0).contains("\"peakTemp\":80.0"));
+            natsClient.publish(natsInputDestination, "{\n" +
+                    "    \"event\": {\n" +
+                    "        \"type\": \"monitored\",\n" +
+                    "        \"deviceID\": \"C001\",\n" +
+                    "        \"temp\": 60.0,\n" +
+                    "        \"roomID\": \"F2-Conference\"\n" +
+                    "    }\n" +
+                    "}");
+            natsClient.publish(natsInputDestination, "{\n" +
+                    "    \"event\": {\n" +
+                    "        \"type\": \"monitored\",\n" +
+                    "        \"deviceID\": \"C001\",\n" +
+                    "        \"temp\": 80.0,\n" +
+                    "        \"roomID\": \"F2-Conference\"\n" +
+                    "    }\n" +
+                    "}");
+            natsClient.publish(natsInputDestination, "{\n" +
+                    "    \"event\": {\n" +
+                    "        \"type\": \"monitored\",\n" +
+                    "        \"deviceID\": \"C001\",\n" +
+                    "        \"temp\": 30.0,\n" +
+                    "        \"roomID\": \"F2-Conference\"\n" +
+                    "    }\n" +
+                    "}");
+            try {
+                Assert.assertTrue(alert.await(5, TimeUnit.SECONDS).contains("\"peakTemp\":80.0"));
+                logger.info("Alert received from AlertStream in " + alert.getLatencyMillis() + " ms.");
+            } catch (TimeoutException e) {
+                Assert.fail("Alert of C001 was not published to " + natsOutputDestination + ".");
+            }
+        }
+    }
+
+    @Test
+    public void testAlertLatency() throws InterruptedException, IOException, TimeoutException {
+        int probesPerSecond = Integer.getInteger("alert.latency.probesPerSecond", 50);
+        long durationMillis = Long.getLong("alert.latency.durationMillis", 10000);
+        long p99SloMillis = Long.getLong("alert.latency.p99.sloMillis", 500);
+        long maxSloMillis = Long.getLong("alert.latency.max.sloMillis", 2000);
+
+        try (AlertLatencyProbe latencyProbe = new AlertLatencyProbe(natsClusterId,
+                natsClientId("stan_latency_probe"), natsUrl, natsInputDestination, natsOutputDestination)) {
+            latencyProbe.run(probesPerSecond, durationMillis);
+            boolean allAlertsReceived = latencyProbe.awaitAlerts(maxSloMillis, TimeUnit.MILLISECONDS);
+            latencyProbe.writeReport(Paths.get("target", getClass().getSimpleName() + "-alert-latency.hgrm"));
+            Assert.assertTrue(allAlertsReceived, latencyProbe.getPendingAlerts() +
+                    " alerts were not received within the max latency SLO of " + maxSloMillis + " ms.");
+            Assert.assertEquals(latencyProbe.getUnexpectedAlerts(), 0, "Alerts were received for unknown probes.");
+            Assert.assertTrue(latencyProbe.getHistogram().getValueAtPercentile(99) <= p99SloMillis * 1000,
+                    "p99 alert latency exceeds the SLO of " + p99SloMillis + " ms.");
+            Assert.assertTrue(latencyProbe.getHistogram().getMaxValue() <= maxSloMillis * 1000,
+                    "Max alert latency exceeds the SLO of " + maxSloMillis + " ms.");
+        }
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite;
+
+import io.nats.streaming.Message;
+import io.nats.streaming.StreamingConnection;
+import io.nats.streaming.StreamingConnectionFactory;
+import io.nats.streaming.SubscriptionOptions;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures the latency from publishing a DeviceTemperatureStream event to NATS until its alert arrives from
+ * AlertStream.
+ * Description: Each probe is a new monitored device publishing a rise, a peak above the alert threshold and a fall.
+ *              The fall completes the temperature-increase-detector pattern, so the time the probe was scheduled to
+ *              be published is stamped against the deviceID of the probe, and the latency is recorded in microseconds
+ *              when the alert carrying that deviceID is received. Measuring from the schedule rather than from the
+ *              actual publish keeps stalls of the publisher in the latencies, instead of delaying the probes
+ *              that would have measured them.
+ */
+public class AlertLatencyProbe implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AlertLatencyProbe.class);
+
+    private static final String PROBE_DEVICE_PREFIX = "latency-probe-";
+    private static final String DEVICE_ID_FIELD = "\"deviceID\":\"";
+    private static final double[] PROBE_TEMPS = {40.0, 80.0, 30.0};
+
+    private final StreamingConnection connection;
+    private final String inputDestination;
+    private final Histogram histogram = new ConcurrentHistogram(3);
+    private final Map<String, Long> pendingAlerts = new ConcurrentHashMap<>();
+    private final AtomicLong unexpectedAlerts = new AtomicLong();
+    private final Object completionLock = new Object();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public AlertLatencyProbe(String clusterId, String clientId, String natsUrl, String inputDestination,
+                             String outputDestination) throws IOException, InterruptedException, TimeoutException {
+        StreamingConnectionFactory connectionFactory = new StreamingConnectionFactory(clusterId, clientId);
+        connectionFactory.setNatsUrl(natsUrl);
+        this.connection = connectionFactory.createConnection();
+        this.inputDestination = inputDestination;
+        connection.subscribe(outputDestination, this::onAlert, new SubscriptionOptions.Builder().build());
+    }
+
+    /**
+     * Publishes the given number of probes per second for the given duration.
+     */
+    public void run(int probesPerSecond, long durationMillis)
+            throws IOException, InterruptedException, TimeoutException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / probesPerSecond;
+        long probes = durationMillis * probesPerSecond / 1000;
+        long start = System.nanoTime();
+        for (long probe = 0; probe < probes; probe++) {
+            long sendAt = start + probe * intervalNanos;
+            long delay = sendAt - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            String deviceId = PROBE_DEVICE_PREFIX + runId + "-" + probe;
+            for (int step = 0; step < PROBE_TEMPS.length; step++) {
+                byte[] payload = toJson(deviceId, PROBE_TEMPS[step]);
+                if (step == PROBE_TEMPS.length - 1) {
+                    pendingAlerts.put(deviceId, sendAt);
+                }
+                connection.publish(inputDestination, payload);
+            }
+        }
+        logger.info("Published " + probes + " latency probes at " + probesPerSecond + " probes/s.");
+    }
+
+    /**
+     * Waits until the alerts of all published probes arrive.
+     */
+    public boolean awaitAlerts(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (completionLock) {
+            while (!pendingAlerts.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(completionLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    public int getPendingAlerts() {
+        return pendingAlerts.size();
+    }
+
+    public long getUnexpectedAlerts() {
+        return unexpectedAlerts.get();
+    }
+
+    /**
+     * Publish-to-alert latencies in microseconds.
+     */
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Writes the percentile distribution of the latencies in milliseconds.
+     */
+    public void writeReport(Path reportPath) throws IOException {
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        try (PrintStream printStream = new PrintStream(Files.newOutputStream(reportPath), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(printStream, 1000.0);
+        }
+        logger.info("Alert latency: p50=" + toMillis(50) + " ms, p99=" + toMillis(99) + " ms, p99.9=" +
+                toMillis(99.9) + " ms, max=" + histogram.getMaxValue() / 1000.0 + " ms, samples=" +
+                histogram.getTotalCount() + ", report=" + reportPath.toAbsolutePath());
+    }
+
+    @Override
+    public void close() throws IOException, TimeoutException, InterruptedException {
+        connection.close();
+    }
+
+    private double toMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private void onAlert(Message message) {
+        long receivedAt = System.nanoTime();
+        String alert = new String(message.getData(), StandardCharsets.UTF_8);
+        int start = alert.indexOf(DEVICE_ID_FIELD);
+        String deviceId = null;
+        if (start >= 0) {
+            start += DEVICE_ID_FIELD.length();
+            deviceId = alert.substring(start, alert.indexOf('"', start));
+        }
+        Long publishedAt = deviceId == null ? null : pendingAlerts.remove(deviceId);
+        if (publishedAt == null) {
+            unexpectedAlerts.incrementAndGet();
+            return;
+        }
+        histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(receivedAt - publishedAt));
+        if (pendingAlerts.isEmpty()) {
+            synchronized (completionLock) {
+                completionLock.notifyAll();
+            }
+        }
+    }
+
+    private static byte[] toJson(String deviceId, double temp) {
+        return ("{\n" +
+                "    \"event\": {\n" +
+                "        \"type\": \"monitored\",\n" +
+                "        \"deviceID\": \"" + deviceId + "\",\n" +
+                "        \"temp\": " + temp + ",\n" +
+                "        \"roomID\": \"latency-probe\"\n" +
+                "    }\n" +
+                "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -17,22 +17,15 @@
  */
 package siddhi.test.suite;
 
-import com.google.common.io.Resources;
-import io.siddhi.distribution.test.framework.SiddhiRunnerContainer;
 import io.siddhi.distribution.test.framework.util.NatsClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.testcontainers.containers.output.OutputFrame;
-import org.testcontainers.containers.output.Slf4jLogConsumer;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 
 import java.io.IOException;
-import java.net.URL;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import java.sql.SQLException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Black-box Testsuite for Temp-Alert-App.
@@ -50,49 +43,26 @@ import java.util.Map;
 public class TemperatureAlertAppBlackBoxTests extends AbstractTemperatureAlertAppTests {
     private static final Logger logger = LoggerFactory.getLogger(TemperatureAlertAppBlackBoxTests.class);
 
-    private static final String DATABSE_JDBC_URL = "jdbc:mysql://mysql:3306/";
-    private static final String DATABSE_USERNAME = "user";
-    private static final String DATABSE_PASSWORD = "siddhi";
-    private static final String DATABSE_DRIVER_NAME = "com.mysql.jdbc.Driver";
-    private static final String NATS_CLUSTER_ID = "TemperatureCluster";
-    private static final String NATS_BOOTSTRAP_URL = "nats://nats-streaming:443";
-    private static final String NATS_INPUT_DESTINATION = "Temp-Alert-App_DeviceTempStream";
-    private static final String NATS_OUTPUT_DESTINATION = "Temp-Alert-App_AlertStream";
-
     @BeforeClass
     public void setUpCluster() throws IOException, InterruptedException {
-        //points to the directory maven-dependency-plugin imported the jars
-        Path jarsFromMaven = Paths.get("target", "TemperatureAlertApp/jars");
-        URL appUrl = Resources.getResource("TemperatureAlertApp/apps");
-        URL extraJarsUrl = Resources.getResource("TemperatureAlertApp/jars");
-        URL configUrl = Resources.getResource("TemperatureAlertApp/config/TemperatureDB_Datasource.yaml");
-
-        natsClient = new NatsClient(NATS_CLUSTER_ID, NATS_BOOTSTRAP_URL);
+        TemperatureAlertAppCluster cluster = TemperatureAlertAppCluster.get();
+        TemperatureAlertAppCluster.Tenant tenant;
+        try {
+            tenant = cluster.tenant(getClass().getSimpleName());
+            siddhiRunnerContainer = cluster.startSiddhiRunner(tenant, logger, siddhiLogSignal);
+        } catch (SQLException | TimeoutException e) {
+            throw new IOException("Failed to deploy Temp-Alert-App for " + getClass().getSimpleName(), e);
+        }
+        String natsUrl = cluster.getNatsContainer().getBootstrapServerUrl();
+        natsClient = new NatsClient(TemperatureAlertAppCluster.NATS_CLUSTER_ID, natsUrl);
         natsClient.connect();
-
-        Map<String, String> envMap = new HashMap<>();
-        envMap.put("CLUSTER_ID", NATS_CLUSTER_ID);
-        envMap.put("INPUT_DESTINATION", NATS_INPUT_DESTINATION);
-        envMap.put("OUTPUT_DESTINATION", NATS_OUTPUT_DESTINATION);
-        envMap.put("NATS_URL", NATS_BOOTSTRAP_URL);
-        envMap.put("DATABASE_URL", DATABSE_JDBC_URL);
-        envMap.put("USERNAME", DATABSE_USERNAME);
-        envMap.put("PASSWORD", DATABSE_PASSWORD);
-        envMap.put("JDBC_DRIVER_NAME", DATABSE_DRIVER_NAME);
-        siddhiRunnerContainer = new SiddhiRunnerContainer("siddhiio/siddhi-runner-ubuntu:5.1.0-m2")
-                .withSiddhiApps(appUrl.getPath())
-                .withJars(extraJarsUrl.getPath())
-                .withJars(jarsFromMaven.toString())
-                .withConfig(configUrl.getPath())
-                .withEnv(envMap)
-                .withLogConsumer(new Slf4jLogConsumer(logger));
-        siddhiRunnerContainer.start();
-        siddhiRunnerContainer.followOutput(siddhiLogConsumer, OutputFrame.OutputType.STDOUT);
-        setClusterConfigs(NATS_CLUSTER_ID, NATS_BOOTSTRAP_URL, NATS_INPUT_DESTINATION, NATS_OUTPUT_DESTINATION);
+        setClusterConfigs(TemperatureAlertAppCluster.NATS_CLUSTER_ID, natsUrl, tenant.getInputDestination(),
+                tenant.getOutputDestination());
     }
 
     @AfterClass
     public void shutdownCluster() {
+        //MySQL and NATS are shared by the suite and stopped by TemperatureAlertAppClusterListener
         if (siddhiRunnerContainer != null) {
             siddhiRunnerContainer.stop();
         }
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite;
+
+import com.google.common.io.Resources;
+import io.siddhi.distribution.test.framework.MySQLContainer;
+import io.siddhi.distribution.test.framework.NatsContainer;
+import io.siddhi.distribution.test.framework.SiddhiRunnerContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.output.OutputFrame;
+import org.testcontainers.containers.output.Slf4jLogConsumer;
+import siddhi.test.suite.signal.CompletionSignal;
+import siddhi.test.suite.signal.LogSignal;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Suite-scoped MySQL and NATS cluster shared by the Temp-Alert-App test classes.
+ * Description: The network, MySQLContainer and NatsContainer are started once, on first use, and stopped when the
+ *              suite finishes (TemperatureAlertAppClusterListener in testng.xml). Each test class takes a
+ *              {@link Tenant} with its own NATS destinations, NATS client ids and MySQL schema, so classes do not see
+ *              each other's events or rows and can run in parallel. A SiddhiRunnerContainer, which reads its
+ *              destinations and schema from the environment, is started per tenant on the shared network.
+ *              The time of every startup phase is logged and written to target/cluster-startup-timings.csv.
+ */
+public final class TemperatureAlertAppCluster {
+    private static final Logger logger = LoggerFactory.getLogger(TemperatureAlertAppCluster.class);
+
+    static final String NATS_CLUSTER_ID = "TemperatureCluster";
+    static final String NATS_CLUSTER_HOST = "nats-streaming";
+    static final String DATABASE_NAME = "TemperaureDB";
+    static final String DATABASE_HOST = "mysqldb";
+
+    private static final String SIDDHI_RUNNER_IMAGE = "siddhiio/siddhi-runner-ubuntu:5.1.0-m2";
+    private static final String SIDDHI_RUNNER_STARTED = "Siddhi Runner Distribution started";
+    private static final long SIDDHI_RUNNER_STARTUP_TIMEOUT_SECONDS = 120;
+    private static final String INPUT_DESTINATION = "Temp-Alert-App_DeviceTempStream";
+    private static final String OUTPUT_DESTINATION = "Temp-Alert-App_AlertStream";
+    private static final Path TIMINGS_REPORT = Paths.get("target", "cluster-startup-timings.csv");
+
+    private static TemperatureAlertAppCluster cluster;
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private final Network network;
+    private final MySQLContainer mySQLContainer;
+    private final NatsContainer natsContainer;
+
+    private TemperatureAlertAppCluster() {
+        network = timed("network", Network::newNetwork);
+        mySQLContainer = new MySQLContainer()
+                .withDatabaseName(DATABASE_NAME)
+                .withNetworkAliases(DATABASE_HOST)
+                .withNetwork(network);
+        natsContainer = new NatsContainer()
+                .withNetwork(network)
+                .withClusterId(NATS_CLUSTER_ID)
+                .withNetworkAliases(NATS_CLUSTER_HOST);
+        CompletableFuture<Void> mySQLStartup = CompletableFuture.runAsync(() ->
+                timed("mysql", () -> {
+                    mySQLContainer.start();
+                    return null;
+                }));
+        CompletableFuture<Void> natsStartup = CompletableFuture.runAsync(() ->
+                timed("nats", () -> {
+                    natsContainer.start();
+                    return null;
+                }));
+        try {
+            long start = System.nanoTime();
+            CompletableFuture.allOf(mySQLStartup, natsStartup).join();
+            record("cluster", start);
+        } catch (CompletionException e) {
+            stopContainers();
+            throw new IllegalStateException("Temp-Alert-App cluster failed to start.", e.getCause());
+        }
+    }
+
+    /**
+     * Returns the cluster of the suite, starting it on first use.
+     */
+    public static synchronized TemperatureAlertAppCluster get() {
+        if (cluster == null) {
+            cluster = new TemperatureAlertAppCluster();
+        }
+        return cluster;
+    }
+
+    /**
+     * Stops the cluster if it was started and writes the startup timings.
+     */
+    public static synchronized void shutdown() {
+        if (cluster != null) {
+            cluster.stopContainers();
+            cluster.writeTimings();
+            cluster = null;
+        }
+    }
+
+    /**
+     * Creates the NATS destinations and MySQL schema of a test class.
+     */
+    public Tenant tenant(String name) throws SQLException {
+        long start = System.nanoTime();
+        Tenant tenant = new Tenant(name);
+        try (Connection connection = DriverManager.getConnection(withDatabase(mySQLContainer.getJdbcUrl(), ""),
+                "root", mySQLContainer.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE IF NOT EXISTS " + tenant.getDatabase());
+            statement.execute("GRANT ALL PRIVILEGES ON " + tenant.getDatabase() + ".* TO '" +
+                    mySQLContainer.getUsername() + "'@'%'");
+        }
+        record("schema[" + name + "]", start);
+        return tenant;
+    }
+
+    /**
+     * Starts a SiddhiRunnerContainer deploying Temp-Alert-App for the tenant, and waits until it has started.
+     * The caller stops it, unless it did not start in time and a TimeoutException is thrown.
+     */
+    public SiddhiRunnerContainer startSiddhiRunner(Tenant tenant, Logger runnerLogger, LogSignal logSignal)
+            throws TimeoutException, InterruptedException {
+        //points to the directory maven-dependency-plugin imported the jars
+        Path jarsFromMaven = Paths.get("target", "TemperatureAlertApp/jars");
+        URL appUrl = Resources.getResource("TemperatureAlertApp/apps");
+        URL extraJarsUrl = Resources.getResource("TemperatureAlertApp/jars");
+        URL configUrl = Resources.getResource("TemperatureAlertApp/config/TemperatureDB_Datasource.yaml");
+
+        long start = System.nanoTime();
+        SiddhiRunnerContainer siddhiRunnerContainer = new SiddhiRunnerContainer(SIDDHI_RUNNER_IMAGE)
+                .withSiddhiApps(appUrl.getPath())
+                .withJars(extraJarsUrl.getPath())
+                .withJars(jarsFromMaven.toString())
+                .withConfig(configUrl.getPath())
+                .withNetwork(network)
+                .withEnv(tenant.getEnv())
+                .withLogConsumer(new Slf4jLogConsumer(runnerLogger));
+        CompletionSignal<String> started = logSignal.expect(SIDDHI_RUNNER_STARTED);
+        siddhiRunnerContainer.start();
+        siddhiRunnerContainer.followOutput(logSignal, OutputFrame.OutputType.STDOUT);
+        try {
+            started.await(SIDDHI_RUNNER_STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            siddhiRunnerContainer.stop();
+            throw e;
+        }
+        record("siddhi-runner[" + tenant.getName() + "]", start);
+        return siddhiRunnerContainer;
+    }
+
+    public MySQLContainer getMySQLContainer() {
+        return mySQLContainer;
+    }
+
+    public NatsContainer getNatsContainer() {
+        return natsContainer;
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * Replaces the database of a MySQL JDBC url.
+     */
+    static String withDatabase(String jdbcUrl, String database) {
+        int databaseStart = jdbcUrl.indexOf('/', "jdbc:mysql://".length()) + 1;
+        int parametersStart = jdbcUrl.indexOf('?', databaseStart);
+        return jdbcUrl.substring(0, databaseStart) + database +
+                (parametersStart < 0 ? "" : jdbcUrl.substring(parametersStart));
+    }
+
+    private <T> T timed(String phase, Supplier<T> startup) {
+        long start = System.nanoTime();
+        T result = startup.get();
+        record(phase, start);
+        return result;
+    }
+
+    private void record(String phase, long startNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        synchronized (phaseMillis) {
+            phaseMillis.put(phase, millis);
+        }
+        logger.info("Cluster startup phase '" + phase + "' took " + millis + " ms.");
+    }
+
+    private void stopContainers() {
+        if (natsContainer != null) {
+            natsContainer.stop();
+        }
+        if (mySQLContainer != null) {
+            mySQLContainer.stop();
+        }
+        if (network != null) {
+            network.close();
+        }
+    }
+
+    private void writeTimings() {
+        try {
+            Files.createDirectories(TIMINGS_REPORT.getParent());
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(TIMINGS_REPORT,
+                    StandardCharsets.UTF_8))) {
+                writer.println("phase,millis");
+                synchronized (phaseMillis) {
+                    for (Map.Entry<String, Long> phase : phaseMillis.entrySet()) {
+                        writer.println(phase.getKey() + "," + phase.getValue());
+                    }
+                }
+            }
+            logger.info("Cluster startup timings written to " + TIMINGS_REPORT.toAbsolutePath());
+        } catch (IOException e) {
+            logger.error("Failed to write the cluster startup timings to " + TIMINGS_REPORT.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * NATS destinations, NATS client ids and MySQL schema of one test class on the shared cluster.
+     */
+    public final class Tenant {
+        private final String name;
+
+        private Tenant(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getInputDestination() {
+            return name + "_" + INPUT_DESTINATION;
+        }
+
+        public String getOutputDestination() {
+            return name + "_" + OUTPUT_DESTINATION;
+        }
+
+        /**
+         * NATS streaming client id, unique on the shared cluster.
+         */
+        public String clientId(String client) {
+            return client + "_" + name;
+        }
+
+        public String getDatabase() {
+            return name;
+        }
+
+        /**
+         * JDBC url of the tenant schema, reachable from the test JVM.
+         */
+        public String getJdbcUrl() {
+            return withDatabase(mySQLContainer.getJdbcUrl(), getDatabase());
+        }
+
+        /**
+         * Environment of Temp-Alert-App for the tenant, resolved on the shared network.
+         */
+        public Map<String, String> getEnv() {
+            Map<String, String> envMap = new HashMap<>();
+            envMap.put("CLUSTER_ID", NATS_CLUSTER_ID);
+            envMap.put("INPUT_DESTINATION", getInputDestination());
+            envMap.put("OUTPUT_DESTINATION", getOutputDestination());
+            envMap.put("NATS_URL", natsContainer.getNetworkedBootstrapServerUrl());
+            envMap.put("DATABASE_URL", withDatabase(mySQLContainer.getNetworkedJdbcUrl(), getDatabase()));
+            envMap.put("USERNAME", mySQLContainer.getUsername());
+            envMap.put("PASSWORD", mySQLContainer.getPassword());
+            envMap.put("JDBC_DRIVER_NAME", mySQLContainer.getDriverClassName());
+            return envMap;
+        }
+    }
+}
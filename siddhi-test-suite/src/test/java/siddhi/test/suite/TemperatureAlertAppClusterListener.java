@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+/**
+ * Stops the shared {@link TemperatureAlertAppCluster} when the suite finishes.
+ */
+public class TemperatureAlertAppClusterListener implements ISuiteListener {
+
+    @Override
+    public void onStart(ISuite suite) {
+        //The cluster is started by the first test class using it
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        TemperatureAlertAppCluster.shutdown();
+    }
+}
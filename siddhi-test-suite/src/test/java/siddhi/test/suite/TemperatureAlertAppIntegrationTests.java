@@ -17,28 +17,25 @@
  */
 package siddhi.test.suite;
 
-import com.google.common.io.Resources;
 import io.siddhi.core.exception.ConnectionUnavailableException;
-import io.siddhi.distribution.test.framework.MySQLContainer;
-import io.siddhi.distribution.test.framework.NatsContainer;
-import io.siddhi.distribution.test.framework.util.DatabaseClient;
+import io.siddhi.distribution.test.framework.SiddhiRunnerContainer;
 import io.siddhi.distribution.test.framework.util.NatsClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.testcontainers.containers.Network;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import siddhi.test.suite.signal.LogSignal;
+import siddhi.test.suite.signal.RowSignal;
 
 import java.io.IOException;
-import java.net.URL;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -58,68 +55,28 @@ import java.util.concurrent.TimeoutException;
 public class TemperatureAlertAppIntegrationTests extends AbstractTemperatureAlertAppTests {
     private static final Logger logger = LoggerFactory.getLogger(TemperatureAlertAppIntegrationTests.class);
 
-    private static final String DATABSE_NAME = "TemperaureDB";
-    private static final String DATABSE_HOST = "mysqldb";
-    private static final String NATS_CLUSTER_ID = "TemperatureCluster";
-    private static final String NATS_CLUSTER_HOST = "nats-streaming";
-    private static final String NATS_INPUT_DESTINATION = "Temp-Alert-App_DeviceTempStream";
-    private static final String NATS_OUTPUT_DESTINATION = "Temp-Alert-App_AlertStream";
+    private TemperatureAlertAppCluster.Tenant tenant;
 
     @BeforeClass
     public void setUpCluster() throws IOException, InterruptedException {
-        //points to the directory maven-dependency-plugin imported the jars
-        Path jarsFromMaven = Paths.get("target", "TemperatureAlertApp/jars");
-        URL appUrl = Resources.getResource("TemperatureAlertApp/apps");
-        URL extraJarsUrl = Resources.getResource("TemperatureAlertApp/jars");
-        URL configUrl = Resources.getResource("TemperatureAlertApp/config/TemperatureDB_Datasource.yaml");
-        Network network = Network.newNetwork();
-
-        mySQLContainer = new MySQLContainer()
-                .withDatabaseName(DATABSE_NAME)
-                .withNetworkAliases(DATABSE_HOST)
-                .withNetwork(network);
-        mySQLContainer.start();
-
-        natsContainer = new NatsContainer()
-                .withNetwork(network)
-                .withClusterId(NATS_CLUSTER_ID)
-                .withNetworkAliases(NATS_CLUSTER_HOST);
-        natsContainer.start();
-        natsClient = new NatsClient(NATS_CLUSTER_ID, natsContainer.getBootstrapServerUrl());
+        TemperatureAlertAppCluster cluster = TemperatureAlertAppCluster.get();
+        try {
+            tenant = cluster.tenant(getClass().getSimpleName());
+        } catch (SQLException e) {
+            throw new IOException("Failed to create the schema of " + getClass().getSimpleName(), e);
+        }
+        mySQLContainer = cluster.getMySQLContainer();
+        natsContainer = cluster.getNatsContainer();
+        natsClient = new NatsClient(TemperatureAlertAppCluster.NATS_CLUSTER_ID,
+                natsContainer.getBootstrapServerUrl());
         natsClient.connect();
-
-        Map<String, String> envMap = new HashMap<>();
-        envMap.put("CLUSTER_ID", NATS_CLUSTER_ID);
-        envMap.put("INPUT_DESTINATION", NATS_INPUT_DESTINATION);
-        envMap.put("OUTPUT_DESTINATION", NATS_OUTPUT_DESTINATION);
-        envMap.put("NATS_URL", natsContainer.getNetworkedBootstrapServerUrl());
-        envMap.put("DATABASE_URL", mySQLContainer.getNetworkedJdbcUrl());
-        envMap.put("USERNAME", mySQLContainer.getUsername());
-        envMap.put("PASSWORD", mySQLContainer.getPassword());
-        envMap.put("JDBC_DRIVER_NAME", mySQLContainer.getDriverClassName());
-//        siddhiRunnerContainer = new SiddhiRunnerContainer("siddhiio/siddhi-runner-ubuntu:5.1.0-m2")
-//                .withSiddhiApps(appUrl.getPath())
-//                .withJars(extraJarsUrl.getPath())
-//                .withJars(jarsFromMaven.toString())
-//                .withConfig(configUrl.getPath())
-//                .withNetwork(network)
-//                .withEnv(envMap)
-//                .withLogConsumer(new Slf4jLogConsumer(logger));
-//        siddhiRunnerContainer.start();
-//        siddhiRunnerContainer.followOutput(siddhiLogConsumer, OutputFrame.OutputType.STDOUT);
-
-        setClusterConfigs(NATS_CLUSTER_ID, natsContainer.getBootstrapServerUrl(), NATS_INPUT_DESTINATION,
-                NATS_OUTPUT_DESTINATION);
+        setClusterConfigs(TemperatureAlertAppCluster.NATS_CLUSTER_ID, natsContainer.getBootstrapServerUrl(),
+                tenant.getInputDestination(), tenant.getOutputDestination());
     }
 
     @AfterClass
     public void shutdownCluster() {
-        if (natsContainer != null) {
-            natsContainer.stop();
-        }
-        if (mySQLContainer != null) {
-            mySQLContainer.stop();
-        }
+        //MySQL and NATS are shared by the suite and stopped by TemperatureAlertAppClusterListener
         if (siddhiRunnerContainer != null) {
             siddhiRunnerContainer.stop();
         }
@@ -128,8 +85,9 @@ public class TemperatureAlertAppIntegrationTests extends AbstractTemperatureAler
     @Test
     public void testDBPersistence() throws SQLException, InterruptedException, IOException, TimeoutException,
             ConnectionUnavailableException {
-
-        natsClient.publish(NATS_INPUT_DESTINATION, "{\n" +
+        RowSignal persisted = new RowSignal(tenant.getJdbcUrl(), mySQLContainer.getUsername(),
+                mySQLContainer.getPassword(), "SELECT COUNT(*) FROM InternalDevicesTempTable", 1);
+        natsClient.publish(tenant.getInputDestination(), "{\n" +
                 "    \"event\": {\n" +
                 "        \"type\": \"internal\",\n" +
                 "        \"deviceID\": \"C250i\",\n" +
@@ -137,16 +95,38 @@ public class TemperatureAlertAppIntegrationTests extends AbstractTemperatureAler
                 "        \"roomID\": \"F2-Conference\"\n" +
                 "    }\n" +
                 "}");
-        ResultSet resultSet = null;
         try {
-            Thread.sleep(1000);
-            resultSet = DatabaseClient.executeQuery(mySQLContainer, "SELECT * FROM InternalDevicesTempTable");
-            Assert.assertNotNull(resultSet);
+            persisted.await(10, TimeUnit.SECONDS);
+            logger.info("Event persisted to InternalDevicesTempTable in " + persisted.getLatencyMillis() + " ms.");
+        } catch (TimeoutException e) {
+            Assert.fail("No rows were persisted to InternalDevicesTempTable.", e);
+        }
+        try (Connection connection = DriverManager.getConnection(tenant.getJdbcUrl(), mySQLContainer.getUsername(),
+                mySQLContainer.getPassword());
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM InternalDevicesTempTable")) {
+            Assert.assertTrue(resultSet.next(), "No rows were persisted to InternalDevicesTempTable.");
             Assert.assertEquals("C250i", resultSet.getString(2));
             Assert.assertEquals(30.5, resultSet.getDouble(3));
+        }
+    }
+
+    @Test
+    public void testSiddhiRunnerClusterDeploy() throws SQLException, InterruptedException {
+        TemperatureAlertAppCluster cluster = TemperatureAlertAppCluster.get();
+        SiddhiRunnerContainer deployedRunner = null;
+        long start = System.nanoTime();
+        try {
+            //deploys on a tenant of its own, so the runner does not consume the events of the other tests
+            deployedRunner = cluster.startSiddhiRunner(cluster.tenant(getClass().getSimpleName() + "_Deploy"),
+                    logger, new LogSignal());
+            logger.info("Siddhi Runner deployed Temp-Alert-App on the shared cluster in " +
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+        } catch (TimeoutException e) {
+            Assert.fail("Siddhi Runner failed to deploy Temp-Alert-App on the shared cluster.");
         } finally {
-            if (resultSet != null) {
-                resultSet.close();
+            if (deployedRunner != null) {
+                deployedRunner.stop();
             }
         }
     }
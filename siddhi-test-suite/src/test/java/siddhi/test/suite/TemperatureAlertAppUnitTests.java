@@ -4,10 +4,8 @@ import com.google.common.io.Resources;
 import io.siddhi.core.SiddhiAppRuntime;
 import io.siddhi.core.SiddhiManager;
 import io.siddhi.core.event.Event;
-import io.siddhi.core.query.output.callback.QueryCallback;
 import io.siddhi.core.stream.input.InputHandler;
 import io.siddhi.core.util.EventPrinter;
-import io.siddhi.core.util.SiddhiTestHelper;
 import io.siddhi.distribution.test.framework.SiddhiRunnerContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +15,8 @@ import org.testcontainers.containers.output.WaitingConsumer;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import siddhi.test.suite.extension.app.SiddhiAppCache;
+import siddhi.test.suite.signal.EventSignal;
 
 import java.io.IOException;
 import java.net.URL;
@@ -24,10 +24,10 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Unit Testsuite for Temp-Alert-App.
@@ -37,7 +37,6 @@ public class TemperatureAlertAppUnitTests {
 
 
     private static URL appUrl = Resources.getResource("TemperatureAlertApp/apps/Temp-Alert-App.siddhi");
-    private volatile AtomicInteger count = new AtomicInteger(0);
 
     @BeforeClass
     private void setUpTest() {
@@ -61,28 +60,26 @@ public class TemperatureAlertAppUnitTests {
         SiddhiManager siddhiManager = new SiddhiManager();
         String siddhiApp = readFileToString(appUrl.getPath());
 
-        SiddhiAppRuntime siddhiAppRuntime = siddhiManager.createSandboxSiddhiAppRuntime(siddhiApp);
-        siddhiAppRuntime.addCallback(testQueryName, new QueryCallback() {
-            @Override
-            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
-
-                EventPrinter.print(timeStamp, inEvents, removeEvents);
-                count.incrementAndGet();
-                if (count.get() == 1) {
-                    Assert.assertTrue("CyrusOne".equals(inEvents[0].getData(0)));
-                }
-                if (count.get() == 2) {
-                    Assert.assertTrue("Kennisnet".equals(inEvents[0].getData(0)));
-                }
-            }
-        });
+        SiddhiAppRuntime siddhiAppRuntime = SiddhiAppCache.createSandboxRuntime(siddhiManager, siddhiApp);
+        EventSignal moniteredSignal = EventSignal.expect(2);
+        EventSignal internalSignal = EventSignal.expect(1);
+        siddhiAppRuntime.addCallback(testQueryName, moniteredSignal.queryCallback());
+        siddhiAppRuntime.addCallback("internal-filter", internalSignal.queryCallback());
         InputHandler deviceTemperatureStream = siddhiAppRuntime.getInputHandler("DeviceTemperatureStream");
         siddhiAppRuntime.start();
 
         deviceTemperatureStream.send(new Object[]{"monitored", "CyrusOne", 35.5, "ServerRoom1"});
         deviceTemperatureStream.send(new Object[]{"internal", "Generator", 28.6, "Basement"});
         deviceTemperatureStream.send(new Object[]{"monitored", "Kennisnet", 60.2, "ServerRoom5"});
-        SiddhiTestHelper.waitForEvents(10, 2, count, 100);
+        try {
+            List<Event> moniteredEvents = moniteredSignal.await(10, TimeUnit.SECONDS);
+            internalSignal.await(10, TimeUnit.SECONDS);
+            EventPrinter.print(moniteredEvents.toArray(new Event[0]));
+            Assert.assertEquals(moniteredEvents.get(0).getData(0), "CyrusOne");
+            Assert.assertEquals(moniteredEvents.get(1).getData(0), "Kennisnet");
+        } catch (TimeoutException e) {
+            Assert.fail("Events were not received from " + testQueryName + " and internal-filter.");
+        }
         Event[] eventsFromInternalDevicesTempTable = siddhiAppRuntime.query(
                 "from InternalDevicesTempTable ");
         EventPrinter.print(eventsFromInternalDevicesTempTable);
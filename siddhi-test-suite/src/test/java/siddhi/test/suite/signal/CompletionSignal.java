@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.signal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Completes when the data a test waits for has arrived, instead of the test sleeping or polling.
+ * Description: The signal is armed when it is created, so it has to be created before the events are sent. The time
+ *              from arming to completion is kept, which makes the wait a measured delivery or persistence latency.
+ *
+ * @param <T> the value the signal completes with
+ */
+public class CompletionSignal<T> {
+
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private final long armedAt = System.nanoTime();
+    private long completedAt;
+
+    /**
+     * Completes the signal with the given value, returns false if it was already completed.
+     */
+    protected synchronized boolean complete(T value) {
+        if (future.isDone()) {
+            return false;
+        }
+        completedAt = System.nanoTime();
+        return future.complete(value);
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Waits for the signal to complete and returns its value.
+     */
+    public T await(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        try {
+            return future.get(timeout, unit);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Completion signal failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Time from arming the signal until it completed, or -1 when it has not completed.
+     */
+    public synchronized long getLatencyMillis() {
+        return future.isDone() ? TimeUnit.NANOSECONDS.toMillis(completedAt - armedAt) : -1;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.signal;
+
+import io.siddhi.core.event.Event;
+import io.siddhi.core.query.output.callback.QueryCallback;
+import io.siddhi.core.stream.output.StreamCallback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Completes when the expected number of events arrived at a stream or query of a Siddhi app runtime.
+ * Register {@link #streamCallback()} or {@link #queryCallback()} with SiddhiAppRuntime.addCallback. A query callback
+ * on a query inserting into a table fires as the rows are added to the table.
+ */
+public class EventSignal extends CompletionSignal<List<Event>> {
+
+    private final int expected;
+    private final Predicate<Event> filter;
+    private final List<Event> events = new ArrayList<>();
+
+    private EventSignal(int expected, Predicate<Event> filter) {
+        this.expected = expected;
+        this.filter = filter;
+    }
+
+    /**
+     * Completes with the first expected events.
+     */
+    public static EventSignal expect(int expected) {
+        return new EventSignal(expected, event -> true);
+    }
+
+    /**
+     * Completes with the first expected events matching the filter, other events are ignored.
+     */
+    public static EventSignal expect(int expected, Predicate<Event> filter) {
+        return new EventSignal(expected, filter);
+    }
+
+    public StreamCallback streamCallback() {
+        return new StreamCallback() {
+            @Override
+            public void receive(Event[] events) {
+                onEvents(events);
+            }
+        };
+    }
+
+    /**
+     * Callback receiving the current events of a query.
+     */
+    public QueryCallback queryCallback() {
+        return new QueryCallback() {
+            @Override
+            public void receive(long timestamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    onEvents(inEvents);
+                }
+            }
+        };
+    }
+
+    /**
+     * Events received so far, including those after the signal completed.
+     */
+    public synchronized List<Event> getEvents() {
+        return Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    private synchronized void onEvents(Event[] received) {
+        for (Event event : received) {
+            if (filter.test(event)) {
+                events.add(event);
+            }
+        }
+        if (events.size() >= expected) {
+            complete(new ArrayList<>(events.subList(0, expected)));
+        }
+    }
+}
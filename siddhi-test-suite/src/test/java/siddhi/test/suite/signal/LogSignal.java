@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.signal;
+
+import org.testcontainers.containers.output.OutputFrame;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Completes signals when a container logs a line containing the expected text.
+ * Pass it to GenericContainer.followOutput. Unlike WaitingConsumer.waitUntil, each frame is matched once as it
+ * arrives against the pending expectations, and waits end as soon as the line is logged.
+ */
+public class LogSignal implements Consumer<OutputFrame> {
+
+    private final List<Expectation> expectations = new CopyOnWriteArrayList<>();
+
+    /**
+     * Arms a signal completing with the first log line containing the text.
+     */
+    public CompletionSignal<String> expect(String text) {
+        Expectation expectation = new Expectation(text);
+        expectations.add(expectation);
+        return expectation;
+    }
+
+    @Override
+    public void accept(OutputFrame frame) {
+        String line = frame.getUtf8String();
+        if (line == null) {
+            return;
+        }
+        for (Expectation expectation : expectations) {
+            if (line.contains(expectation.text) && expectation.complete(line)) {
+                expectations.remove(expectation);
+            }
+        }
+    }
+
+    private static class Expectation extends CompletionSignal<String> {
+        private final String text;
+
+        Expectation(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.signal;
+
+import io.nats.streaming.Message;
+import io.nats.streaming.StreamingConnection;
+import io.nats.streaming.StreamingConnectionFactory;
+import io.nats.streaming.SubscriptionOptions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Completes signals when a message matching the expectation is published to a NATS streaming destination.
+ * Only messages published after the subscription are seen.
+ */
+public class NatsSignal implements AutoCloseable {
+
+    private final StreamingConnection connection;
+    private final List<Expectation> expectations = new CopyOnWriteArrayList<>();
+
+    public NatsSignal(String clusterId, String clientId, String natsUrl, String destination)
+            throws IOException, InterruptedException, TimeoutException {
+        StreamingConnectionFactory connectionFactory = new StreamingConnectionFactory(clusterId, clientId);
+        connectionFactory.setNatsUrl(natsUrl);
+        this.connection = connectionFactory.createConnection();
+        connection.subscribe(destination, this::onMessage, new SubscriptionOptions.Builder().build());
+    }
+
+    /**
+     * Arms a signal completing with the first message matching the predicate.
+     */
+    public CompletionSignal<String> expect(Predicate<String> predicate) {
+        Expectation expectation = new Expectation(predicate);
+        expectations.add(expectation);
+        return expectation;
+    }
+
+    @Override
+    public void close() throws IOException, TimeoutException, InterruptedException {
+        connection.close();
+    }
+
+    private void onMessage(Message message) {
+        String payload = new String(message.getData(), StandardCharsets.UTF_8);
+        for (Expectation expectation : expectations) {
+            if (expectation.predicate.test(payload) && expectation.complete(payload)) {
+                expectations.remove(expectation);
+            }
+        }
+    }
+
+    private static class Expectation extends CompletionSignal<String> {
+        private final Predicate<String> predicate;
+
+        Expectation(Predicate<String> predicate) {
+            this.predicate = predicate;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package siddhi.test.suite.signal;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Completes when a query on a MySQL database returns the expected number of rows.
+ * MySQL cannot push change notifications to a JDBC client, so this signal polls: {@link #await} probes the query
+ * over one connection with a backoff starting at 5 ms and capped at 100 ms, which bounds how late the persistence
+ * latency is observed. The connect and query timeouts of each probe are cut to the time left, so the wait never runs
+ * past the timeout given to await.
+ */
+public class RowSignal extends CompletionSignal<Integer> {
+
+    private static final long INITIAL_BACKOFF_MILLIS = 5;
+    private static final long MAX_BACKOFF_MILLIS = 100;
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final String countQuery;
+    private final int expectedRows;
+
+    /**
+     * Arms a signal on a 'SELECT COUNT(*) ...' query.
+     */
+    public RowSignal(String jdbcUrl, String username, String password, String countQuery, int expectedRows) {
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.countQuery = countQuery;
+        this.expectedRows = expectedRows;
+    }
+
+    /**
+     * Probes the database until the rows are there and returns the row count.
+     * Errors are retried on a new connection until the timeout, since the table is created by the app on deployment.
+     */
+    @Override
+    public Integer await(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        SQLException lastError = null;
+        Connection connection = null;
+        try {
+            while (!isDone()) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis > 0) {
+                    try {
+                        if (connection == null) {
+                            connection = connect(remainingMillis);
+                        }
+                        int rows = countRows(connection, remainingMillis);
+                        if (rows >= expectedRows) {
+                            complete(rows);
+                            break;
+                        }
+                    } catch (SQLException e) {
+                        lastError = e;
+                        close(connection);
+                        connection = null;
+                    }
+                    remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                }
+                if (remainingMillis <= 0) {
+                    TimeoutException timeoutException = new TimeoutException("'" + countQuery + "' did not " +
+                            "return " + expectedRows + " rows within " + unit.toMillis(timeout) + " ms.");
+                    if (lastError != null) {
+                        timeoutException.initCause(lastError);
+                    }
+                    throw timeoutException;
+                }
+                Thread.sleep(Math.min(backoffMillis, remainingMillis));
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        } finally {
+            close(connection);
+        }
+        return super.await(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Connects with the connect and socket timeouts of MySQL Connector/J set to the time left.
+     */
+    private Connection connect(long remainingMillis) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", username);
+        properties.setProperty("password", password);
+        properties.setProperty("connectTimeout", Long.toString(remainingMillis));
+        properties.setProperty("socketTimeout", Long.toString(remainingMillis));
+        return DriverManager.getConnection(jdbcUrl, properties);
+    }
+
+    private int countRows(Connection connection, long remainingMillis) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMillis)));
+            try (ResultSet resultSet = statement.executeQuery(countQuery)) {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            //The connection is dropped either way
+        }
+    }
+}